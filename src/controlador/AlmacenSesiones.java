@@ -0,0 +1,192 @@
+package controlador;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sesiones de cajero abiertas tras verificar el PIN una vez. Cada sesión se
+ * identifica con un token aleatorio y vence tras un tiempo sin uso o, en todo
+ * caso, tras una duración máxima desde que se abrió.
+ *
+ * Las sesiones vencidas se descartan al intentar usarlas y, cada cierta cantidad
+ * de sesiones nuevas, con un barrido completo; no hay hilo de limpieza.
+ */
+final class AlmacenSesiones {
+    private static final int BYTES_TOKEN = 24;
+    private static final int SESIONES_POR_BARRIDO = 256;
+
+    /**
+     * Sesión abierta sobre una cuenta.
+     */
+    static final class Sesion {
+        private final String token;
+        private final String numeroCuenta;
+        private final int generacionPin;
+        private final long venceMillis;
+        private volatile long ultimoUsoMillis;
+
+        private Sesion(String token, String numeroCuenta, int generacionPin, long ahora, long maximaMillis) {
+            this.token = token;
+            this.numeroCuenta = numeroCuenta;
+            this.generacionPin = generacionPin;
+            this.venceMillis = ahora + maximaMillis;
+            this.ultimoUsoMillis = ahora;
+        }
+
+        String getToken() {
+            return token;
+        }
+
+        String getNumeroCuenta() {
+            return numeroCuenta;
+        }
+
+        /**
+         * Generación del PIN de la cuenta al abrir la sesión; si el PIN cambia, la
+         * sesión deja de valer. No se compara el PIN cifrado porque cambia al
+         * rotar la clave aunque el PIN sea el mismo.
+         */
+        int getGeneracionPin() {
+            return generacionPin;
+        }
+    }
+
+    private final long inactividadMillis;
+    private final long maximaMillis;
+    private final Map<String, Sesion> sesiones = new ConcurrentHashMap<>();
+    private final SecureRandom azar = new SecureRandom();
+    private final AtomicInteger hastaBarrido = new AtomicInteger(SESIONES_POR_BARRIDO);
+
+    private final LongAdder iniciadas = new LongAdder();
+    private final LongAdder validadas = new LongAdder();
+    private final LongAdder vencidas = new LongAdder();
+
+    /**
+     * Crea el almacén.
+     *
+     * @param inactividadMillis Tiempo sin uso tras el cual vence una sesión
+     * @param maximaMillis      Duración máxima de una sesión aunque se siga usando
+     */
+    AlmacenSesiones(long inactividadMillis, long maximaMillis) {
+        if (inactividadMillis <= 0 || maximaMillis <= 0) {
+            throw new IllegalArgumentException("Las duraciones de sesión deben ser positivas");
+        }
+        this.inactividadMillis = inactividadMillis;
+        this.maximaMillis = maximaMillis;
+    }
+
+    /**
+     * Abre una sesión para una cuenta cuyo PIN ya se verificó.
+     *
+     * @param numeroCuenta  Número de la cuenta
+     * @param generacionPin Generación vigente del PIN de la cuenta
+     * @return Token de la sesión
+     */
+    String abrir(String numeroCuenta, int generacionPin) {
+        if (hastaBarrido.decrementAndGet() <= 0) {
+            hastaBarrido.set(SESIONES_POR_BARRIDO);
+            barrer(System.currentTimeMillis());
+        }
+        byte[] bytes = new byte[BYTES_TOKEN];
+        azar.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sesiones.put(token, new Sesion(token, numeroCuenta, generacionPin, System.currentTimeMillis(), maximaMillis));
+        iniciadas.increment();
+        return token;
+    }
+
+    /**
+     * Busca una sesión vigente y renueva su tiempo de inactividad.
+     *
+     * @param token Token de la sesión
+     * @return La sesión, o null si no existe o ya venció
+     */
+    Sesion validar(String token) {
+        if (token == null) {
+            return null;
+        }
+        Sesion s = sesiones.get(token);
+        if (s == null) {
+            return null;
+        }
+        long ahora = System.currentTimeMillis();
+        if (vencida(s, ahora)) {
+            if (sesiones.remove(token, s)) {
+                vencidas.increment();
+            }
+            return null;
+        }
+        s.ultimoUsoMillis = ahora;
+        validadas.increment();
+        return s;
+    }
+
+    /**
+     * Consulta la cuenta de una sesión sin renovarla ni contarla como uso.
+     *
+     * @param token Token de la sesión
+     * @return Número de la cuenta, o null si la sesión no existe
+     */
+    String numeroCuenta(String token) {
+        Sesion s = token == null ? null : sesiones.get(token);
+        return s == null ? null : s.numeroCuenta;
+    }
+
+    /**
+     * Cierra una sesión; no hace nada si ya no existe.
+     *
+     * @param token Token de la sesión
+     */
+    void cerrar(String token) {
+        if (token != null) {
+            sesiones.remove(token);
+        }
+    }
+
+    /**
+     * Cierra todas las sesiones de una cuenta, por ejemplo al eliminarla.
+     *
+     * @param numeroCuenta Número de la cuenta
+     */
+    void cerrarDeCuenta(String numeroCuenta) {
+        sesiones.values().removeIf(s -> s.numeroCuenta.equals(numeroCuenta));
+    }
+
+    int getActivas() {
+        return sesiones.size();
+    }
+
+    long getIniciadas() {
+        return iniciadas.sum();
+    }
+
+    /**
+     * Cantidad de operaciones autorizadas con una sesión vigente; cada una es una
+     * verificación de PIN (y un descifrado) que no hizo falta.
+     */
+    long getValidadas() {
+        return validadas.sum();
+    }
+
+    long getVencidas() {
+        return vencidas.sum();
+    }
+
+    // — Helpers privados —
+
+    private boolean vencida(Sesion s, long ahora) {
+        return ahora >= s.venceMillis || ahora - s.ultimoUsoMillis >= inactividadMillis;
+    }
+
+    private void barrer(long ahora) {
+        for (Sesion s : sesiones.values()) {
+            if (vencida(s, ahora) && sesiones.remove(s.token, s)) {
+                vencidas.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package controlador;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Buffer circular acotado con muchos productores y un único consumidor.
+ * Las celdas se reservan al construir; cada una lleva un número de secuencia
+ * que indica si está libre para el productor de esa vuelta o lista para el
+ * consumidor, de modo que publicar y tomar no usan cerrojos.
+ *
+ * Si el buffer está lleno, el productor espera; si está vacío, el consumidor
+ * se estaciona hasta que un productor lo despierte.
+ *
+ * @param <T> Tipo de los elementos
+ */
+final class AnilloComandos<T> {
+    private final int mascara;
+    private final AtomicReferenceArray<T> celdas;
+    private final AtomicLongArray secuencias;
+    private final AtomicLong siguienteProductor = new AtomicLong();
+    private long siguienteConsumidor = 0;
+
+    private volatile Thread consumidor;
+    private volatile boolean consumidorEsperando = false;
+
+    /**
+     * Crea el buffer.
+     *
+     * @param capacidad Cantidad de celdas; se redondea a la siguiente potencia de dos
+     */
+    AnilloComandos(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad del anillo debe ser positiva");
+        }
+        int tamano = capacidad == 1 ? 1 : Integer.highestOneBit(capacidad - 1) << 1;
+        mascara = tamano - 1;
+        celdas = new AtomicReferenceArray<>(tamano);
+        secuencias = new AtomicLongArray(tamano);
+        for (int i = 0; i < tamano; i++) {
+            secuencias.set(i, i);
+        }
+    }
+
+    /**
+     * Registra el hilo consumidor, que será despertado al publicar.
+     *
+     * @param hilo Único hilo que llama a {@link #tomar(List, int)}
+     */
+    void setConsumidor(Thread hilo) {
+        consumidor = hilo;
+    }
+
+    /**
+     * Publica un elemento, esperando si el buffer está lleno.
+     *
+     * @param elemento Elemento a publicar
+     */
+    void publicar(T elemento) {
+        int esperas = 0;
+        while (true) {
+            long pos = siguienteProductor.get();
+            int i = (int) (pos & mascara);
+            long diferencia = secuencias.get(i) - pos;
+            if (diferencia == 0) {
+                if (siguienteProductor.compareAndSet(pos, pos + 1)) {
+                    celdas.set(i, elemento);
+                    secuencias.set(i, pos + 1);
+                    if (consumidorEsperando) {
+                        LockSupport.unpark(consumidor);
+                    }
+                    return;
+                }
+            } else if (diferencia < 0) {
+                // Lleno: el consumidor aún no libera la celda de la vuelta anterior
+                esperar(++esperas);
+            }
+        }
+    }
+
+    /**
+     * Toma los elementos disponibles, hasta un máximo. Si no hay ninguno, se
+     * estaciona hasta que se publique uno o alguien despierte al consumidor.
+     * Solo debe llamarlo el hilo consumidor.
+     *
+     * @param destino Lista donde se agregan los elementos tomados
+     * @param maximo  Cantidad máxima de elementos a tomar
+     * @return Cantidad de elementos tomados; 0 si se despertó sin elementos
+     */
+    int tomar(List<T> destino, int maximo) {
+        int tomados = tomarDisponibles(destino, maximo);
+        if (tomados > 0) {
+            return tomados;
+        }
+        consumidorEsperando = true;
+        tomados = tomarDisponibles(destino, maximo);
+        if (tomados == 0) {
+            LockSupport.park(this);
+        }
+        consumidorEsperando = false;
+        return tomados > 0 ? tomados : tomarDisponibles(destino, maximo);
+    }
+
+    /**
+     * Indica si no hay elementos publicados pendientes de tomar. Solo debe
+     * llamarlo el hilo consumidor.
+     *
+     * @return true si el buffer está vacío
+     */
+    boolean isVacio() {
+        return siguienteProductor.get() == siguienteConsumidor;
+    }
+
+    // — Helpers privados —
+
+    private int tomarDisponibles(List<T> destino, int maximo) {
+        int tomados = 0;
+        while (tomados < maximo) {
+            int i = (int) (siguienteConsumidor & mascara);
+            if (secuencias.get(i) != siguienteConsumidor + 1) {
+                break;
+            }
+            destino.add(celdas.get(i));
+            celdas.set(i, null);
+            secuencias.set(i, siguienteConsumidor + mascara + 1);
+            siguienteConsumidor++;
+            tomados++;
+        }
+        return tomados;
+    }
+
+    private static void esperar(int intento) {
+        if (intento < 100) {
+            Thread.onSpinWait();
+        } else if (intento < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+    }
+}
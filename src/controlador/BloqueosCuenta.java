@@ -0,0 +1,86 @@
+package controlador;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cerrojos por cuenta repartidos en franjas: cada número de cuenta corresponde
+ * siempre a la misma franja, de modo que las operaciones sobre cuentas de
+ * franjas distintas se ejecutan en paralelo y las de una misma cuenta en serie.
+ *
+ * Para tomar dos cuentas a la vez (transferencias) las franjas se adquieren
+ * en orden ascendente de índice, lo que evita interbloqueos entre hilos que
+ * toman el mismo par en sentidos opuestos.
+ */
+final class BloqueosCuenta {
+
+    /**
+     * Cerrojos tomados; se liberan al cerrar, pensado para try-with-resources.
+     */
+    interface Bloqueo extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final ReentrantLock[] franjas;
+
+    /**
+     * Crea los cerrojos.
+     *
+     * @param cantidad Cantidad de franjas; a más franjas, menos colisiones entre cuentas distintas
+     */
+    BloqueosCuenta(int cantidad) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad de franjas debe ser positiva");
+        }
+        franjas = new ReentrantLock[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Toma el cerrojo de una cuenta.
+     *
+     * @param numeroCuenta Número de la cuenta
+     * @return Bloqueo a cerrar para liberar el cerrojo
+     */
+    Bloqueo bloquear(String numeroCuenta) {
+        ReentrantLock l = franjas[indice(numeroCuenta)];
+        l.lock();
+        return l::unlock;
+    }
+
+    /**
+     * Toma los cerrojos de dos cuentas en orden determinista.
+     *
+     * @param a Número de la primera cuenta
+     * @param b Número de la segunda cuenta
+     * @return Bloqueo a cerrar para liberar ambos cerrojos
+     */
+    Bloqueo bloquear(String a, String b) {
+        int ia = indice(a);
+        int ib = indice(b);
+        if (ia == ib) {
+            return bloquear(a);
+        }
+        ReentrantLock primero = franjas[Math.min(ia, ib)];
+        ReentrantLock segundo = franjas[Math.max(ia, ib)];
+        primero.lock();
+        try {
+            segundo.lock();
+        } catch (RuntimeException e) {
+            primero.unlock();
+            throw e;
+        }
+        return () -> {
+            segundo.unlock();
+            primero.unlock();
+        };
+    }
+
+    private int indice(String numeroCuenta) {
+        int h = numeroCuenta.hashCode();
+        // Mezcla los bits altos para repartir mejor números consecutivos (CTA1, CTA2, ...)
+        return Math.floorMod(h ^ (h >>> 16), franjas.length);
+    }
+}
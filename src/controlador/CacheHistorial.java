@@ -0,0 +1,229 @@
+package controlador;
+
+import modelo.Cuenta;
+import modelo.Transaccion;
+import persistencia.Persistencia;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caché acotada de historiales de transacciones cargados en memoria.
+ * Los historiales se cargan la primera vez que se necesitan y se liberan
+ * siguiendo un orden LRU cuando se supera la cantidad máxima de cuentas o
+ * de transacciones en memoria.
+ *
+ * Solo se liberan historiales ya guardados: las transacciones pendientes
+ * permanecen en la cuenta hasta que se persisten.
+ *
+ * Las lecturas del almacenamiento se hacen fuera del monitor de la caché, para
+ * que la carga de una cuenta no detenga los aciertos de las demás. Quien carga
+ * debe tener el cerrojo de la cuenta.
+ */
+public class CacheHistorial {
+    private final Persistencia persistencia;
+    private final int maxCuentas;
+    private final long maxTransacciones;
+
+    // Orden de acceso: la primera entrada es la menos usada recientemente
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private long transaccionesEnMemoria = 0;
+
+    // Cerrojo con el que el controlador escribe los cambios (null si no hay controlador)
+    private volatile Object guardado;
+
+    private long aciertos = 0;
+    private long fallos = 0;
+    private long desalojos = 0;
+
+    private static final class Entrada {
+        private final Cuenta cuenta;
+        private int tamano;
+
+        private Entrada(Cuenta cuenta) {
+            this.cuenta = cuenta;
+        }
+    }
+
+    /**
+     * Crea la caché de historiales.
+     *
+     * @param persistencia     Origen de los historiales
+     * @param maxCuentas       Cantidad máxima de historiales en memoria
+     * @param maxTransacciones Cantidad máxima de transacciones en memoria sumando todos los historiales
+     */
+    public CacheHistorial(Persistencia persistencia, int maxCuentas, long maxTransacciones) {
+        if (maxCuentas <= 0 || maxTransacciones <= 0) {
+            throw new IllegalArgumentException("Los límites de la caché deben ser positivos");
+        }
+        this.persistencia = persistencia;
+        this.maxCuentas = maxCuentas;
+        this.maxTransacciones = maxTransacciones;
+    }
+
+    /**
+     * Garantiza que el historial de la cuenta esté en memoria, cargándolo si hace falta.
+     *
+     * @param cuenta Cuenta cuyo historial se necesita
+     * @throws Exception Si ocurre un error leyendo el historial
+     */
+    public void asegurar(Cuenta cuenta) throws Exception {
+        cargarEnCache(cuenta, false, true);
+    }
+
+    /**
+     * Garantiza que el historial de la cuenta esté en memoria y devuelve una copia.
+     * La copia se toma dentro de la caché, por lo que otro hilo no puede liberar
+     * el historial entre la carga y la lectura.
+     *
+     * @param cuenta Cuenta cuyo historial se necesita
+     * @return Copia inmutable del historial completo
+     * @throws Exception Si ocurre un error leyendo el historial
+     */
+    public List<Transaccion> historial(Cuenta cuenta) throws Exception {
+        return cargarEnCache(cuenta, true, true);
+    }
+
+    /**
+     * Carga el historial de la cuenta y lo cuenta en la caché sin liberar otros,
+     * para procesos que necesitan todos los historiales en memoria a la vez. Los
+     * límites se vuelven a aplicar en el siguiente uso normal de la caché.
+     *
+     * @param cuenta Cuenta cuyo historial se necesita
+     * @throws Exception Si ocurre un error leyendo el historial
+     */
+    public void cargarSinLimites(Cuenta cuenta) throws Exception {
+        cargarEnCache(cuenta, false, false);
+    }
+
+    /**
+     * Registra una cuenta cuyo historial ya está en memoria (por ejemplo, recién creada).
+     *
+     * @param cuenta Cuenta con historial cargado
+     */
+    public synchronized void registrar(Cuenta cuenta) {
+        Entrada e = new Entrada(cuenta);
+        entradas.put(cuenta.getNumeroCuenta(), e);
+        actualizarTamano(e);
+        desalojar(cuenta);
+    }
+
+    /**
+     * Quita una cuenta de la caché (por ejemplo, al eliminarla).
+     *
+     * @param numeroCuenta Número de la cuenta
+     */
+    public synchronized void quitar(String numeroCuenta) {
+        Entrada e = entradas.remove(numeroCuenta);
+        if (e != null) {
+            transaccionesEnMemoria -= e.tamano;
+        }
+    }
+
+    public synchronized int getCuentasEnMemoria() {
+        return entradas.size();
+    }
+
+    public synchronized long getTransaccionesEnMemoria() {
+        return transaccionesEnMemoria;
+    }
+
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    public synchronized long getDesalojos() {
+        return desalojos;
+    }
+
+    /**
+     * Indica el cerrojo con el que el controlador escribe los cambios. Si la cuenta
+     * tiene pendientes tomadas por una escritura, el historial se lee con ese cerrojo,
+     * para saber cuántas de ellas ya están en el almacenamiento.
+     *
+     * @param guardado Cerrojo de guardado del controlador
+     */
+    void coordinarGuardado(Object guardado) {
+        this.guardado = guardado;
+    }
+
+    // — Helpers privados —
+
+    /**
+     * Registra el uso de la cuenta, leyendo su historial fuera del monitor si no está
+     * en memoria. Si otro hilo lo libera mientras se lee, se vuelve a intentar.
+     */
+    private List<Transaccion> cargarEnCache(Cuenta cuenta, boolean copiar, boolean aplicarLimites) throws Exception {
+        synchronized (this) {
+            Entrada e = entradas.get(cuenta.getNumeroCuenta());
+            if (e != null && cuenta.isHistorialCargado()) {
+                aciertos++;
+                return usar(e, copiar, aplicarLimites);
+            }
+        }
+        while (true) {
+            if (!cuenta.isHistorialCargado()) {
+                leer(cuenta);
+            }
+            synchronized (this) {
+                if (cuenta.isHistorialCargado()) {
+                    fallos++;
+                    Entrada e = entradas.computeIfAbsent(cuenta.getNumeroCuenta(), k -> new Entrada(cuenta));
+                    return usar(e, copiar, aplicarLimites);
+                }
+            }
+        }
+    }
+
+    private List<Transaccion> usar(Entrada e, boolean copiar, boolean aplicarLimites) {
+        actualizarTamano(e);
+        if (aplicarLimites) {
+            desalojar(e.cuenta);
+        }
+        return copiar ? e.cuenta.copiarHistorial() : null;
+    }
+
+    /**
+     * Lee el historial guardado. Con el cerrojo de la cuenta nadie toma sus pendientes;
+     * si ya hay tomadas, se lee sin escrituras en curso para descontar las ya escritas.
+     */
+    private void leer(Cuenta cuenta) throws Exception {
+        Object cerrojo = guardado;
+        if (cerrojo == null || !cuenta.hayPendientesTomadas()) {
+            cuenta.cargarHistorial(persistencia.cargarTransacciones(cuenta.getNumeroCuenta()));
+            return;
+        }
+        synchronized (cerrojo) {
+            cuenta.cargarHistorial(persistencia.cargarTransacciones(cuenta.getNumeroCuenta()));
+        }
+    }
+
+    private void actualizarTamano(Entrada e) {
+        int nuevo = e.cuenta.getTransacciones().size();
+        transaccionesEnMemoria += nuevo - e.tamano;
+        e.tamano = nuevo;
+    }
+
+    /**
+     * Libera historiales en orden LRU hasta cumplir los límites, sin tocar la cuenta en uso.
+     */
+    private void desalojar(Cuenta enUso) {
+        Iterator<Map.Entry<String, Entrada>> it = entradas.entrySet().iterator();
+        while ((entradas.size() > maxCuentas || transaccionesEnMemoria > maxTransacciones) && it.hasNext()) {
+            Entrada e = it.next().getValue();
+            if (e.cuenta == enUso) {
+                continue;
+            }
+            it.remove();
+            transaccionesEnMemoria -= e.tamano;
+            e.cuenta.descargarHistorial();
+            desalojos++;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package controlador;
+
+import modelo.Transaccion;
+import persistencia.RegistroIdempotencia;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Caché acotada de claves de idempotencia recientes con el resultado de su
+ * operación. Las entradas vencen tras un tiempo fijo y, si se supera la
+ * cantidad máxima, se descartan primero las más antiguas.
+ */
+public class CacheIdempotencia {
+    private final int maxEntradas;
+    private final long vigenciaMillis;
+
+    // Orden de inserción: con vigencia fija, la primera entrada es la que vence antes
+    private final LinkedHashMap<String, RegistroIdempotencia> entradas = new LinkedHashMap<>();
+
+    private long aciertos = 0;
+
+    /**
+     * Crea la caché.
+     *
+     * @param maxEntradas    Cantidad máxima de claves recordadas
+     * @param vigenciaMillis Tiempo durante el cual se recuerda una clave
+     */
+    public CacheIdempotencia(int maxEntradas, long vigenciaMillis) {
+        if (maxEntradas <= 0 || vigenciaMillis <= 0) {
+            throw new IllegalArgumentException("Los límites de la caché deben ser positivos");
+        }
+        this.maxEntradas = maxEntradas;
+        this.vigenciaMillis = vigenciaMillis;
+    }
+
+    /**
+     * Busca el resultado guardado para una clave.
+     *
+     * @param clave Clave de la operación
+     * @return El registro vigente, o null si la clave no se ha usado o ya venció
+     */
+    public synchronized RegistroIdempotencia buscar(String clave) {
+        purgar(System.currentTimeMillis());
+        RegistroIdempotencia r = entradas.get(clave);
+        if (r != null) {
+            aciertos++;
+        }
+        return r;
+    }
+
+    /**
+     * Crea el registro de una operación completada, con la vigencia de la caché.
+     * No se recuerda hasta {@link #cargar(List)}, una vez guardado.
+     *
+     * @param clave     Clave de la operación
+     * @param huella    Datos de la solicitud con que se usó la clave
+     * @param resultado Transacción producida, o null si la operación no produce una
+     * @return El registro creado, para persistirlo
+     */
+    public RegistroIdempotencia crear(String clave, String huella, Transaccion resultado) {
+        return new RegistroIdempotencia(clave, System.currentTimeMillis() + vigenciaMillis, huella, resultado);
+    }
+
+    /**
+     * Recuerda registros ya guardados en la persistencia, descartando los vencidos.
+     *
+     * @param registros Registros en el orden en que se guardaron
+     */
+    public synchronized void cargar(List<RegistroIdempotencia> registros) {
+        for (RegistroIdempotencia r : registros) {
+            entradas.remove(r.getClave());
+            entradas.put(r.getClave(), r);
+        }
+        purgar(System.currentTimeMillis());
+    }
+
+    public synchronized int getTamano() {
+        return entradas.size();
+    }
+
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    // — Helpers privados —
+
+    private void purgar(long ahora) {
+        Iterator<RegistroIdempotencia> it = entradas.values().iterator();
+        while (it.hasNext()) {
+            RegistroIdempotencia r = it.next();
+            if (entradas.size() <= maxEntradas && r.isVigente(ahora)) {
+                break;
+            }
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package controlador;
+
+import modelo.Cuenta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carga en paralelo el historial completo de transacciones de muchas cuentas,
+ * para procesos que necesitan todo el conjunto de datos en memoria (cierres de día).
+ * Las lecturas de cada cuenta se reparten en un pool de hilos de tamaño
+ * configurable, o en hilos virtuales si no se indica tamaño. Cómo se carga cada
+ * cuenta lo decide quien crea el cargador, para que pase por los mismos cerrojos
+ * y la misma caché que el resto de las lecturas.
+ */
+public class CargadorHistoriales {
+
+    /**
+     * Recibe el avance de la carga.
+     */
+    @FunctionalInterface
+    public interface Progreso {
+        /**
+         * @param cargadas Cuentas cargadas hasta ahora
+         * @param total    Total de cuentas a cargar
+         */
+        void avance(int cargadas, int total);
+    }
+
+    /**
+     * Carga el historial de una cuenta.
+     */
+    @FunctionalInterface
+    public interface Carga {
+        /**
+         * @param cuenta Cuenta cuyo historial se carga
+         * @throws Exception Si ocurre un error leyendo el historial
+         */
+        void cargar(Cuenta cuenta) throws Exception;
+    }
+
+    private final Carga carga;
+    private final int hilos;
+
+    /**
+     * Crea el cargador.
+     *
+     * @param carga Carga del historial de cada cuenta
+     * @param hilos Tamaño del pool; 0 o negativo para usar un hilo virtual por cuenta
+     */
+    public CargadorHistoriales(Carga carga, int hilos) {
+        this.carga = carga;
+        this.hilos = hilos;
+    }
+
+    /**
+     * Carga el historial de todas las cuentas indicadas que aún no lo tengan en memoria.
+     *
+     * @param cuentas  Cuentas a cargar
+     * @param progreso Receptor del avance (puede ser null)
+     * @throws Exception El primer error ocurrido al leer algún historial
+     */
+    public void cargar(List<Cuenta> cuentas, Progreso progreso) throws Exception {
+        List<Cuenta> pendientes = new ArrayList<>();
+        for (Cuenta c : cuentas) {
+            if (!c.isHistorialCargado()) {
+                pendientes.add(c);
+            }
+        }
+        int total = pendientes.size();
+        AtomicInteger cargadas = new AtomicInteger();
+        ExecutorService pool = hilos > 0
+            ? Executors.newFixedThreadPool(hilos)
+            : Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<?>> tareas = new ArrayList<>(total);
+            for (Cuenta c : pendientes) {
+                tareas.add(pool.submit(() -> {
+                    carga.cargar(c);
+                    int n = cargadas.incrementAndGet();
+                    if (progreso != null) {
+                        progreso.avance(n, total);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : tareas) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    pool.shutdownNow();
+                    Throwable causa = e.getCause();
+                    if (causa instanceof Exception) {
+                        throw (Exception) causa;
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
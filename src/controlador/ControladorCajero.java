@@ -6,45 +6,241 @@ import modelo.Cliente;
 import modelo.Cuenta;
 import modelo.ServicioBCCR;
 import modelo.ServicioSMS;
+import modelo.TipoCambio;
 import modelo.Transaccion;
 import modelo.TipoTransaccion;
 import modelo.EstadoCuenta;
 import persistencia.Persistencia;
+import persistencia.RegistroIdempotencia;
 import modelo.Validacion;
+import util.Auditoria;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Controlador principal del Cajero Automático.
  * Implementa todas las operaciones requeridas para gestionar clientes, cuentas y realizar transacciones.
+ *
+ * Es seguro usarlo desde varios hilos (una terminal por hilo). Las operaciones
+ * sobre una cuenta toman su cerrojo por franja, así que cuentas distintas se
+ * atienden en paralelo; las transferencias toman ambas cuentas en orden fijo.
+ * Las listas, los índices secundarios y los cambios por guardar se protegen con
+ * un cerrojo aparte, que siempre se toma después del de cuenta.
+ *
+ * Al guardar, cada operación copia sus cuentas mientras las tiene tomadas; la
+ * escritura a persistencia usa esas copias y se hace fuera del cerrojo de listas,
+ * en orden, bajo un cerrojo de guardado propio. Así el disco no detiene las
+ * operaciones sobre otras cuentas y nunca se escribe una transferencia a medias.
  */
+// Los cerrojos de cuenta se toman en try-with-resources solo para liberarlos al
+// salir; el recurso nunca se usa dentro del bloque
+@SuppressWarnings("try")
 public class ControladorCajero {
     private final Persistencia persistencia;
     private final List<Cliente> clientes;
     private final List<Cuenta> cuentas;
+    private final CacheHistorial historiales;
+
+    // Índices hash: primarios por número de cuenta e identificación, secundario por dueño
+    private final Map<String, Cuenta> cuentasPorNumero = new ConcurrentHashMap<>();
+    private final Map<String, Cliente> clientesPorId = new ConcurrentHashMap<>();
+    private final Map<String, List<Cuenta>> cuentasPorDueno = new HashMap<>();
+
+    // Cerrojos por cuenta y cerrojo de listas, índice por dueño y persistencia
+    private static final int FRANJAS_BLOQUEO = 256;
+    private final BloqueosCuenta bloqueos = new BloqueosCuenta(FRANJAS_BLOQUEO);
+    private final Object escritura = new Object();
+    // Ordena las escrituras a disco; se toma antes que el de listas, nunca dentro de él
+    private final Object guardado = new Object();
+
+    // Límites por defecto de la caché de historiales
+    private static final int MAX_HISTORIALES = 1000;
+    private static final long MAX_TRANSACCIONES_EN_MEMORIA = 1_000_000;
+
+    // Cuentas tocadas desde el último guardado; solo sus archivos se reescriben
+    private final Set<Cuenta> cuentasModificadas = new LinkedHashSet<>();
+    private boolean listaCuentasModificada = false;
+
+    // Última copia consistente de cada cuenta, tomada con su cerrojo, y las
+    // transacciones tomadas de las cuentas que aún no se han escrito
+    private final Map<String, Cuenta> copias = new HashMap<>();
+    private final Map<String, List<Transaccion>> transaccionesPorEscribir = new LinkedHashMap<>();
+
+    // Turnos de guardado: cada anotación de cambios recibe uno, y una escritura
+    // cubre todos los anotados hasta el momento en que toma el lote
+    private long turnosAnotados = 0;
+    private long turnosGuardados = 0;
+
+    // Claves de idempotencia de retiros y transferencias recientes
+    private static final int MAX_CLAVES_IDEMPOTENCIA = 100_000;
+    private static final long VIGENCIA_IDEMPOTENCIA_MS = 24L * 60 * 60 * 1000;
+    private final CacheIdempotencia idempotencia =
+        new CacheIdempotencia(MAX_CLAVES_IDEMPOTENCIA, VIGENCIA_IDEMPOTENCIA_MS);
+    private final List<RegistroIdempotencia> idempotenciaPendiente = new ArrayList<>();
+
+    // Sesiones de cajero: el PIN se verifica al abrirla y no en cada operación
+    private static final long SESION_INACTIVIDAD_MS = 2L * 60 * 1000;
+    private static final long SESION_MAXIMA_MS = 10L * 60 * 1000;
+    private final AlmacenSesiones sesiones = new AlmacenSesiones(SESION_INACTIVIDAD_MS, SESION_MAXIMA_MS);
+
+    // Con guardado diferido las operaciones solo marcan las cuentas modificadas
+    // y quien usa el controlador las guarda por lotes con guardarPendientes()
+    private boolean guardadoDiferido = false;
+
+    // Contadores de archivos escritos por operación y acumulados
+    private int archivosEscritosUltimaOperacion = 0;
+    private long archivosEscritosTotal = 0;
 
     /**
      * Constructor del controlador del cajero.
-     * Inicializa el sistema cargando datos de clientes, cuentas y transacciones.
+     * Inicializa el sistema cargando datos de clientes y cuentas; el historial de
+     * transacciones de cada cuenta se carga bajo demanda.
      *
      * @param persistencia Objeto de persistencia para acceder a los datos almacenados
      * @throws Exception Si ocurre algún error durante la carga de datos
      */
     public ControladorCajero(Persistencia persistencia) throws Exception {
+        this(persistencia, new CacheHistorial(persistencia, MAX_HISTORIALES, MAX_TRANSACCIONES_EN_MEMORIA));
+    }
+
+    /**
+     * Constructor del controlador del cajero con una caché de historiales específica.
+     *
+     * @param persistencia Objeto de persistencia para acceder a los datos almacenados
+     * @param historiales  Caché de historiales de transacciones
+     * @throws Exception Si ocurre algún error durante la carga de datos
+     */
+    public ControladorCajero(Persistencia persistencia, CacheHistorial historiales) throws Exception {
         this.persistencia = persistencia;
+        this.historiales = historiales;
+        historiales.coordinarGuardado(guardado);
         this.clientes    = persistencia.cargarClientes();
         this.cuentas     = persistencia.cargarCuentas();
-        // Cargar transacciones históricas
+        reconstruirIndices();
         for (Cuenta c : cuentas) {
-            c.getTransacciones().clear();
-            c.getTransacciones().addAll(
-                persistencia.cargarTransacciones(c.getNumeroCuenta())
-            );
+            copias.put(c.getNumeroCuenta(), c.copiar());
+        }
+        idempotencia.cargar(persistencia.cargarIdempotencia());
+        List<Cuenta> migradas = new ArrayList<>();
+        for (Cuenta c : cuentas) {
+            c.descargarHistorial();
+            // Toda cuenta tiene al menos el depósito inicial; un contador en cero o
+            // totales sin calcular indican un archivo anterior, que se migra cargando el historial
+            if (c.getCantidadTransacciones() == 0 || !c.isTotalesAlDia()) {
+                historiales.asegurar(c);
+                migradas.add(c);
+            }
+        }
+        if (!migradas.isEmpty()) {
+            guardarCuentas(migradas.toArray(new Cuenta[0]));
         }
     }
 
     // — Helpers privados —
 
+    /**
+     * Página del historial de una cuenta ya autenticada, desde memoria o desde el
+     * almacenamiento. Debe llamarse con el cerrojo de la cuenta.
+     */
+    private List<Transaccion> paginaHistorial(Cuenta c,
+                                              LocalDateTime desde,
+                                              LocalDateTime hasta,
+                                              int desplazamiento,
+                                              int limite) throws Exception {
+        List<Transaccion> enMemoria = c.paginaHistorial(desde, hasta, desplazamiento, limite);
+        if (enMemoria != null) {
+            return enMemoria;
+        }
+        if (!c.hayPendientesTomadas()) {
+            // Con el cerrojo de la cuenta nadie toma sus pendientes: ninguna está escrita
+            return paginaAlmacenada(c, c.pendientesSinPersistir(0, desde, hasta), desde, hasta, desplazamiento, limite);
+        }
+        // Sin escrituras en curso se puede saber cuántas de las tomadas ya se escribieron
+        synchronized (guardado) {
+            long persistidas = persistencia.contarTransacciones(c.getNumeroCuenta());
+            List<Transaccion> nuevas = c.pendientesSinPersistir(persistidas, desde, hasta);
+            return paginaAlmacenada(c, nuevas, desde, hasta, desplazamiento, limite);
+        }
+    }
+
+    /**
+     * Arma una página del historial leyendo del almacenamiento, con las transacciones
+     * del rango aún no escritas delante: son las más recientes de la cuenta.
+     */
+    private List<Transaccion> paginaAlmacenada(Cuenta c,
+                                               List<Transaccion> nuevas,
+                                               LocalDateTime desde,
+                                               LocalDateTime hasta,
+                                               int desplazamiento,
+                                               int limite) throws Exception {
+        List<Transaccion> pagina = new ArrayList<>();
+        for (int i = nuevas.size() - 1 - desplazamiento; i >= 0 && pagina.size() < limite; i--) {
+            pagina.add(nuevas.get(i));
+        }
+        if (pagina.size() < limite) {
+            int saltadas = Math.min(desplazamiento, nuevas.size());
+            pagina.addAll(persistencia.cargarTransaccionesRecientes(c.getNumeroCuenta(), desde, hasta,
+                                                                     desplazamiento - saltadas,
+                                                                     limite - pagina.size()));
+        }
+        return pagina;
+    }
+
+    /**
+     * Reconstruye los índices de clientes y cuentas a partir de las listas cargadas.
+     */
+    private void reconstruirIndices() {
+        clientesPorId.clear();
+        cuentasPorNumero.clear();
+        cuentasPorDueno.clear();
+        for (Cliente c : clientes) {
+            indexarCliente(c);
+        }
+        for (Cuenta c : cuentas) {
+            indexarCuenta(c);
+        }
+    }
+
+    private void indexarCliente(Cliente c) {
+        if (c.getIdentificacion() != null) {
+            // Se conserva el primero, igual que la búsqueda lineal original
+            clientesPorId.putIfAbsent(c.getIdentificacion(), c);
+        }
+    }
+
+    private void indexarCuenta(Cuenta c) {
+        cuentasPorNumero.putIfAbsent(c.getNumeroCuenta(), c);
+        String idDueno = idDueno(c);
+        if (idDueno != null) {
+            cuentasPorDueno.computeIfAbsent(idDueno, k -> new ArrayList<>()).add(c);
+        }
+    }
+
+    private void desindexarCuenta(Cuenta c) {
+        cuentasPorNumero.remove(c.getNumeroCuenta(), c);
+        String idDueno = idDueno(c);
+        List<Cuenta> delDueno = idDueno == null ? null : cuentasPorDueno.get(idDueno);
+        if (delDueno != null) {
+            delDueno.remove(c);
+            if (delDueno.isEmpty()) {
+                cuentasPorDueno.remove(idDueno);
+            }
+        }
+    }
+
+    private static String idDueno(Cuenta c) {
+        return c.getDueno() == null ? null : c.getDueno().getIdentificacion();
+    }
+
     /**
      * Busca un cliente por su identificación.
      *
@@ -52,23 +248,14 @@ public class ControladorCajero {
      * @return El cliente encontrado
      * @throws IllegalArgumentException Si el cliente no existe
      */
-
-private Cliente buscarCliente(String idCliente) {
-   
-    // Buscar el cliente
-    return clientes.stream()
-        .filter(c -> {
-            if (c.getIdentificacion() == null) {
-                return false;
-            }
-            return c.getIdentificacion().equals(idCliente);
-        })
-        .findFirst()
-        .orElseThrow(() -> {
+    private Cliente buscarCliente(String idCliente) {
+        Cliente c = clientesPorId.get(idCliente);
+        if (c == null) {
             System.err.println("ERROR: No se encontró cliente con ID: " + idCliente);
-            return new IllegalArgumentException("Debe crear el cliente antes de crear una cuenta.");
-        });
-}
+            throw new IllegalArgumentException("Debe crear el cliente antes de crear una cuenta.");
+        }
+        return c;
+    }
 
     /**
      * Busca una cuenta por su número.
@@ -78,38 +265,431 @@ private Cliente buscarCliente(String idCliente) {
      * @throws IllegalArgumentException Si la cuenta no existe
      */
     private Cuenta buscarCuenta(String numeroCuenta) {
-        return cuentas.stream()
-            .filter(c -> c.getNumeroCuenta().equals(numeroCuenta))
-            .findFirst()
-            .orElseThrow(() ->
-                new IllegalArgumentException("Cuenta no encontrada: " + numeroCuenta));
+        Cuenta c = cuentasPorNumero.get(numeroCuenta);
+        if (c == null) {
+            throw new IllegalArgumentException("Cuenta no encontrada: " + numeroCuenta);
+        }
+        return c;
+    }
+
+    /**
+     * Construye la clave de idempotencia de una operación sobre una cuenta, de modo
+     * que la misma clave usada en otra cuenta no se confunda.
+     *
+     * @return La clave compuesta, o null si la operación no trae clave
+     */
+    private static String claveIdempotencia(String numeroCuenta, String clave) {
+        return clave == null || clave.isBlank() ? null : numeroCuenta + "|" + clave;
+    }
+
+    /**
+     * Obtiene la sesión vigente de un token.
+     *
+     * @throws PinInvalidoException Si la sesión no existe o venció
+     */
+    private AlmacenSesiones.Sesion exigirSesion(String token) {
+        AlmacenSesiones.Sesion s = sesiones.validar(token);
+        if (s == null) {
+            throw new PinInvalidoException("Sesión inválida o vencida");
+        }
+        return s;
+    }
+
+    /**
+     * Autenticación por PIN para {@link #retirar}: busca la cuenta y verifica el PIN.
+     */
+    private Function<String, Cuenta> autenticarConPin(String pin) {
+        return n -> {
+            Cuenta c = buscarCuenta(n);
+            if (!c.verificarPin(pin)) {
+                throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+            }
+            return c;
+        };
     }
 
     /**
-     * Guarda la lista de clientes en el sistema de persistencia.
+     * Comprueba que la cuenta de una sesión siga activa y con el mismo PIN con que
+     * se abrió la sesión; si no, la cierra. Debe llamarse con el cerrojo de la cuenta.
+     *
+     * @throws PinInvalidoException Si la sesión ya no es válida para la cuenta
+     */
+    private Cuenta cuentaDeSesion(AlmacenSesiones.Sesion s) {
+        Cuenta c = cuentasPorNumero.get(s.getNumeroCuenta());
+        if (c == null || c.getEstatus() != EstadoCuenta.ACTIVA || s.getGeneracionPin() != c.getGeneracionPin()) {
+            sesiones.cerrar(s.getToken());
+            throw new PinInvalidoException("Sesión inválida o vencida");
+        }
+        return c;
+    }
+
+    /**
+     * Arma el estado de cuenta. Los totales se acumulan en la cuenta; el historial
+     * solo hace falta para migrar cuentas guardadas antes de existir los totales.
+     */
+    private String estadoDe(Cuenta c) throws Exception {
+        if (!c.isTotalesAlDia()) {
+            historiales.asegurar(c);
+        }
+        return c.obtenerEstado();
+    }
+
+    /**
+     * Busca la operación original de una clave de idempotencia. Debe llamarse con
+     * el cerrojo de la cuenta y ya autenticada la solicitud, para que la clave no
+     * le devuelva nada a quien no tiene acceso a la cuenta.
+     *
+     * @param huella Datos de la solicitud, que deben coincidir con los de la original
+     * @return El registro de la operación original, o null si la clave no se ha usado
+     * @throws IllegalArgumentException Si la clave ya se usó con otra solicitud
+     * @throws IllegalStateException Si la operación original todavía no se ha guardado
+     */
+    private RegistroIdempotencia buscarIdempotencia(String clave, String huella) {
+        if (clave == null) {
+            return null;
+        }
+        RegistroIdempotencia previo;
+        synchronized (escritura) {
+            previo = idempotencia.buscar(clave);
+            if (previo == null) {
+                for (RegistroIdempotencia r : idempotenciaPendiente) {
+                    if (r.getClave().equals(clave)) {
+                        throw new IllegalStateException("La operación con esta clave todavía no se ha guardado");
+                    }
+                }
+                return null;
+            }
+        }
+        if (!previo.coincide(huella)) {
+            throw new IllegalArgumentException("La clave de idempotencia ya se usó con otra solicitud");
+        }
+        return previo;
+    }
+
+    /**
+     * Anota el resultado de una operación con clave para guardarlo junto con las
+     * cuentas. Debe llamarse antes de guardar las cuentas afectadas por la operación;
+     * la clave solo se reconoce en {@link #buscarIdempotencia} una vez escrita.
+     */
+    private void recordarIdempotencia(String clave, String huella, Transaccion resultado) {
+        if (clave == null) {
+            return;
+        }
+        RegistroIdempotencia r = idempotencia.crear(clave, huella, resultado);
+        synchronized (escritura) {
+            idempotenciaPendiente.add(r);
+        }
+    }
+
+    /**
+     * Guarda la lista de clientes en el sistema de persistencia. No debe llamarse
+     * con el cerrojo de listas tomado.
      *
      * @throws Exception Si ocurre un error durante el guardado
      */
     private void guardarClientes() throws Exception {
-        persistencia.guardarClientes(clientes);
+        synchronized (guardado) {
+            List<Cliente> copia;
+            synchronized (escritura) {
+                copia = new ArrayList<>(clientes);
+            }
+            persistencia.guardarClientes(copia);
+        }
     }
 
     /**
-     * Guarda la lista de clientes en el sistema de persistencia.
+     * Anota las cuentas indicadas como modificadas y guarda los cambios pendientes.
+     * Cuentas.xml solo se reescribe si hubo cambios, y los archivos de
+     * transacciones únicamente para las cuentas modificadas. Debe llamarse con el
+     * cerrojo de las cuentas y sin el de listas.
      *
+     * @param modificadas Cuentas afectadas por la operación actual
      * @throws Exception Si ocurre un error durante el guardado
      */
-    private void guardarCuentas() throws Exception {
+    private void guardarCuentas(Cuenta... modificadas) throws Exception {
+        guardarHasta(anotarCambios(modificadas));
+    }
 
-        persistencia.guardarCuentas(cuentas);
-        for (Cuenta c : cuentas) {
-            persistencia.guardarTransacciones(
-                c.getNumeroCuenta(),
-                c.getTransacciones()
-            );
+    /**
+     * Copia el estado de las cuentas y toma sus transacciones nuevas para el
+     * siguiente guardado. Debe llamarse con el cerrojo de cada cuenta, para que la
+     * copia no refleje una operación a medias. Las transacciones siguen pendientes
+     * en la cuenta hasta que la escritura que las incluye termina bien.
+     *
+     * @return El turno que cubre estos cambios
+     */
+    private long anotarCambios(Cuenta... modificadas) {
+        synchronized (escritura) {
+            for (Cuenta c : modificadas) {
+                cuentasModificadas.add(c);
+                copias.put(c.getNumeroCuenta(), c.copiar());
+                List<Transaccion> nuevas = c.tomarPendientes();
+                if (!nuevas.isEmpty()) {
+                    transaccionesPorEscribir
+                        .computeIfAbsent(c.getNumeroCuenta(), k -> new ArrayList<>())
+                        .addAll(nuevas);
+                }
+            }
+            return ++turnosAnotados;
+        }
+    }
+
+    /**
+     * Escribe los cambios anotados hasta el turno indicado, salvo con guardado diferido.
+     */
+    private void guardarHasta(long turno) throws Exception {
+        synchronized (escritura) {
+            if (guardadoDiferido) {
+                return;
+            }
+        }
+        escribirHasta(turno);
+    }
+
+    /**
+     * Escribe Cuentas.xml y las transacciones pendientes si otra escritura no cubrió
+     * ya el turno. Se escriben juntos todos los cambios anotados hasta el momento,
+     * de modo que las operaciones que esperan el cerrojo de guardado comparten la
+     * escritura. Si falla, los cambios vuelven a quedar pendientes para el siguiente
+     * intento.
+     *
+     * @return Las cuentas modificadas que se guardaron
+     */
+    private List<Cuenta> escribirHasta(long turno) throws Exception {
+        synchronized (guardado) {
+            List<Cuenta> lista;
+            List<Cuenta> modificadas;
+            Map<String, List<Transaccion>> nuevasPorCuenta;
+            List<RegistroIdempotencia> claves;
+            long hasta;
+            synchronized (escritura) {
+                if (turnosGuardados >= turno) {
+                    return List.of();
+                }
+                lista = null;
+                if (listaCuentasModificada || !cuentasModificadas.isEmpty()) {
+                    lista = new ArrayList<>(cuentas.size());
+                    for (Cuenta c : cuentas) {
+                        // Una cuenta recién agregada se copia al anotarla, en un turno posterior
+                        Cuenta copia = copias.get(c.getNumeroCuenta());
+                        if (copia != null) {
+                            lista.add(copia);
+                        }
+                    }
+                }
+                modificadas = new ArrayList<>(cuentasModificadas);
+                nuevasPorCuenta = new LinkedHashMap<>(transaccionesPorEscribir);
+                // Las claves siguen pendientes, y así visibles para buscarIdempotencia, hasta escribirse
+                claves = new ArrayList<>(idempotenciaPendiente);
+                hasta = turnosAnotados;
+                cuentasModificadas.clear();
+                listaCuentasModificada = false;
+                transaccionesPorEscribir.clear();
+            }
+            int escritos = 0;
+            try {
+                if (lista != null) {
+                    persistencia.guardarCuentas(lista);
+                    escritos++;
+                }
+                if (!nuevasPorCuenta.isEmpty()) {
+                    persistencia.agregarTransaccionesLote(nuevasPorCuenta);
+                    escritos += nuevasPorCuenta.size();
+                }
+                // Las claves se guardan después de la operación que confirman
+                if (!claves.isEmpty()) {
+                    persistencia.guardarIdempotencia(claves);
+                }
+            } catch (Exception e) {
+                synchronized (escritura) {
+                    devolverCambios(lista != null, modificadas, nuevasPorCuenta);
+                }
+                throw e;
+            }
+            for (Map.Entry<String, List<Transaccion>> e : nuevasPorCuenta.entrySet()) {
+                Cuenta c = cuentasPorNumero.get(e.getKey());
+                if (c != null) {
+                    c.confirmarPendientes(e.getValue().size());
+                }
+            }
+            synchronized (escritura) {
+                idempotencia.cargar(claves);
+                idempotenciaPendiente.subList(0, claves.size()).clear();
+                turnosGuardados = hasta;
+                archivosEscritosUltimaOperacion = escritos;
+                archivosEscritosTotal += escritos;
+            }
+            return modificadas;
+        }
+    }
+
+    /**
+     * Vuelve a dejar pendientes los cambios de una escritura fallida, antes de los
+     * anotados mientras tanto. Debe llamarse con el cerrojo de listas tomado.
+     */
+    private void devolverCambios(boolean conLista,
+                                 List<Cuenta> modificadas,
+                                 Map<String, List<Transaccion>> nuevasPorCuenta) {
+        listaCuentasModificada |= conLista;
+        cuentasModificadas.addAll(modificadas);
+        Map<String, List<Transaccion>> posteriores = new LinkedHashMap<>(transaccionesPorEscribir);
+        transaccionesPorEscribir.clear();
+        for (Map.Entry<String, List<Transaccion>> e : nuevasPorCuenta.entrySet()) {
+            // Las de una cuenta eliminada mientras tanto se descartan
+            if (copias.containsKey(e.getKey())) {
+                transaccionesPorEscribir.put(e.getKey(), new ArrayList<>(e.getValue()));
+            }
+        }
+        for (Map.Entry<String, List<Transaccion>> e : posteriores.entrySet()) {
+            transaccionesPorEscribir.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).addAll(e.getValue());
+        }
+    }
+
+    // — Acceso para el procesador secuencial —
+
+    /**
+     * Activa o desactiva el guardado diferido. Con guardado diferido las operaciones
+     * no escriben a persistencia hasta llamar a {@link #guardarPendientes()}.
+     *
+     * @param diferido true para acumular los cambios
+     */
+    void setGuardadoDiferido(boolean diferido) {
+        synchronized (escritura) {
+            guardadoDiferido = diferido;
+        }
+    }
+
+    /**
+     * Guarda en una sola escritura todos los cambios acumulados.
+     *
+     * @return Las cuentas modificadas desde el último guardado
+     * @throws Exception Si ocurre un error durante el guardado
+     */
+    List<Cuenta> guardarPendientes() throws Exception {
+        long turno;
+        synchronized (escritura) {
+            turno = turnosAnotados;
+        }
+        return escribirHasta(turno);
+    }
+
+    /**
+     * Para la rotación de claves: vuelve a cifrar con la clave actual el PIN de las
+     * cuentas indicadas que aún usan otra versión, cada una con su cerrojo, y las
+     * guarda juntas. Las cuentas que ya no existen o ya están al día se omiten.
+     *
+     * @param numeros Números de las cuentas
+     * @return Cantidad de PIN que se volvieron a cifrar
+     * @throws Exception Si ocurre un error durante el guardado
+     */
+    int recifrarPines(List<String> numeros) throws Exception {
+        int recifradas = 0;
+        long turno = 0;
+        for (String numero : numeros) {
+            try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numero)) {
+                Cuenta c = cuentasPorNumero.get(numero);
+                if (c != null && c.recifrarPin()) {
+                    turno = anotarCambios(c);
+                    recifradas++;
+                }
+            }
+        }
+        if (recifradas > 0) {
+            guardarHasta(turno);
+        }
+        return recifradas;
+    }
+
+    /**
+     * Busca una cuenta sin validar PIN.
+     *
+     * @param numeroCuenta Número de la cuenta
+     * @return La cuenta, o null si no existe
+     */
+    Cuenta cuentaPorNumero(String numeroCuenta) {
+        return cuentasPorNumero.get(numeroCuenta);
+    }
+
+    /**
+     * Para el procesador secuencial: número de la cuenta de una sesión, sin usarla.
+     *
+     * @param token Token de la sesión
+     * @return Número de la cuenta, o null si la sesión no existe
+     */
+    String numeroCuentaDeSesion(String token) {
+        return sesiones.numeroCuenta(token);
+    }
+
+    /**
+     * Obtiene una copia de la lista de cuentas registradas.
+     *
+     * @return Copia de la lista de cuentas
+     */
+    List<Cuenta> cuentasRegistradas() {
+        synchronized (escritura) {
+            return new ArrayList<>(cuentas);
+        }
+    }
+
+    /**
+     * Obtiene la cantidad de archivos escritos por la última operación de guardado de cuentas.
+     *
+     * @return Archivos escritos en el último guardado
+     */
+    public int getArchivosEscritosUltimaOperacion() {
+        synchronized (escritura) {
+            return archivosEscritosUltimaOperacion;
+        }
+    }
+
+    /**
+     * Obtiene la cantidad total de archivos de cuentas escritos desde el inicio.
+     *
+     * @return Archivos escritos acumulados
+     */
+    public long getArchivosEscritosTotal() {
+        synchronized (escritura) {
+            return archivosEscritosTotal;
         }
     }
     
+    /**
+     * Obtiene la cantidad de sesiones de cajero abiertas y aún no descartadas.
+     *
+     * @return Sesiones activas
+     */
+    public int getSesionesActivas() {
+        return sesiones.getActivas();
+    }
+
+    /**
+     * Obtiene la cantidad de sesiones abiertas desde que se creó el controlador.
+     *
+     * @return Sesiones iniciadas
+     */
+    public long getSesionesIniciadas() {
+        return sesiones.getIniciadas();
+    }
+
+    /**
+     * Obtiene la cantidad de sesiones descartadas por vencimiento.
+     *
+     * @return Sesiones vencidas
+     */
+    public long getSesionesVencidas() {
+        return sesiones.getVencidas();
+    }
+
+    /**
+     * Obtiene la cantidad de operaciones autorizadas con una sesión en lugar del PIN,
+     * es decir, verificaciones de PIN (y descifrados) ahorradas.
+     *
+     * @return Verificaciones de PIN ahorradas
+     */
+    public long getVerificacionesPinAhorradas() {
+        return sesiones.getValidadas();
+    }
+
     // — Operaciones públicas —
     
     /**
@@ -122,30 +702,72 @@ private Cliente buscarCliente(String idCliente) {
      * @throws PinInvalidoException Si el PIN proporcionado es incorrecto o la cuenta está bloqueada
      */
     public String obtenerEstadoCuenta(String numeroCuenta, String pin) throws Exception {
-        Cuenta c = buscarCuenta(numeroCuenta);
-        if (!c.verificarPin(pin)) {
-            throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            if (!c.verificarPin(pin)) {
+                throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+            }
+            return estadoDe(c);
+        }
+    }
+
+    /**
+     * Genera el reporte del estado de una cuenta dentro de una sesión, sin volver a verificar el PIN.
+     *
+     * @param token El token de la sesión
+     * @return Un string con el estado de la cuenta, incluyendo depósitos, retiros y comisiones
+     * @throws Exception Si ocurre un error durante la consulta
+     * @throws PinInvalidoException Si la sesión no existe, venció o ya no es válida para la cuenta
+     */
+    public String obtenerEstadoCuentaSesion(String token) throws Exception {
+        AlmacenSesiones.Sesion s = exigirSesion(token);
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(s.getNumeroCuenta())) {
+            return estadoDe(cuentaDeSesion(s));
+        }
+    }
+
+    /**
+     * Verifica el PIN de una cuenta. Cada fallo consume un intento y al tercero la
+     * cuenta se bloquea, igual que en las demás operaciones.
+     *
+     * @param numeroCuenta El número de la cuenta
+     * @param pin El PIN de acceso a la cuenta
+     * @return true si el PIN coincide y la cuenta está activa
+     */
+    public boolean verificarPin(String numeroCuenta, String pin) {
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            return buscarCuenta(numeroCuenta).verificarPin(pin);
         }
+    }
 
-        long totalDeposito = 0, totalRetiro = 0, comisionDeposito = 0, comisionRetiro = 0;
-        for (Transaccion t : c.getTransacciones()) {
-            if (t.getTipo() == TipoTransaccion.DEPOSITO) {
-                totalDeposito += t.getMonto();
-                if (t.isCobroComision()) comisionDeposito += t.getMontoComision();
-            } else {
-                totalRetiro += t.getMonto();
-                if (t.isCobroComision()) comisionRetiro += t.getMontoComision();
+    /**
+     * Abre una sesión de cajero: verifica el PIN una vez y devuelve un token con
+     * el que las operaciones siguientes se autorizan sin volver a descifrarlo.
+     * La sesión vence tras unos minutos sin uso, al cerrarla, al cambiar el PIN o
+     * si la cuenta se bloquea o elimina.
+     *
+     * @param numeroCuenta El número de la cuenta
+     * @param pin El PIN de acceso a la cuenta
+     * @return El token de la sesión
+     * @throws PinInvalidoException Si el PIN proporcionado es incorrecto o la cuenta está bloqueada
+     */
+    public String iniciarSesion(String numeroCuenta, String pin) throws Exception {
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            if (!c.verificarPin(pin)) {
+                throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
             }
+            return sesiones.abrir(numeroCuenta, c.getGeneracionPin());
         }
-        long totalComision = comisionDeposito + comisionRetiro;
+    }
 
-        return "Estatus: " + c.getEstatus() + "\n" +
-               "PIN (cifrado): " + c.getPinCifrado() + "\n\n" +
-               "Total depositado: " + totalDeposito + " ₡\n" +
-               "Total retiros: " + totalRetiro + " ₡\n\n" +
-               "Comisión depósitos: " + comisionDeposito + " ₡\n" +
-               "Comisión retiros: " + comisionRetiro + " ₡\n" +
-               "Total comisiones: " + totalComision + " ₡\n";
+    /**
+     * Cierra una sesión de cajero; no hace nada si ya venció.
+     *
+     * @param token El token de la sesión
+     */
+    public void cerrarSesion(String token) {
+        sesiones.cerrar(token);
     }
 
     /**
@@ -163,7 +785,10 @@ private Cliente buscarCliente(String idCliente) {
                                 String telefono,
                                 String email) throws Exception {
         Cliente c = new Cliente(nombre, identificacion, telefono, email);
-        clientes.add(c);
+        synchronized (escritura) {
+            clientes.add(c);
+            indexarCliente(c);
+        }
         guardarClientes();
         return c;
     }
@@ -174,10 +799,11 @@ private Cliente buscarCliente(String idCliente) {
      * @param id La identificación del cliente dueño de la cuenta
      * @param pin El PIN inicial para la cuenta (debe cumplir con el formato requerido)
      * @param monto El monto inicial de depósito en colones
+     * @return El número de la cuenta creada
      * @throws Exception Si ocurre un error durante la creación o guardado de la cuenta
      * @throws IllegalArgumentException Si el formato del PIN es inválido o el cliente no existe
      */   
-    public void crearCuenta(String id, String pin, long monto) throws Exception {
+    public String crearCuenta(String id, String pin, long monto) throws Exception {
         Cliente cliente = buscarCliente(id);  
         
         if (!Validacion.validarPin(pin)) {   
@@ -185,8 +811,14 @@ private Cliente buscarCliente(String idCliente) {
         }
 
         Cuenta nueva = new Cuenta(cliente, pin, monto);
-        cuentas.add(nueva);
-        guardarCuentas();
+        historiales.registrar(nueva);
+        synchronized (escritura) {
+            cuentas.add(nueva);
+            indexarCuenta(nueva);
+            listaCuentasModificada = true;
+        }
+        guardarCuentas(nueva);
+        return nueva.getNumeroCuenta();
     }
 
     /**
@@ -196,13 +828,19 @@ private Cliente buscarCliente(String idCliente) {
      * @param pinActual El PIN actual para verificación
      * @param pinNuevo El nuevo PIN a establecer
      * @throws Exception Si ocurre un error durante el cambio o guardado del PIN
+     * @throws PinInvalidoException Si el PIN actual es incorrecto o la cuenta está bloqueada
      */
     public void cambiarPin(String numeroCuenta,
                           String pinActual,
                           String pinNuevo) throws Exception {
-        Cuenta c = buscarCuenta(numeroCuenta);
-        c.cambiarPin(pinNuevo);
-        guardarCuentas();
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            if (!c.verificarPin(pinActual)) {
+                throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+            }
+            c.cambiarPin(pinNuevo);
+            guardarCuentas(c);
+        }
     }
 
     /**
@@ -213,9 +851,11 @@ private Cliente buscarCliente(String idCliente) {
      * @throws Exception Si ocurre un error durante el depósito o guardado
      */
     public void depositarColones(String numeroCuenta, long monto) throws Exception {
-        Cuenta c = buscarCuenta(numeroCuenta);
-        c.depositar(monto);
-        guardarCuentas();
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            c.depositar(monto);
+            guardarCuentas(c);
+        }
     }
 
     /**
@@ -227,12 +867,14 @@ private Cliente buscarCliente(String idCliente) {
      * @throws Exception Si ocurre un error durante el depósito o guardado
      */    
     public Transaccion depositarDolares(String numeroCuenta, double montoUsd) throws Exception {
-        long colones = Math.round(montoUsd * ServicioBCCR.getTipoCompra());
-        Cuenta c = buscarCuenta(numeroCuenta);
-        c.depositar(colones);
-        Transaccion t= c.getTransacciones().get(c.getTransacciones().size() - 1); 
-        guardarCuentas();
-        return t;
+        TipoCambio tc = ServicioBCCR.getTipoCambio();
+        long colones = Math.round(montoUsd * tc.getCompra());
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            Transaccion t = c.depositar(colones, tc.getCompra(), tc.getFecha());
+            guardarCuentas(c);
+            return t;
+        }
     }
 
     /**
@@ -252,17 +894,85 @@ private Cliente buscarCliente(String idCliente) {
                                      String pin,
                                      String codigoSms,
                                      long monto) throws Exception {
-        Cuenta c = buscarCuenta(numeroCuenta);
-        if (!c.verificarPin(pin)) {
-            throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
-        }
-        String enviado = ServicioSMS.enviarCodigo(c.getDueno().getTelefono());
-        if (!codigoSms.equals(enviado)) {
-            throw new IllegalArgumentException("Código SMS inválido");
+        return retirarConSms(numeroCuenta, pin, codigoSms, monto, null);
+    }
+
+    /**
+     * Realiza un retiro en colones con clave de idempotencia. Si la clave ya se usó
+     * en un retiro exitoso y guardado de la misma cuenta, devuelve la transacción de
+     * ese retiro sin volver a ejecutarlo; si se usó con otro monto, se rechaza.
+     *
+     * @param numeroCuenta El número de la cuenta origen
+     * @param pin El PIN de acceso a la cuenta
+     * @param codigoSms El código de verificación recibido por SMS
+     * @param monto El monto en colones a retirar
+     * @param claveIdempotencia Clave única del retiro generada por la terminal (null para no usar)
+     * @return La transacción generada por el retiro, o la del retiro original si es un reintento
+     * @throws Exception Si ocurre un error durante el retiro o guardado
+     */
+    public Transaccion retirarConSms(String numeroCuenta,
+                                     String pin,
+                                     String codigoSms,
+                                     long monto,
+                                     String claveIdempotencia) throws Exception {
+        return retirar(numeroCuenta, autenticarConPin(pin), codigoSms, monto, null,
+                       claveIdempotencia, "retiro=" + monto);
+    }
+
+    /**
+     * Realiza un retiro en colones dentro de una sesión abierta con
+     * {@link #iniciarSesion(String, String)}, sin volver a verificar el PIN.
+     *
+     * @param token El token de la sesión
+     * @param codigoSms El código de verificación recibido por SMS
+     * @param monto El monto en colones a retirar
+     * @param claveIdempotencia Clave única del retiro generada por la terminal (null para no usar)
+     * @return La transacción generada por el retiro, o la del retiro original si es un reintento
+     * @throws Exception Si ocurre un error durante el retiro o guardado
+     * @throws PinInvalidoException Si la sesión no existe, venció o ya no es válida para la cuenta
+     */
+    public Transaccion retirarConSmsSesion(String token,
+                                           String codigoSms,
+                                           long monto,
+                                           String claveIdempotencia) throws Exception {
+        AlmacenSesiones.Sesion s = exigirSesion(token);
+        return retirar(s.getNumeroCuenta(), n -> cuentaDeSesion(s), codigoSms, monto, null,
+                       claveIdempotencia, "retiro=" + monto);
+    }
+
+    /**
+     * Retiro común a las variantes con PIN y con sesión.
+     *
+     * @param autenticar Obtiene la cuenta ya autenticada; se llama con el cerrojo de la cuenta
+     * @param tipoCambio Tipo de cambio de un retiro en dólares, o null si es en colones
+     * @param huella     Monto solicitado, para reconocer una clave reutilizada con otro monto
+     */
+    private Transaccion retirar(String numeroCuenta,
+                                Function<String, Cuenta> autenticar,
+                                String codigoSms,
+                                long monto,
+                                TipoCambio tipoCambio,
+                                String claveIdempotencia,
+                                String huella) throws Exception {
+        String clave = claveIdempotencia(numeroCuenta, claveIdempotencia);
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = autenticar.apply(numeroCuenta);
+            // Un reintento devuelve el resultado guardado sin enviar otro SMS
+            RegistroIdempotencia previo = buscarIdempotencia(clave, huella);
+            if (previo != null) {
+                return previo.getResultado();
+            }
+            String enviado = ServicioSMS.enviarCodigo(c.getDueno().getTelefono());
+            if (!codigoSms.equals(enviado)) {
+                throw new IllegalArgumentException("Código SMS inválido");
+            }
+            Transaccion t = tipoCambio == null
+                ? c.retirar(monto)
+                : c.retirar(monto, tipoCambio.getVenta(), tipoCambio.getFecha());
+            recordarIdempotencia(clave, huella, t);
+            guardarCuentas(c);
+            return t;
         }
-        Transaccion t = c.retirar(monto);
-        guardarCuentas();
-        return t;
     }
 
     /**
@@ -282,8 +992,100 @@ private Cliente buscarCliente(String idCliente) {
                                       String pin,
                                       String codigoSms,
                                       double montoUsd) throws Exception {
-        long colonesReq = Math.round(montoUsd * ServicioBCCR.getTipoVenta());
-        return retirarConSms(numeroCuenta, pin, codigoSms, colonesReq);
+        return retirarDolares(numeroCuenta, pin, codigoSms, montoUsd, null);
+    }
+
+    /**
+     * Realiza un retiro en dólares con clave de idempotencia.
+     *
+     * @param numeroCuenta El número de la cuenta origen
+     * @param pin El PIN de acceso a la cuenta
+     * @param codigoSms El código de verificación recibido por SMS
+     * @param montoUsd El monto en dólares a retirar
+     * @param claveIdempotencia Clave única del retiro generada por la terminal (null para no usar)
+     * @return La transacción generada por el retiro, o la del retiro original si es un reintento
+     * @throws Exception Si ocurre un error durante el retiro o guardado
+     */
+    public Transaccion retirarDolares(String numeroCuenta,
+                                      String pin,
+                                      String codigoSms,
+                                      double montoUsd,
+                                      String claveIdempotencia) throws Exception {
+        TipoCambio tc = ServicioBCCR.getTipoCambio();
+        long colonesReq = Math.round(montoUsd * tc.getVenta());
+        return retirar(numeroCuenta, autenticarConPin(pin), codigoSms, colonesReq, tc,
+                       claveIdempotencia, "retiroUsd=" + montoUsd);
+    }
+
+    /**
+     * Realiza un retiro en dólares dentro de una sesión abierta con
+     * {@link #iniciarSesion(String, String)}, sin volver a verificar el PIN.
+     *
+     * @param token El token de la sesión
+     * @param codigoSms El código de verificación recibido por SMS
+     * @param montoUsd El monto en dólares a retirar
+     * @param claveIdempotencia Clave única del retiro generada por la terminal (null para no usar)
+     * @return La transacción generada por el retiro, o la del retiro original si es un reintento
+     * @throws Exception Si ocurre un error durante el retiro o guardado
+     * @throws PinInvalidoException Si la sesión no existe, venció o ya no es válida para la cuenta
+     */
+    public Transaccion retirarDolaresSesion(String token,
+                                            String codigoSms,
+                                            double montoUsd,
+                                            String claveIdempotencia) throws Exception {
+        AlmacenSesiones.Sesion s = exigirSesion(token);
+        TipoCambio tc = ServicioBCCR.getTipoCambio();
+        long colonesReq = Math.round(montoUsd * tc.getVenta());
+        return retirar(s.getNumeroCuenta(), n -> cuentaDeSesion(s), codigoSms, colonesReq, tc,
+                       claveIdempotencia, "retiroUsd=" + montoUsd);
+    }
+
+    /**
+     * Aplica un lote de depósitos y retiros (planillas, depósitos masivos) sobre
+     * varias cuentas. Cada línea se valida y aplica por separado y en orden; una
+     * línea rechazada, por el motivo que sea, no afecta a las demás. Cada línea
+     * aplicada se anota con el cerrojo de su cuenta y el lote se guarda junto al
+     * final, en lugar de una escritura por línea; lo aplicado se guarda aunque el
+     * lote se interrumpa.
+     * Los retiros del lote no piden PIN ni código SMS, ya que el lote lo origina el banco.
+     *
+     * @param movimientos Líneas del lote, en el orden en que deben aplicarse
+     * @return El resultado de cada línea, en el mismo orden
+     * @throws Exception Si ocurre un error al guardar el lote
+     */
+    public List<ResultadoMovimiento> aplicarLote(List<MovimientoLote> movimientos) throws Exception {
+        List<ResultadoMovimiento> resultados = new ArrayList<>(movimientos.size());
+        long turno = 0;
+        try {
+            for (int i = 0; i < movimientos.size(); i++) {
+                MovimientoLote m = movimientos.get(i);
+                String numero = m == null ? null : m.getNumeroCuenta();
+                try {
+                    if (numero == null || m.getTipo() == null) {
+                        throw new IllegalArgumentException("Línea incompleta");
+                    }
+                    try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numero)) {
+                        Cuenta c = buscarCuenta(numero);
+                        Transaccion t;
+                        switch (m.getTipo()) {
+                            case DEPOSITO -> t = c.depositar(m.getMonto());
+                            case RETIRO   -> t = c.retirar(m.getMonto());
+                            default -> throw new IllegalArgumentException(
+                                "Tipo de movimiento no admitido en lotes: " + m.getTipo());
+                        }
+                        turno = anotarCambios(c);
+                        resultados.add(new ResultadoMovimiento(i, numero, t, null));
+                    }
+                } catch (RuntimeException e) {
+                    resultados.add(new ResultadoMovimiento(i, numero, null, e.getMessage()));
+                }
+            }
+        } finally {
+            if (turno > 0) {
+                guardarHasta(turno);
+            }
+        }
+        return resultados;
     }
 
     /**
@@ -296,8 +1098,24 @@ private Cliente buscarCliente(String idCliente) {
      * @throws PinInvalidoException Si el PIN proporcionado es incorrecto o la cuenta está bloqueada
      */
     public long consultarSaldo(String numeroCuenta, String pin) throws Exception {
-        Cuenta c = buscarCuenta(numeroCuenta);
-        return c.consultarSaldo(pin);
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            return c.consultarSaldo(pin);
+        }
+    }
+
+    /**
+     * Consulta el saldo en colones dentro de una sesión, sin volver a verificar el PIN.
+     *
+     * @param token El token de la sesión
+     * @return El saldo disponible en colones
+     * @throws PinInvalidoException Si la sesión no existe, venció o ya no es válida para la cuenta
+     */
+    public long consultarSaldoSesion(String token) {
+        AlmacenSesiones.Sesion s = exigirSesion(token);
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(s.getNumeroCuenta())) {
+            return cuentaDeSesion(s).getSaldo();
+        }
     }
 
     /**
@@ -324,10 +1142,165 @@ private Cliente buscarCliente(String idCliente) {
      * @throws PinInvalidoException Si el PIN proporcionado es incorrecto o la cuenta está bloqueada
      */
     public List<Transaccion> consultarTransacciones(String numeroCuenta, String pin) throws Exception {
-        Cuenta c = buscarCuenta(numeroCuenta);
-        return c.consultarTransacciones(pin);
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            if (!c.verificarPin(pin)) {
+                throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+            }
+            return historiales.historial(c);
+        }
     }
 
+    /**
+     * Obtiene el historial de transacciones dentro de una sesión, sin volver a verificar el PIN.
+     *
+     * @param token El token de la sesión
+     * @return Una lista con todas las transacciones realizadas en la cuenta
+     * @throws Exception Si ocurre un error cargando el historial
+     * @throws PinInvalidoException Si la sesión no existe, venció o ya no es válida para la cuenta
+     */
+    public List<Transaccion> consultarTransaccionesSesion(String token) throws Exception {
+        AlmacenSesiones.Sesion s = exigirSesion(token);
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(s.getNumeroCuenta())) {
+            return historiales.historial(cuentaDeSesion(s));
+        }
+    }
+
+    /**
+     * Obtiene las transacciones de una cuenta realizadas en un período, sin cargar
+     * el historial completo si no está en memoria; las que aún no se escribieron se
+     * agregan al final.
+     *
+     * @param numeroCuenta El número de la cuenta a consultar
+     * @param pin El PIN de acceso a la cuenta
+     * @param desde Fecha inicial inclusiva del período (null para no acotar)
+     * @param hasta Fecha final exclusiva del período (null para no acotar)
+     * @return Una lista con las transacciones del período, en orden cronológico
+     * @throws Exception Si ocurre un error durante la consulta
+     * @throws PinInvalidoException Si el PIN proporcionado es incorrecto o la cuenta está bloqueada
+     */
+    public List<Transaccion> consultarTransaccionesPeriodo(String numeroCuenta,
+                                                          String pin,
+                                                          LocalDateTime desde,
+                                                          LocalDateTime hasta) throws Exception {
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            if (!c.verificarPin(pin)) {
+                throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+            }
+            List<Transaccion> enMemoria = c.transaccionesPeriodo(desde, hasta);
+            if (enMemoria != null) {
+                return enMemoria;
+            }
+            List<Transaccion> resultado = new ArrayList<>();
+            if (!c.hayPendientesTomadas()) {
+                // Con el cerrojo de la cuenta nadie toma sus pendientes: ninguna está escrita
+                persistencia.recorrerTransacciones(numeroCuenta, desde, hasta, resultado::add);
+                resultado.addAll(c.pendientesSinPersistir(0, desde, hasta));
+                return resultado;
+            }
+            // Sin escrituras en curso se puede saber cuántas de las tomadas ya se escribieron
+            synchronized (guardado) {
+                long persistidas = persistencia.contarTransacciones(numeroCuenta);
+                persistencia.recorrerTransacciones(numeroCuenta, desde, hasta, resultado::add);
+                resultado.addAll(c.pendientesSinPersistir(persistidas, desde, hasta));
+                return resultado;
+            }
+        }
+    }
+
+    /**
+     * Obtiene una página del historial de una cuenta, de la transacción más reciente
+     * a la más antigua, dentro de un período. Si el historial no está en memoria se
+     * lee desde el almacenamiento sin cargarlo completo ni agregarlo a la caché.
+     *
+     * @param numeroCuenta El número de la cuenta a consultar
+     * @param pin El PIN de acceso a la cuenta
+     * @param desde Fecha inicial inclusiva del período (null para no acotar)
+     * @param hasta Fecha final exclusiva del período (null para no acotar)
+     * @param desplazamiento Cantidad de transacciones recientes a saltar (0 para la primera página)
+     * @param limite Cantidad máxima de transacciones de la página
+     * @return Una lista con las transacciones de la página, la más reciente primero
+     * @throws Exception Si ocurre un error durante la consulta
+     * @throws PinInvalidoException Si el PIN proporcionado es incorrecto o la cuenta está bloqueada
+     * @throws IllegalArgumentException Si el desplazamiento es negativo o el límite no es positivo
+     */
+    public List<Transaccion> consultarTransaccionesPagina(String numeroCuenta,
+                                                         String pin,
+                                                         LocalDateTime desde,
+                                                         LocalDateTime hasta,
+                                                         int desplazamiento,
+                                                         int limite) throws Exception {
+        if (desplazamiento < 0 || limite <= 0) {
+            throw new IllegalArgumentException("Página de historial inválida");
+        }
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            if (!c.verificarPin(pin)) {
+                throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+            }
+            return paginaHistorial(c, desde, hasta, desplazamiento, limite);
+        }
+    }
+
+    /**
+     * Obtiene una página del historial dentro de una sesión, sin volver a verificar el PIN.
+     *
+     * @param token El token de la sesión
+     * @param desde Fecha inicial inclusiva del período (null para no acotar)
+     * @param hasta Fecha final exclusiva del período (null para no acotar)
+     * @param desplazamiento Cantidad de transacciones recientes a saltar (0 para la primera página)
+     * @param limite Cantidad máxima de transacciones de la página
+     * @return Una lista con las transacciones de la página, la más reciente primero
+     * @throws Exception Si ocurre un error durante la consulta
+     * @throws PinInvalidoException Si la sesión no existe, venció o ya no es válida para la cuenta
+     * @throws IllegalArgumentException Si el desplazamiento es negativo o el límite no es positivo
+     */
+    public List<Transaccion> consultarTransaccionesPaginaSesion(String token,
+                                                               LocalDateTime desde,
+                                                               LocalDateTime hasta,
+                                                               int desplazamiento,
+                                                               int limite) throws Exception {
+        if (desplazamiento < 0 || limite <= 0) {
+            throw new IllegalArgumentException("Página de historial inválida");
+        }
+        AlmacenSesiones.Sesion s = exigirSesion(token);
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(s.getNumeroCuenta())) {
+            return paginaHistorial(cuentaDeSesion(s), desde, hasta, desplazamiento, limite);
+        }
+    }
+
+    /**
+     * Obtiene las últimas transacciones de una cuenta, la más reciente primero.
+     *
+     * @param numeroCuenta El número de la cuenta a consultar
+     * @param pin El PIN de acceso a la cuenta
+     * @param cantidad Cantidad máxima de transacciones a devolver
+     * @return Una lista con las últimas transacciones
+     * @throws Exception Si ocurre un error durante la consulta
+     * @throws PinInvalidoException Si el PIN proporcionado es incorrecto o la cuenta está bloqueada
+     */
+    public List<Transaccion> consultarUltimasTransacciones(String numeroCuenta,
+                                                          String pin,
+                                                          int cantidad) throws Exception {
+        return consultarTransaccionesPagina(numeroCuenta, pin, null, null, 0, cantidad);
+    }
+
+    /**
+     * Obtiene los números de las cuentas de un cliente.
+     *
+     * @param idCliente La identificación del cliente
+     * @return Lista con los números de cuenta del cliente (vacía si no tiene)
+     */
+    public List<String> consultarCuentasCliente(String idCliente) {
+        List<String> numeros = new ArrayList<>();
+        synchronized (escritura) {
+            for (Cuenta c : cuentasPorDueno.getOrDefault(idCliente, List.of())) {
+                numeros.add(c.getNumeroCuenta());
+            }
+        }
+        return numeros;
+    }
 
     /**
      * Obtiene el tipo de cambio de compra actual.
@@ -338,6 +1311,15 @@ private Cliente buscarCliente(String idCliente) {
         return ServicioBCCR.getTipoCompra();
     }
 
+    /**
+     * Obtiene los tipos de cambio de compra y venta de una misma consulta.
+     *
+     * @return El tipo de cambio actual
+     */
+    public TipoCambio getTipoCambio() {
+        return ServicioBCCR.getTipoCambio();
+    }
+
     /**
      * Obtiene el tipo de cambio de venta actual.
      *
@@ -356,7 +1338,9 @@ private Cliente buscarCliente(String idCliente) {
      */
     public void cambiarTelefono(String idCliente, String nuevoTel) throws Exception {
         Cliente c = buscarCliente(idCliente);
-        c.setTelefono(nuevoTel);
+        synchronized (escritura) {
+            c.setTelefono(nuevoTel);
+        }
         guardarClientes();
     }
 
@@ -369,7 +1353,9 @@ private Cliente buscarCliente(String idCliente) {
      */
     public void cambiarEmail(String idCliente, String nuevoEmail) throws Exception {
         Cliente c = buscarCliente(idCliente);
-        c.setEmail(nuevoEmail);
+        synchronized (escritura) {
+            c.setEmail(nuevoEmail);
+        }
         guardarClientes();
     }
 
@@ -392,26 +1378,54 @@ private Cliente buscarCliente(String idCliente) {
                           String ctaDestino,
                           long monto,
                           String codigo) throws Exception {
-        Cuenta origen  = buscarCuenta(ctaOrigen);
-        Cuenta destino = buscarCuenta(ctaDestino);
-        if (!codigoSms.equals(codigo)) {
-            throw new IllegalArgumentException("Código SMS inválido");
-        }
-        if (!origen.getDueno().getIdentificacion().equals(destino.getDueno().getIdentificacion())) {
-            throw new IllegalArgumentException("Cuentas de distinto titular");
-        }
-        
-        System.out.println("sds");
-        
-        if (!origen.verificarPin(pin)) {
-            throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
-        }
-        
-                System.out.println("sds");
+        transferir(ctaOrigen, pin, codigoSms, ctaDestino, monto, codigo, null);
+    }
 
-        origen.retirar(monto);
-        destino.depositar(monto);
-        guardarCuentas();
+    /**
+     * Realiza una transferencia con clave de idempotencia. Si la clave ya se usó en
+     * una transferencia exitosa y guardada desde la misma cuenta, no se vuelve a
+     * ejecutar; si se usó con otro destino o monto, se rechaza.
+     *
+     * @param ctaOrigen El número de la cuenta origen
+     * @param pin El PIN de acceso a la cuenta origen
+     * @param codigoSms El código de verificación recibido por SMS
+     * @param ctaDestino El número de la cuenta destino
+     * @param monto El monto en colones a transferir
+     * @param codigo El código SMS enviado
+     * @param claveIdempotencia Clave única de la transferencia generada por la terminal (null para no usar)
+     * @throws Exception Si ocurre un error durante la transferencia o guardado
+     */
+    public void transferir(String ctaOrigen,
+                          String pin,
+                          String codigoSms,
+                          String ctaDestino,
+                          long monto,
+                          String codigo,
+                          String claveIdempotencia) throws Exception {
+        String clave = claveIdempotencia(ctaOrigen, claveIdempotencia);
+        String huella = "destino=" + ctaDestino + " monto=" + monto;
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(ctaOrigen, ctaDestino)) {
+            Cuenta origen  = buscarCuenta(ctaOrigen);
+            Cuenta destino = buscarCuenta(ctaDestino);
+            if (!origen.getDueno().getIdentificacion().equals(destino.getDueno().getIdentificacion())) {
+                throw new IllegalArgumentException("Cuentas de distinto titular");
+            }
+            if (!origen.verificarPin(pin)) {
+                throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+            }
+            // Un reintento ya no tiene código pendiente: se resuelve por la clave antes del SMS
+            if (buscarIdempotencia(clave, huella) != null) {
+                return;
+            }
+            if (!codigoSms.equals(codigo)) {
+                throw new IllegalArgumentException("Código SMS inválido");
+            }
+            origen.retirar(monto);
+            destino.depositar(monto);
+            recordarIdempotencia(clave, huella, null);
+            guardarCuentas(origen, destino);
+            Auditoria.registrar("TRANSFERENCIA", ctaOrigen, "destino=" + ctaDestino + " monto=" + monto);
+        }
     }
     
     public String enviarMensaje(String origen) {
@@ -429,13 +1443,27 @@ private Cliente buscarCliente(String idCliente) {
      * @throws PinInvalidoException Si el PIN proporcionado es incorrecto o la cuenta está bloqueada
      */
     public void eliminarCuenta(String numeroCuenta, String pin) throws Exception {
-        Cuenta c = buscarCuenta(numeroCuenta);
-        if (!c.verificarPin(pin)) {
-            throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            if (!c.verificarPin(pin)) {
+                throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+            }
+            historiales.quitar(numeroCuenta);
+            sesiones.cerrarDeCuenta(numeroCuenta);
+            synchronized (escritura) {
+                cuentas.remove(c);
+                desindexarCuenta(c);
+                cuentasModificadas.remove(c);
+                copias.remove(numeroCuenta);
+                transaccionesPorEscribir.remove(numeroCuenta);
+                listaCuentasModificada = true;
+            }
+            // Después de cualquier escritura en curso que aún incluya sus transacciones
+            synchronized (guardado) {
+                persistencia.eliminarArchivoTransacciones(numeroCuenta);
+            }
+            guardarCuentas();
         }
-        cuentas.remove(c);
-        persistencia.eliminarArchivoTransacciones(numeroCuenta);
-        guardarCuentas();
     } 
 
     /**
@@ -447,9 +1475,29 @@ private Cliente buscarCliente(String idCliente) {
      * @throws Exception Si ocurre un error durante la consulta
      * @throws PinInvalidoException Si el PIN proporcionado es incorrecto o la cuenta está bloqueada
      */    public EstadoCuenta consultarEstadoCuenta(String numeroCuenta, String pin) throws Exception {
-        Cuenta c = buscarCuenta(numeroCuenta);
-        c.verificarPin(pin);
-        return c.getEstatus();
+        try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(numeroCuenta)) {
+            Cuenta c = buscarCuenta(numeroCuenta);
+            c.verificarPin(pin);
+            return c.getEstatus();
+        }
+    }
+
+    /**
+     * Carga en memoria el historial completo de todas las cuentas en paralelo,
+     * sin los límites de la caché. Pensado para procesos de cierre de día. Los
+     * historiales quedan contados en la caché, que vuelve a sus límites en el
+     * siguiente uso.
+     *
+     * @param hilos    Tamaño del pool de carga; 0 para usar hilos virtuales
+     * @param progreso Receptor del avance de la carga (puede ser null)
+     * @throws Exception Si ocurre un error leyendo algún historial
+     */
+    public void cargarTodosLosHistoriales(int hilos, CargadorHistoriales.Progreso progreso) throws Exception {
+        CargadorHistoriales cargador = new CargadorHistoriales(c -> {
+            try (BloqueosCuenta.Bloqueo b = bloqueos.bloquear(c.getNumeroCuenta())) {
+                historiales.cargarSinLimites(c);
+            }
+        }, hilos);
+        cargador.cargar(cuentasRegistradas(), progreso);
     }
-   
-}
\ No newline at end of file
+}
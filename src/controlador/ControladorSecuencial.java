@@ -0,0 +1,486 @@
+package controlador;
+
+import modelo.Cifrado;
+import modelo.Cliente;
+import modelo.Cuenta;
+import modelo.EstadoCuenta;
+import modelo.Transaccion;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Alternativa a los cerrojos para atender muchas terminales: todas las operaciones
+ * que modifican datos se publican en un {@link AnilloComandos} y las ejecuta un
+ * único hilo escritor, en orden de llegada. El escritor toma los comandos por
+ * lotes, los aplica sobre el {@link ControladorCajero}, guarda los cambios del
+ * lote en una sola escritura y recién entonces responde a quienes esperan.
+ *
+ * Las consultas de saldo se responden desde instantáneas de cada cuenta que el
+ * escritor publica después de guardar, sin pasar por el escritor: reflejan el
+ * último estado confirmado. Si el guardado de un lote falla, sus cuentas no se
+ * publican hasta que un guardado posterior las incluya. Si el PIN no coincide,
+ * la cuenta no está activa o tiene intentos fallidos, la consulta pasa por el
+ * escritor para que el conteo de intentos y el bloqueo se apliquen igual que en
+ * el controlador.
+ *
+ * Las consultas de historial, estado de cuenta y las de sesión sí leen el
+ * controlador desde el hilo que llama, sin pasar por el escritor. Es seguro
+ * porque el controlador toma el cerrojo de la cuenta en cada operación, igual
+ * que cuando lo usan varias terminales a la vez; la diferencia es que pueden
+ * incluir operaciones del lote en curso que aún no se han guardado. Con PIN se
+ * hace solo si la instantánea confirma que el PIN es correcto, de modo que la
+ * lectura no cambia los intentos de la cuenta.
+ *
+ * El controlador recibido queda en modo de guardado diferido y no debe usarse
+ * directamente mientras el procesador esté activo.
+ */
+public class ControladorSecuencial {
+    private static final int CAPACIDAD_POR_DEFECTO = 4096;
+    private static final int MAX_LOTE = 256;
+    private static final int INTENTOS_COMPLETOS = 3;
+
+    /**
+     * Operación a ejecutar en el hilo escritor.
+     */
+    @FunctionalInterface
+    private interface Accion<T> {
+        T ejecutar() throws Exception;
+    }
+
+    /**
+     * Comando encolado: la acción, las cuentas que toca y su resultado.
+     */
+    private static final class Comando<T> {
+        private final Accion<T> accion;
+        private final String[] cuentas;
+        private final CompletableFuture<T> resultado = new CompletableFuture<>();
+        private T valor;
+        private Exception error;
+
+        private Comando(Accion<T> accion, String[] cuentas) {
+            this.accion = accion;
+            this.cuentas = cuentas;
+        }
+
+        private void ejecutar() {
+            try {
+                valor = accion.ejecutar();
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+
+        private void completar(Exception errorGuardado) {
+            if (error != null) {
+                resultado.completeExceptionally(error);
+            } else if (errorGuardado != null) {
+                resultado.completeExceptionally(
+                    new IllegalStateException("No se pudo guardar la operación", errorGuardado));
+            } else {
+                resultado.complete(valor);
+            }
+        }
+    }
+
+    /**
+     * Estado publicado de una cuenta para las consultas sin escritor.
+     */
+    private static final class Instantanea {
+        private final long saldo;
+        private final EstadoCuenta estatus;
+        private final String pinCifrado;
+        private final int intentos;
+
+        private Instantanea(Cuenta c) {
+            this.saldo = c.getSaldo();
+            this.estatus = c.getEstatus();
+            this.pinCifrado = c.getPinCifrado();
+            this.intentos = c.getIntentosRestantes();
+        }
+    }
+
+    private final ControladorCajero ctrl;
+    private final AnilloComandos<Comando<?>> anillo;
+    private final Thread escritor;
+    private volatile boolean activo = true;
+    // Llamadas a enviar en curso: el escritor no termina mientras alguna pueda publicar
+    private final AtomicInteger enviando = new AtomicInteger();
+
+    private final Map<String, Instantanea> publicadas = new ConcurrentHashMap<>();
+    // Cuentas de lotes cuyo guardado falló, a publicar cuando un guardado funcione
+    private final Set<String> sinPublicar = new HashSet<>();
+
+    // Estadísticas del escritor
+    private volatile long lotes = 0;
+    private volatile long comandos = 0;
+    private volatile int loteMaximo = 0;
+
+    /**
+     * Crea el procesador con la capacidad de anillo por defecto.
+     *
+     * @param ctrl Controlador sobre el que se aplican los comandos
+     */
+    public ControladorSecuencial(ControladorCajero ctrl) {
+        this(ctrl, CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * Crea el procesador.
+     *
+     * @param ctrl      Controlador sobre el que se aplican los comandos
+     * @param capacidad Cantidad de comandos en espera antes de que quien publica tenga que esperar
+     */
+    public ControladorSecuencial(ControladorCajero ctrl, int capacidad) {
+        this.ctrl = ctrl;
+        this.anillo = new AnilloComandos<>(capacidad);
+        ctrl.setGuardadoDiferido(true);
+        for (Cuenta c : ctrl.cuentasRegistradas()) {
+            publicadas.put(c.getNumeroCuenta(), new Instantanea(c));
+        }
+        this.escritor = new Thread(this::ciclo, "escritor-cajero");
+        this.escritor.setDaemon(true);
+        this.anillo.setConsumidor(escritor);
+        this.escritor.start();
+    }
+
+    // — Operaciones que modifican datos (pasan por el escritor) —
+
+    public Cliente crearCliente(String nombre, String identificacion, String telefono, String email) throws Exception {
+        return enviar(() -> ctrl.crearCliente(nombre, identificacion, telefono, email));
+    }
+
+    public String crearCuenta(String id, String pin, long monto) throws Exception {
+        return enviar(() -> ctrl.crearCuenta(id, pin, monto));
+    }
+
+    public void cambiarPin(String numeroCuenta, String pinActual, String pinNuevo) throws Exception {
+        enviar(() -> {
+            ctrl.cambiarPin(numeroCuenta, pinActual, pinNuevo);
+            return null;
+        }, numeroCuenta);
+    }
+
+    public void depositarColones(String numeroCuenta, long monto) throws Exception {
+        enviar(() -> {
+            ctrl.depositarColones(numeroCuenta, monto);
+            return null;
+        }, numeroCuenta);
+    }
+
+    public Transaccion depositarDolares(String numeroCuenta, double montoUsd) throws Exception {
+        return enviar(() -> ctrl.depositarDolares(numeroCuenta, montoUsd), numeroCuenta);
+    }
+
+    public Transaccion retirarConSms(String numeroCuenta, String pin, String codigoSms, long monto) throws Exception {
+        return retirarConSms(numeroCuenta, pin, codigoSms, monto, null);
+    }
+
+    public Transaccion retirarConSms(String numeroCuenta, String pin, String codigoSms, long monto,
+                                     String claveIdempotencia) throws Exception {
+        return enviar(() -> ctrl.retirarConSms(numeroCuenta, pin, codigoSms, monto, claveIdempotencia), numeroCuenta);
+    }
+
+    public Transaccion retirarDolares(String numeroCuenta, String pin, String codigoSms, double montoUsd) throws Exception {
+        return retirarDolares(numeroCuenta, pin, codigoSms, montoUsd, null);
+    }
+
+    public Transaccion retirarDolares(String numeroCuenta, String pin, String codigoSms, double montoUsd,
+                                      String claveIdempotencia) throws Exception {
+        return enviar(() -> ctrl.retirarDolares(numeroCuenta, pin, codigoSms, montoUsd, claveIdempotencia), numeroCuenta);
+    }
+
+    public void transferir(String ctaOrigen, String pin, String codigoSms,
+                           String ctaDestino, long monto, String codigo) throws Exception {
+        transferir(ctaOrigen, pin, codigoSms, ctaDestino, monto, codigo, null);
+    }
+
+    public void transferir(String ctaOrigen, String pin, String codigoSms,
+                           String ctaDestino, long monto, String codigo,
+                           String claveIdempotencia) throws Exception {
+        enviar(() -> {
+            ctrl.transferir(ctaOrigen, pin, codigoSms, ctaDestino, monto, codigo, claveIdempotencia);
+            return null;
+        }, ctaOrigen, ctaDestino);
+    }
+
+    /**
+     * Retiro dentro de una sesión: la cuenta se toma de la sesión para que el
+     * escritor publique su nueva instantánea.
+     */
+    public Transaccion retirarConSmsSesion(String token, String codigoSms, long monto,
+                                           String claveIdempotencia) throws Exception {
+        String numeroCuenta = ctrl.numeroCuentaDeSesion(token);
+        return enviar(() -> ctrl.retirarConSmsSesion(token, codigoSms, monto, claveIdempotencia), numeroCuenta);
+    }
+
+    public Transaccion retirarDolaresSesion(String token, String codigoSms, double montoUsd,
+                                            String claveIdempotencia) throws Exception {
+        String numeroCuenta = ctrl.numeroCuentaDeSesion(token);
+        return enviar(() -> ctrl.retirarDolaresSesion(token, codigoSms, montoUsd, claveIdempotencia), numeroCuenta);
+    }
+
+    public String iniciarSesion(String numeroCuenta, String pin) throws Exception {
+        return enviar(() -> ctrl.iniciarSesion(numeroCuenta, pin), numeroCuenta);
+    }
+
+    public void cerrarSesion(String token) {
+        ctrl.cerrarSesion(token);
+    }
+
+    public List<ResultadoMovimiento> aplicarLote(List<MovimientoLote> movimientos) throws Exception {
+        return enviar(() -> ctrl.aplicarLote(movimientos));
+    }
+
+    public void cambiarTelefono(String idCliente, String nuevoTel) throws Exception {
+        enviar(() -> {
+            ctrl.cambiarTelefono(idCliente, nuevoTel);
+            return null;
+        });
+    }
+
+    public void cambiarEmail(String idCliente, String nuevoEmail) throws Exception {
+        enviar(() -> {
+            ctrl.cambiarEmail(idCliente, nuevoEmail);
+            return null;
+        });
+    }
+
+    public void eliminarCuenta(String numeroCuenta, String pin) throws Exception {
+        enviar(() -> {
+            ctrl.eliminarCuenta(numeroCuenta, pin);
+            return null;
+        }, numeroCuenta);
+    }
+
+    // — Consultas —
+
+    /**
+     * Consulta el saldo desde la instantánea publicada si el PIN es válido;
+     * en otro caso la consulta pasa por el escritor.
+     */
+    public long consultarSaldo(String numeroCuenta, String pin) throws Exception {
+        Instantanea s = publicadas.get(numeroCuenta);
+        if (pinVigente(s, pin)) {
+            return s.saldo;
+        }
+        return enviar(() -> ctrl.consultarSaldo(numeroCuenta, pin), numeroCuenta);
+    }
+
+    /**
+     * Las consultas con sesión no verifican PIN, así que se atienden en el hilo que llama.
+     */
+    public long consultarSaldoSesion(String token) {
+        return ctrl.consultarSaldoSesion(token);
+    }
+
+    public List<Transaccion> consultarTransaccionesSesion(String token) throws Exception {
+        return ctrl.consultarTransaccionesSesion(token);
+    }
+
+    public List<Transaccion> consultarTransaccionesPaginaSesion(String token, LocalDateTime desde, LocalDateTime hasta,
+                                                               int desplazamiento, int limite) throws Exception {
+        return ctrl.consultarTransaccionesPaginaSesion(token, desde, hasta, desplazamiento, limite);
+    }
+
+    public String obtenerEstadoCuentaSesion(String token) throws Exception {
+        return ctrl.obtenerEstadoCuentaSesion(token);
+    }
+
+    public double consultarSaldoDolares(String numeroCuenta, String pin) throws Exception {
+        return consultarSaldo(numeroCuenta, pin) / ctrl.getTipoCambioCompra();
+    }
+
+    public EstadoCuenta consultarEstadoCuenta(String numeroCuenta, String pin) throws Exception {
+        Instantanea s = publicadas.get(numeroCuenta);
+        if (pinVigente(s, pin)) {
+            return s.estatus;
+        }
+        return enviar(() -> ctrl.consultarEstadoCuenta(numeroCuenta, pin), numeroCuenta);
+    }
+
+    /**
+     * Las consultas de historial se atienden en el hilo que llama cuando el PIN es
+     * válido, ya que solo leen; en otro caso pasan por el escritor.
+     */
+    public List<Transaccion> consultarTransacciones(String numeroCuenta, String pin) throws Exception {
+        if (pinVigente(publicadas.get(numeroCuenta), pin)) {
+            return ctrl.consultarTransacciones(numeroCuenta, pin);
+        }
+        return enviar(() -> ctrl.consultarTransacciones(numeroCuenta, pin), numeroCuenta);
+    }
+
+    public List<Transaccion> consultarTransaccionesPeriodo(String numeroCuenta, String pin,
+                                                          LocalDateTime desde, LocalDateTime hasta) throws Exception {
+        if (pinVigente(publicadas.get(numeroCuenta), pin)) {
+            return ctrl.consultarTransaccionesPeriodo(numeroCuenta, pin, desde, hasta);
+        }
+        return enviar(() -> ctrl.consultarTransaccionesPeriodo(numeroCuenta, pin, desde, hasta), numeroCuenta);
+    }
+
+    public List<Transaccion> consultarTransaccionesPagina(String numeroCuenta, String pin,
+                                                         LocalDateTime desde, LocalDateTime hasta,
+                                                         int desplazamiento, int limite) throws Exception {
+        if (pinVigente(publicadas.get(numeroCuenta), pin)) {
+            return ctrl.consultarTransaccionesPagina(numeroCuenta, pin, desde, hasta, desplazamiento, limite);
+        }
+        return enviar(() -> ctrl.consultarTransaccionesPagina(numeroCuenta, pin, desde, hasta, desplazamiento, limite),
+                      numeroCuenta);
+    }
+
+    public List<Transaccion> consultarUltimasTransacciones(String numeroCuenta, String pin, int cantidad) throws Exception {
+        return consultarTransaccionesPagina(numeroCuenta, pin, null, null, 0, cantidad);
+    }
+
+    public String obtenerEstadoCuenta(String numeroCuenta, String pin) throws Exception {
+        if (pinVigente(publicadas.get(numeroCuenta), pin)) {
+            return ctrl.obtenerEstadoCuenta(numeroCuenta, pin);
+        }
+        return enviar(() -> ctrl.obtenerEstadoCuenta(numeroCuenta, pin), numeroCuenta);
+    }
+
+    public List<String> consultarCuentasCliente(String idCliente) {
+        return ctrl.consultarCuentasCliente(idCliente);
+    }
+
+    public String enviarMensaje(String origen) {
+        return ctrl.enviarMensaje(origen);
+    }
+
+    public double getTipoCambioCompra() {
+        return ctrl.getTipoCambioCompra();
+    }
+
+    public double getTipoCambioVenta() {
+        return ctrl.getTipoCambioVenta();
+    }
+
+    /**
+     * Procesa los comandos pendientes, detiene el escritor y devuelve el
+     * controlador al guardado inmediato.
+     *
+     * @throws Exception Si falla el guardado final
+     */
+    public synchronized void cerrar() throws Exception {
+        if (!activo) {
+            return;
+        }
+        activo = false;
+        // Se despierta sin interrumpir: una interrupción cerraría los canales de archivo en uso
+        LockSupport.unpark(escritor);
+        escritor.join();
+        ctrl.setGuardadoDiferido(false);
+        ctrl.guardarPendientes();
+    }
+
+    public long getLotes() {
+        return lotes;
+    }
+
+    public long getComandos() {
+        return comandos;
+    }
+
+    public int getLoteMaximo() {
+        return loteMaximo;
+    }
+
+    public double getTamanoPromedioLote() {
+        long l = lotes;
+        return l == 0 ? 0 : (double) comandos / l;
+    }
+
+    // — Helpers privados —
+
+    private <T> T enviar(Accion<T> accion, String... cuentas) throws Exception {
+        Comando<T> c = new Comando<>(accion, cuentas);
+        enviando.incrementAndGet();
+        try {
+            if (!activo) {
+                throw new IllegalStateException("El procesador secuencial está cerrado");
+            }
+            anillo.publicar(c);
+        } finally {
+            if (enviando.decrementAndGet() == 0 && !activo) {
+                // El escritor pudo quedarse esperando a esta llamada para terminar
+                LockSupport.unpark(escritor);
+            }
+        }
+        try {
+            return c.resultado.get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof Exception) {
+                throw (Exception) causa;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean pinVigente(Instantanea s, String pin) {
+        return s != null
+            && pin != null
+            && s.estatus == EstadoCuenta.ACTIVA
+            && s.intentos == INTENTOS_COMPLETOS
+            && pin.equals(Cifrado.decrypt(s.pinCifrado));
+    }
+
+    private void ciclo() {
+        List<Comando<?>> lote = new ArrayList<>(MAX_LOTE);
+        while (activo || enviando.get() > 0 || !anillo.isVacio()) {
+            lote.clear();
+            if (anillo.tomar(lote, MAX_LOTE) == 0) {
+                continue;
+            }
+            procesar(lote);
+        }
+    }
+
+    private void procesar(List<Comando<?>> lote) {
+        Set<String> tocadas = new HashSet<>();
+        for (Comando<?> c : lote) {
+            c.ejecutar();
+            Collections.addAll(tocadas, c.cuentas);
+        }
+        Exception errorGuardado = null;
+        try {
+            for (Cuenta c : ctrl.guardarPendientes()) {
+                tocadas.add(c.getNumeroCuenta());
+            }
+        } catch (Exception e) {
+            errorGuardado = e;
+        }
+        tocadas.remove(null);
+        if (errorGuardado != null) {
+            // Los cambios siguen pendientes; lo publicado sigue siendo lo último guardado
+            sinPublicar.addAll(tocadas);
+        } else {
+            tocadas.addAll(sinPublicar);
+            sinPublicar.clear();
+            for (String numero : tocadas) {
+                Cuenta c = ctrl.cuentaPorNumero(numero);
+                if (c == null) {
+                    publicadas.remove(numero);
+                } else {
+                    publicadas.put(numero, new Instantanea(c));
+                }
+            }
+        }
+        for (Comando<?> c : lote) {
+            c.completar(errorGuardado);
+        }
+        lotes++;
+        comandos += lote.size();
+        loteMaximo = Math.max(loteMaximo, lote.size());
+    }
+}
@@ -0,0 +1,38 @@
+package controlador;
+
+import modelo.TipoTransaccion;
+
+/**
+ * Línea de un lote de movimientos (planillas, depósitos masivos): un depósito
+ * o un retiro en colones sobre una cuenta.
+ */
+public class MovimientoLote {
+    private final String numeroCuenta;
+    private final TipoTransaccion tipo;
+    private final long monto;
+
+    /**
+     * Crea la línea del lote.
+     *
+     * @param numeroCuenta Número de la cuenta afectada
+     * @param tipo         DEPOSITO o RETIRO
+     * @param monto        Monto en colones
+     */
+    public MovimientoLote(String numeroCuenta, TipoTransaccion tipo, long monto) {
+        this.numeroCuenta = numeroCuenta;
+        this.tipo = tipo;
+        this.monto = monto;
+    }
+
+    public String getNumeroCuenta() {
+        return numeroCuenta;
+    }
+
+    public TipoTransaccion getTipo() {
+        return tipo;
+    }
+
+    public long getMonto() {
+        return monto;
+    }
+}
@@ -0,0 +1,169 @@
+package controlador;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import modelo.Cifrado;
+import modelo.Cuenta;
+
+/**
+ * Tarea en segundo plano que vuelve a cifrar con la clave actual los PIN de
+ * todas las cuentas tras activar una nueva versión en {@link Cifrado}.
+ *
+ * Las cuentas pendientes se reparten en tramos que procesan varios hilos. Cada
+ * tramo se guarda al terminar, y ese guardado es el punto de avance: como el PIN
+ * cifrado lleva la versión de su clave, al reiniciar la tarea solo se toman las
+ * cuentas que aún usan otra versión. El ritmo total se limita a una cantidad de
+ * cuentas por segundo para no competir con la atención de clientes.
+ *
+ * Mientras la tarea avanza, los PIN se verifican con la clave que indique su
+ * versión, así que las cuentas pendientes y las ya migradas funcionan igual.
+ */
+public class RecifradoPines {
+    private final ControladorCajero ctrl;
+    private final int hilos;
+    private final long nanosPorCuenta;
+    private final int cuentasPorPunto;
+
+    // Momento (System.nanoTime) a partir del cual puede empezar el siguiente tramo
+    private final AtomicLong siguienteTurno = new AtomicLong(Long.MIN_VALUE);
+    private volatile boolean detenido = false;
+    private boolean iniciado = false;
+
+    private volatile int pendientes = 0;
+    private final LongAdder revisadas = new LongAdder();
+    private final LongAdder recifradas = new LongAdder();
+    private final LongAdder puntos = new LongAdder();
+
+    /**
+     * Crea la tarea.
+     *
+     * @param ctrl              Controlador con las cuentas
+     * @param hilos             Hilos que vuelven a cifrar en paralelo
+     * @param cuentasPorSegundo Ritmo máximo de cuentas revisadas entre todos los hilos
+     * @param cuentasPorPunto   Cuentas por tramo; cada tramo se guarda al terminar
+     */
+    public RecifradoPines(ControladorCajero ctrl, int hilos, int cuentasPorSegundo, int cuentasPorPunto) {
+        if (hilos <= 0 || cuentasPorSegundo <= 0 || cuentasPorPunto <= 0) {
+            throw new IllegalArgumentException("Los parámetros del recifrado deben ser positivos");
+        }
+        this.ctrl = ctrl;
+        this.hilos = hilos;
+        this.nanosPorCuenta = 1_000_000_000L / cuentasPorSegundo;
+        this.cuentasPorPunto = cuentasPorPunto;
+    }
+
+    /**
+     * Inicia la tarea en segundo plano sobre las cuentas cuyo PIN usa una versión
+     * de clave distinta de la actual.
+     *
+     * @return Futuro con la cantidad de PIN que se volvieron a cifrar; falla si un
+     *         tramo no se pudo guardar
+     * @throws IllegalStateException Si la tarea ya se inició
+     */
+    public synchronized CompletableFuture<Integer> iniciar() {
+        if (iniciado) {
+            throw new IllegalStateException("El recifrado ya se inició");
+        }
+        iniciado = true;
+
+        List<String> numeros = new ArrayList<>();
+        for (Cuenta c : ctrl.cuentasRegistradas()) {
+            if (Cifrado.requiereRecifrado(c.getPinCifrado())) {
+                numeros.add(c.getNumeroCuenta());
+            }
+        }
+        pendientes = numeros.size();
+
+        AtomicInteger secuencia = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(hilos, r -> {
+            Thread t = new Thread(r, "recifrado-pin-" + secuencia.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        List<CompletableFuture<Void>> tramos = new ArrayList<>();
+        for (int i = 0; i < numeros.size(); i += cuentasPorPunto) {
+            List<String> tramo = numeros.subList(i, Math.min(i + cuentasPorPunto, numeros.size()));
+            tramos.add(CompletableFuture.runAsync(() -> procesar(tramo), pool));
+        }
+        return CompletableFuture.allOf(tramos.toArray(new CompletableFuture<?>[0]))
+            .whenComplete((r, e) -> pool.shutdown())
+            .thenApply(r -> (int) recifradas.sum());
+    }
+
+    /**
+     * Detiene la tarea: los tramos en curso terminan y se guardan, y los demás se
+     * omiten. Se puede retomar más adelante con una tarea nueva.
+     */
+    public void detener() {
+        detenido = true;
+    }
+
+    /**
+     * Obtiene la cantidad de cuentas que debían volver a cifrarse al iniciar.
+     *
+     * @return Cuentas pendientes al iniciar
+     */
+    public int getPendientes() {
+        return pendientes;
+    }
+
+    public long getRevisadas() {
+        return revisadas.sum();
+    }
+
+    public long getRecifradas() {
+        return recifradas.sum();
+    }
+
+    /**
+     * Obtiene la cantidad de tramos guardados.
+     *
+     * @return Puntos de avance guardados
+     */
+    public long getPuntosGuardados() {
+        return puntos.sum();
+    }
+
+    // — Helpers privados —
+
+    private void procesar(List<String> tramo) {
+        if (detenido || !esperarTurno(tramo.size())) {
+            return;
+        }
+        try {
+            recifradas.add(ctrl.recifrarPines(tramo));
+        } catch (Exception e) {
+            throw new RuntimeException("Error guardando el recifrado de PIN", e);
+        }
+        revisadas.add(tramo.size());
+        puntos.increment();
+    }
+
+    /**
+     * Reserva el tiempo que corresponde a un tramo según el ritmo y espera a que
+     * llegue su turno.
+     *
+     * @return false si la tarea se detuvo mientras esperaba
+     */
+    private boolean esperarTurno(int cuentas) {
+        long ahora = System.nanoTime();
+        long costo = cuentas * nanosPorCuenta;
+        long previo = siguienteTurno.getAndUpdate(t -> Math.max(t, ahora) + costo);
+        long turno = Math.max(previo, ahora);
+        long espera;
+        while ((espera = turno - System.nanoTime()) > 0) {
+            if (detenido) {
+                return false;
+            }
+            LockSupport.parkNanos(this, espera);
+        }
+        return !detenido;
+    }
+}
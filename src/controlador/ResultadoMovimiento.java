@@ -0,0 +1,57 @@
+package controlador;
+
+import modelo.Transaccion;
+
+/**
+ * Resultado de aplicar una línea de un lote de movimientos: la transacción
+ * registrada o el motivo por el que la línea se rechazó.
+ */
+public class ResultadoMovimiento {
+    private final int linea;
+    private final String numeroCuenta;
+    private final Transaccion transaccion;
+    private final String error;
+
+    ResultadoMovimiento(int linea, String numeroCuenta, Transaccion transaccion, String error) {
+        this.linea = linea;
+        this.numeroCuenta = numeroCuenta;
+        this.transaccion = transaccion;
+        this.error = error;
+    }
+
+    /**
+     * @return Posición de la línea en el lote, empezando en 0
+     */
+    public int getLinea() {
+        return linea;
+    }
+
+    public String getNumeroCuenta() {
+        return numeroCuenta;
+    }
+
+    /**
+     * @return La transacción registrada, o null si la línea se rechazó
+     */
+    public Transaccion getTransaccion() {
+        return transaccion;
+    }
+
+    /**
+     * @return El motivo del rechazo, o null si la línea se aplicó
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isExitoso() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return isExitoso()
+            ? "Línea " + linea + " (" + numeroCuenta + "): " + transaccion
+            : "Línea " + linea + " (" + numeroCuenta + "): rechazada - " + error;
+    }
+}
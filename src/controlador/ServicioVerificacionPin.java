@@ -0,0 +1,204 @@
+package controlador;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servicio acotado de verificación de PIN para los picos de inicio de sesión y
+ * para las operaciones que reciben un PIN. Se ejecutan en un pool propio de
+ * tamaño fijo con una cola limitada, y cada solicitud devuelve un futuro que vence
+ * si espera en la cola más del tiempo máximo.
+ *
+ * Cada verificación toma el cerrojo de su cuenta dentro del controlador, así que
+ * el contador de intentos y el bloqueo se actualizan en el mismo orden que si se
+ * verificara en el hilo que llama. Una solicitud que vence mientras espera en la
+ * cola ya no se ejecuta y no consume un intento; una que ya empezó no vence, para
+ * que quien la pidió reciba su resultado aunque llegue tarde.
+ *
+ * Si la cola está llena, la solicitud se rechaza de inmediato con
+ * {@link RejectedExecutionException} en lugar de acumular espera.
+ */
+public class ServicioVerificacionPin {
+    private static final int MUESTRAS_LATENCIA = 4096;
+
+    private final ControladorCajero ctrl;
+    private final ThreadPoolExecutor pool;
+    private final long timeoutMillis;
+
+    private final LongAdder completadas = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+    private final LongAdder vencidas = new LongAdder();
+
+    // Últimas latencias (espera en cola + verificación), en nanosegundos
+    private final long[] latencias = new long[MUESTRAS_LATENCIA];
+    private long registradas = 0;
+
+    /**
+     * Crea el servicio.
+     *
+     * @param ctrl          Controlador sobre el que se verifican los PIN
+     * @param hilos         Tamaño del pool de verificación
+     * @param limiteCola    Cantidad máxima de verificaciones en espera
+     * @param timeoutMillis Tiempo máximo desde la solicitud hasta el resultado
+     */
+    public ServicioVerificacionPin(ControladorCajero ctrl, int hilos, int limiteCola, long timeoutMillis) {
+        if (hilos <= 0 || limiteCola <= 0 || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Los parámetros del servicio de verificación deben ser positivos");
+        }
+        this.ctrl = ctrl;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger secuencia = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(limiteCola),
+            r -> {
+                Thread t = new Thread(r, "verificador-pin-" + secuencia.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Verifica el PIN de una cuenta en el pool.
+     *
+     * @param numeroCuenta Número de la cuenta
+     * @param pin          PIN en texto plano
+     * @return Futuro con true si el PIN coincide; falla con TimeoutException si vence en la cola
+     * @throws RejectedExecutionException Si la cola de verificación está llena
+     */
+    public CompletableFuture<Boolean> verificar(String numeroCuenta, String pin) {
+        return enviar(() -> ctrl.verificarPin(numeroCuenta, pin));
+    }
+
+    /**
+     * Verifica el PIN en el pool y, si coincide, abre una sesión de cajero.
+     *
+     * @param numeroCuenta Número de la cuenta
+     * @param pin          PIN en texto plano
+     * @return Futuro con el token de la sesión; falla con PinInvalidoException si el
+     *         PIN no coincide o con TimeoutException si vence en la cola
+     * @throws RejectedExecutionException Si la cola de verificación está llena
+     */
+    public CompletableFuture<String> iniciarSesion(String numeroCuenta, String pin) {
+        return enviar(() -> ctrl.iniciarSesion(numeroCuenta, pin));
+    }
+
+    /**
+     * Ejecuta en el pool una operación del controlador que verifica un PIN, para que
+     * quede acotada igual que los inicios de sesión.
+     *
+     * @param operacion Operación que verifica el PIN con el cerrojo de su cuenta
+     * @return Futuro con el resultado de la operación o su excepción; falla con
+     *         TimeoutException si vence en la cola
+     * @throws RejectedExecutionException Si la cola de verificación está llena
+     */
+    public <T> CompletableFuture<T> ejecutar(Callable<T> operacion) {
+        return enviar(operacion);
+    }
+
+    /**
+     * Deja de aceptar verificaciones y espera a que terminen las que están en curso.
+     */
+    public void cerrar() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtiene la cantidad de verificaciones esperando en la cola.
+     *
+     * @return Profundidad de la cola
+     */
+    public int getProfundidadCola() {
+        return pool.getQueue().size();
+    }
+
+    public long getCompletadas() {
+        return completadas.sum();
+    }
+
+    public long getRechazadas() {
+        return rechazadas.sum();
+    }
+
+    /**
+     * Obtiene la cantidad de verificaciones que vencieron en la cola.
+     *
+     * @return Verificaciones vencidas
+     */
+    public long getVencidas() {
+        return vencidas.sum();
+    }
+
+    /**
+     * Calcula un percentil de la latencia (espera en cola más verificación) sobre
+     * las últimas verificaciones completadas o vencidas.
+     *
+     * @param p Percentil entre 0 y 1 (por ejemplo 0.99)
+     * @return Latencia en milisegundos, o 0 si aún no hay muestras
+     */
+    public double getLatenciaPercentil(double p) {
+        long[] ordenadas;
+        synchronized (latencias) {
+            ordenadas = Arrays.copyOf(latencias, (int) Math.min(registradas, MUESTRAS_LATENCIA));
+        }
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        Arrays.sort(ordenadas);
+        int i = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.min(Math.max(i, 0), ordenadas.length - 1)] / 1e6;
+    }
+
+    // — Helpers privados —
+
+    private <T> CompletableFuture<T> enviar(Callable<T> verificacion) {
+        long inicio = System.nanoTime();
+        CompletableFuture<T> futuro = new CompletableFuture<>();
+        // La toma primero el pool al empezar o el plazo al vencer en la cola
+        AtomicBoolean tomada = new AtomicBoolean();
+        try {
+            pool.execute(() -> {
+                // Vencida en la cola: no se verifica para no gastar un intento sin respuesta
+                if (!tomada.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    futuro.complete(verificacion.call());
+                } catch (Throwable e) {
+                    futuro.completeExceptionally(e);
+                }
+                registrarLatencia(System.nanoTime() - inicio);
+                completadas.increment();
+            });
+        } catch (RejectedExecutionException e) {
+            rechazadas.increment();
+            throw new RejectedExecutionException("Servicio de verificación de PIN saturado", e);
+        }
+        CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (tomada.compareAndSet(false, true)) {
+                // Quien la pidió esperó todo el plazo: cuenta en la latencia aunque no se ejecute
+                registrarLatencia(System.nanoTime() - inicio);
+                vencidas.increment();
+                futuro.completeExceptionally(new TimeoutException("Venció la espera de verificación de PIN"));
+            }
+        });
+        return futuro;
+    }
+
+    private void registrarLatencia(long nanos) {
+        synchronized (latencias) {
+            latencias[(int) (registradas % MUESTRAS_LATENCIA)] = nanos;
+            registradas++;
+        }
+    }
+}
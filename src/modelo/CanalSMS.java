@@ -0,0 +1,18 @@
+package modelo;
+
+/**
+ * Medio por el que un SMS llega al teléfono del cliente (la API de un operador
+ * o un simulador). {@link ServicioSMS} genera el código y lo entrega por aquí;
+ * quien lo implemente no debe registrar el mensaje, que lleva el código.
+ */
+@FunctionalInterface
+public interface CanalSMS {
+
+    /**
+     * Entrega un mensaje a un teléfono.
+     *
+     * @param telefono Número de teléfono destino
+     * @param mensaje  Texto del mensaje
+     */
+    void enviar(String telefono, String mensaje);
+}
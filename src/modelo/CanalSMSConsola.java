@@ -0,0 +1,15 @@
+package modelo;
+
+/**
+ * Canal de SMS simulado: la consola hace de teléfono del cliente y muestra el
+ * mensaje, con el código. Solo sirve para pruebas manuales y no es el canal por
+ * defecto: se activa con {@link ServicioSMS#configurar(CanalSMS)}, igual que el de
+ * un operador real.
+ */
+public class CanalSMSConsola implements CanalSMS {
+
+    @Override
+    public void enviar(String telefono, String mensaje) {
+        System.out.printf("Enviando SMS a %s: %s%n", telefono, mensaje);
+    }
+}
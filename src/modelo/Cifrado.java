@@ -3,22 +3,106 @@ package modelo;
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utilidad para cifrar y descifrar texto usando AES/CBC/PKCS5Padding.
  * CBC con IV aleatorio es más seguro que ECB.
+ *
+ * La clave se prepara una sola vez y los objetos {@link Cipher}, que no son
+ * seguros entre hilos y cuesta crear, se reutilizan desde un pool acotado junto
+ * con sus buffers de trabajo. Se usa un pool y no un ThreadLocal porque el
+ * servidor atiende cada solicitud en un hilo virtual nuevo, donde un ThreadLocal
+ * se crearía y descartaría en cada operación.
+ *
+ * Las claves tienen versión para poder rotarlas sin detener el sistema. Se cifra
+ * siempre con la versión actual y el texto cifrado lleva la versión como prefijo
+ * ("v2:..."); se descifra con la clave de la versión indicada, así que mientras se
+ * vuelven a cifrar los datos funcionan tanto los antiguos como los nuevos. Un
+ * texto sin prefijo es anterior a las versiones y corresponde a la versión 1.
+ * Al cargar la clase se leen las claves de claves.properties en el directorio de
+ * trabajo, si existe, de modo que la interfaz gráfica y el servidor usan las mismas.
  */
 public final class Cifrado {
     private static final String ALGORITMO = "AES/CBC/PKCS5Padding";
     private static final String TIPO_CLAVE = "AES";
-    private static final int TAMANO_CLAVE = 16; // 16 bytes = 128 bits
     private static final int TAMANO_IV = 16;
-    
-    // Clave fija (en producción debería ser configurable y protegida)
+    private static final int TAMANO_BLOQUE = 16;
+    private static final int MAX_MOTORES = 64;
+    private static final String PREFIJO_VERSION = "v";
+    private static final char FIN_VERSION = ':';
+    private static final String ARCHIVO_CLAVES = "claves.properties";
+
+    // Clave fija de la versión 1 (en producción debería ser configurable y protegida)
     private static final byte[] CLAVE = "MiClaveSecreta13".getBytes(StandardCharsets.UTF_8);
+    private static final Map<Integer, SecretKeySpec> CLAVES = new ConcurrentHashMap<>();
+    private static volatile int versionActual = 1;
+    static {
+        registrarClave(1, CLAVE);
+        Path claves = Paths.get(ARCHIVO_CLAVES);
+        if (Files.exists(claves)) {
+            try {
+                cargarClaves(claves);
+            } catch (IOException | IllegalArgumentException e) {
+                // Seguir con la versión 1 cifraría con una clave que ya se quiso retirar
+                throw new IllegalStateException("No se pudo leer " + ARCHIVO_CLAVES, e);
+            }
+        }
+    }
+
+    // SecureRandom es seguro entre hilos; crear uno por llamada obliga a sembrarlo cada vez
+    private static final SecureRandom AZAR = new SecureRandom();
+
+    private static final BlockingQueue<Motor> MOTORES = new ArrayBlockingQueue<>(MAX_MOTORES);
+
+    /**
+     * Propiedades que rechazan una entrada repetida en lugar de quedarse con la última.
+     */
+    private static final class PropiedadesSinRepetir extends Properties {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public synchronized Object put(Object nombre, Object valor) {
+            if (containsKey(nombre)) {
+                throw new IllegalArgumentException("Entrada repetida en el archivo de claves: " + nombre);
+            }
+            return super.put(nombre, valor);
+        }
+    }
+
+    /**
+     * Cipher reutilizable con su buffer de descifrado. Lo usa un solo hilo a la vez.
+     */
+    private static final class Motor {
+        private final Cipher cipher;
+        private byte[] buffer = new byte[64];
+
+        private Motor() throws GeneralSecurityException {
+            this.cipher = Cipher.getInstance(ALGORITMO);
+        }
+
+        private byte[] buffer(int tamano) {
+            if (buffer.length < tamano) {
+                buffer = new byte[Math.max(tamano, buffer.length * 2)];
+            }
+            return buffer;
+        }
+    }
 
     private Cifrado() { }
 
@@ -26,70 +110,209 @@ public final class Cifrado {
      * Cifra el texto plano y devuelve una cadena en Base64 que incluye el IV.
      */
     public static String encrypt(String textoPlano) {
+        Motor motor = null;
         try {
-            // Validar que la clave tenga el tamaño correcto
-            if (CLAVE.length != 16 && CLAVE.length != 24 && CLAVE.length != 32) {
-                throw new IllegalArgumentException("Tamaño de clave inválido. Debe ser de 16, 24 o 32 bytes");
-            }
-            
-            SecretKeySpec keySpec = new SecretKeySpec(CLAVE, TIPO_CLAVE);
-            Cipher cipher = Cipher.getInstance(ALGORITMO);
-            
-            // Generar IV aleatorio
+            motor = tomarMotor();
+            byte[] plano = textoPlano.getBytes(StandardCharsets.UTF_8);
+
             byte[] iv = new byte[TAMANO_IV];
-            SecureRandom secureRandom = new SecureRandom();
-            secureRandom.nextBytes(iv);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-            
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
-            byte[] encrypted = cipher.doFinal(textoPlano.getBytes(StandardCharsets.UTF_8));
-            
-            // Concatenar IV + texto cifrado y codificar en Base64
-            byte[] combined = new byte[iv.length + encrypted.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
-            
-            return Base64.getEncoder().encodeToString(combined);
+            AZAR.nextBytes(iv);
+            int version = versionActual;
+            motor.cipher.init(Cipher.ENCRYPT_MODE, CLAVES.get(version), new IvParameterSpec(iv));
+
+            // IV + texto cifrado: el cifrado se escribe directo detrás del IV
+            byte[] combinado = new byte[TAMANO_IV + motor.cipher.getOutputSize(plano.length)];
+            System.arraycopy(iv, 0, combinado, 0, TAMANO_IV);
+            int cifrados = motor.cipher.doFinal(plano, 0, plano.length, combinado, TAMANO_IV);
+
+            int total = TAMANO_IV + cifrados;
+            return PREFIJO_VERSION + version + FIN_VERSION + Base64.getEncoder().encodeToString(
+                total == combinado.length ? combinado : Arrays.copyOf(combinado, total));
         } catch (Exception e) {
             throw new RuntimeException("Error cifrando texto", e);
+        } finally {
+            devolverMotor(motor);
         }
     }
 
     /**
-     * Descifra un texto cifrado (en Base64 con IV incluido).
+     * Descifra un texto cifrado (en Base64 con IV incluido, con o sin versión).
      */
     public static String decrypt(String textoCifrado) {
+        Motor motor = null;
         try {
-            // Validar que la clave tenga el tamaño correcto
-            if (CLAVE.length != 16 && CLAVE.length != 24 && CLAVE.length != 32) {
-                throw new IllegalArgumentException("Tamaño de clave inválido. Debe ser de 16, 24 o 32 bytes");
-            }
-            
-            SecretKeySpec keySpec = new SecretKeySpec(CLAVE, TIPO_CLAVE);
-            Cipher cipher = Cipher.getInstance(ALGORITMO);
-            
-            byte[] combined = Base64.getDecoder().decode(textoCifrado);
-            
+            int inicio = inicioDatos(textoCifrado);
+            SecretKeySpec clave = claveDe(versionDe(textoCifrado));
+            byte[] combinado = Base64.getDecoder().decode(
+                inicio == 0 ? textoCifrado : textoCifrado.substring(inicio));
+
             // Verificar longitud mínima (IV + al menos 1 bloque cifrado)
-            if (combined.length < TAMANO_IV + 16) {
+            if (combinado.length < TAMANO_IV + TAMANO_BLOQUE) {
                 throw new IllegalArgumentException("Texto cifrado demasiado corto");
             }
-            
-            // Extraer IV (primeros 16 bytes)
-            byte[] iv = new byte[TAMANO_IV];
-            System.arraycopy(combined, 0, iv, 0, iv.length);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-            
-            // Extraer texto cifrado (resto de bytes)
-            byte[] encrypted = new byte[combined.length - TAMANO_IV];
-            System.arraycopy(combined, TAMANO_IV, encrypted, 0, encrypted.length);
-            
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-            byte[] decrypted = cipher.doFinal(encrypted);
-            
-            return new String(decrypted, StandardCharsets.UTF_8);
+
+            // El IV y el texto cifrado se leen en su lugar dentro del arreglo decodificado
+            motor = tomarMotor();
+            motor.cipher.init(Cipher.DECRYPT_MODE, clave, new IvParameterSpec(combinado, 0, TAMANO_IV));
+            int largo = combinado.length - TAMANO_IV;
+            byte[] salida = motor.buffer(motor.cipher.getOutputSize(largo));
+            int descifrados = motor.cipher.doFinal(combinado, TAMANO_IV, largo, salida, 0);
+
+            String texto = new String(salida, 0, descifrados, StandardCharsets.UTF_8);
+            // El buffer se reutiliza: no dejar el texto plano en él
+            Arrays.fill(salida, 0, descifrados, (byte) 0);
+            return texto;
         } catch (Exception e) {
             throw new RuntimeException("Error descifrando texto. Verifique que la clave y el texto cifrado sean correctos", e);
+        } finally {
+            devolverMotor(motor);
+        }
+    }
+
+    /**
+     * Vuelve a cifrar un texto con la clave actual si fue cifrado con otra.
+     *
+     * @param textoCifrado Texto cifrado con cualquier versión registrada
+     * @return El mismo texto si ya usa la versión actual; si no, el texto cifrado de nuevo
+     */
+    public static String recifrar(String textoCifrado) {
+        if (!requiereRecifrado(textoCifrado)) {
+            return textoCifrado;
+        }
+        return encrypt(decrypt(textoCifrado));
+    }
+
+    /**
+     * Indica si un texto cifrado usa una versión de clave distinta de la actual.
+     * No descifra: solo lee el prefijo.
+     *
+     * @param textoCifrado Texto cifrado
+     * @return true si debe volver a cifrarse
+     */
+    public static boolean requiereRecifrado(String textoCifrado) {
+        return versionDe(textoCifrado) != versionActual;
+    }
+
+    /**
+     * Obtiene la versión de clave con que se cifró un texto.
+     *
+     * @param textoCifrado Texto cifrado
+     * @return Versión de la clave; 1 si el texto no tiene prefijo de versión
+     */
+    public static int versionDe(String textoCifrado) {
+        int fin = inicioDatos(textoCifrado);
+        if (fin == 0) {
+            return 1;
+        }
+        try {
+            return Integer.parseInt(textoCifrado.substring(PREFIJO_VERSION.length(), fin - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Versión de clave inválida en el texto cifrado", e);
+        }
+    }
+
+    /**
+     * Registra la clave de una versión. Una versión ya registrada no puede cambiar
+     * de clave.
+     *
+     * @param version Número de versión, mayor que 0
+     * @param clave   Clave AES de 16, 24 o 32 bytes
+     */
+    public static void registrarClave(int version, byte[] clave) {
+        if (version <= 0) {
+            throw new IllegalArgumentException("La versión de la clave debe ser positiva");
+        }
+        if (clave.length != 16 && clave.length != 24 && clave.length != 32) {
+            throw new IllegalArgumentException("Tamaño de clave inválido. Debe ser de 16, 24 o 32 bytes");
+        }
+        SecretKeySpec nueva = new SecretKeySpec(clave, TIPO_CLAVE);
+        SecretKeySpec previa = CLAVES.putIfAbsent(version, nueva);
+        if (previa != null && !previa.equals(nueva)) {
+            throw new IllegalArgumentException("La versión " + version + " ya tiene otra clave");
+        }
+    }
+
+    /**
+     * Cambia la versión de clave con que se cifran los textos nuevos. Los textos
+     * cifrados con versiones anteriores se siguen descifrando.
+     *
+     * @param version Versión ya registrada
+     */
+    public static void activarVersion(int version) {
+        claveDe(version);
+        versionActual = version;
+    }
+
+    public static int getVersionActual() {
+        return versionActual;
+    }
+
+    /**
+     * Carga claves desde un archivo de propiedades con entradas
+     * "clave.&lt;version&gt;=&lt;clave en Base64&gt;" y, opcionalmente,
+     * "version.actual=&lt;version&gt;" para activar una de ellas. Una versión
+     * repetida en el archivo se rechaza antes de registrar ninguna clave, porque no
+     * se sabría cuál de las dos cifró los datos.
+     *
+     * @param archivo Archivo de claves
+     * @throws IOException Si no se puede leer el archivo
+     * @throws IllegalArgumentException Si el archivo repite una entrada o una versión
+     */
+    public static void cargarClaves(Path archivo) throws IOException {
+        Properties p = new PropiedadesSinRepetir();
+        try (Reader r = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            p.load(r);
+        }
+        Map<Integer, byte[]> claves = new TreeMap<>();
+        for (String nombre : p.stringPropertyNames()) {
+            if (nombre.startsWith("clave.")) {
+                int version = Integer.parseInt(nombre.substring("clave.".length()));
+                // "clave.2" y "clave.02" son la misma versión
+                if (claves.put(version, Base64.getDecoder().decode(p.getProperty(nombre).trim())) != null) {
+                    throw new IllegalArgumentException("Versión de clave repetida en el archivo de claves: " + version);
+                }
+            }
+        }
+        for (Map.Entry<Integer, byte[]> e : claves.entrySet()) {
+            registrarClave(e.getKey(), e.getValue());
+        }
+        String actual = p.getProperty("version.actual");
+        if (actual != null) {
+            activarVersion(Integer.parseInt(actual.trim()));
+        }
+    }
+
+    // — Helpers privados —
+
+    /**
+     * Posición donde empieza el Base64 (0 si el texto no tiene prefijo de versión).
+     * El prefijo no puede confundirse con Base64, que no usa ':'.
+     */
+    private static int inicioDatos(String textoCifrado) {
+        if (!textoCifrado.startsWith(PREFIJO_VERSION)) {
+            return 0;
+        }
+        int fin = textoCifrado.indexOf(FIN_VERSION);
+        return fin < 0 ? 0 : fin + 1;
+    }
+
+    private static SecretKeySpec claveDe(int version) {
+        SecretKeySpec clave = CLAVES.get(version);
+        if (clave == null) {
+            throw new IllegalArgumentException("No hay clave registrada para la versión " + version);
+        }
+        return clave;
+    }
+
+    private static Motor tomarMotor() throws GeneralSecurityException {
+        Motor motor = MOTORES.poll();
+        return motor != null ? motor : new Motor();
+    }
+
+    private static void devolverMotor(Motor motor) {
+        if (motor != null) {
+            // Si el pool está lleno el motor se descarta
+            MOTORES.offer(motor);
         }
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ import excepciones.PinInvalidoException;
 import excepciones.SaldoInsuficienteException;
 import java.time.LocalDateTime;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import util.Auditoria;
 import util.LocalDateTimeAdapter;
 import java.util.ArrayList;
 import java.util.List;
@@ -12,11 +13,17 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 /**
  * Representa una cuenta bancaria en colones. Gestiona PIN cifrado,
  * bloqueos tras intentos fallidos, depósito, retiro con comisión y
  * registro de transacciones.
+ *
+ * Los métodos que leen o modifican el estado están sincronizados sobre la
+ * cuenta, por lo que cada operación individual es atómica. Las operaciones
+ * compuestas (verificar PIN y retirar, transferencias) se coordinan en el
+ * controlador.
  */
 @XmlRootElement
 @XmlAccessorType(XmlAccessType.FIELD)
@@ -42,7 +49,44 @@ public class Cuenta {
     @XmlElement
     private String pinCifrado;
     private int intentosRestantes;
+
+    // Cambia solo cuando cambia el PIN, no al volver a cifrarlo con otra clave;
+    // las sesiones abiertas lo comparan para saber si siguen valiendo
+    @XmlTransient
+    private int generacionPin;
+
+    // Cantidad total de transacciones registradas; la regla de comisión
+    // se evalúa sobre este contador para no requerir el historial en memoria
+    @XmlElement
+    private int cantidadTransacciones;
+
+    // Totales acumulados del historial, actualizados en cada transacción para que
+    // el estado de cuenta no recorra el historial. Los archivos anteriores a estos
+    // campos los traen en cero y totalesAlDia en false; se recalculan al cargar el historial.
+    @XmlElement
+    private long totalDepositado;
+    @XmlElement
+    private long totalRetirado;
+    @XmlElement
+    private long comisionDepositos;
+    @XmlElement
+    private long comisionRetiros;
+    @XmlElement
+    private boolean totalesAlDia;
+
+    // El historial vive en Transacciones_<numero>.xml y se carga bajo demanda
+    @XmlTransient
     private final List<Transaccion> transacciones = new ArrayList<>();
+    @XmlTransient
+    private final List<Transaccion> pendientes = new ArrayList<>();
+    // Pendientes ya entregadas para escribir; siguen en la lista hasta que se confirme la escritura
+    @XmlTransient
+    private int pendientesTomadas;
+    @XmlTransient
+    private boolean historialCargado = true;
+    // Fechas del historial en memoria para ubicar rangos con búsqueda binaria
+    @XmlTransient
+    private final IndiceTemporal indice = new IndiceTemporal();
     
     
     public Cuenta() {
@@ -75,10 +119,83 @@ public class Cuenta {
         // XXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXx
         this.intentosRestantes = 3;
         this.saldo = 0;
+        this.totalesAlDia = true;
         // registra depósito inicial como transacción sin comisión
         depositar(depositoInicial);
     }
 
+    /**
+     * Para persistencia: reconstruye una cuenta a partir de su estado almacenado,
+     * sin registrar transacciones ni volver a cifrar el PIN.
+     *
+     * @param numeroCuenta      número de la cuenta
+     * @param fechaCreacion     fecha de creación original
+     * @param estatus           estado de la cuenta
+     * @param saldo             saldo en colones
+     * @param dueno             cliente propietario
+     * @param pinCifrado        PIN ya cifrado
+     * @param intentosRestantes intentos de PIN restantes
+     * @param cantidadTransacciones cantidad de transacciones registradas
+     * @return la cuenta reconstruida, con el historial sin cargar
+     */
+    public static Cuenta restaurar(String numeroCuenta,
+                                   LocalDateTime fechaCreacion,
+                                   EstadoCuenta estatus,
+                                   long saldo,
+                                   Cliente dueno,
+                                   String pinCifrado,
+                                   int intentosRestantes,
+                                   int cantidadTransacciones) {
+        Cuenta c = new Cuenta();
+        c.numeroCuenta = numeroCuenta;
+        c.fechaCreacion = fechaCreacion;
+        c.estatus = estatus;
+        c.saldo = saldo;
+        c.dueno = dueno;
+        c.pinCifrado = pinCifrado;
+        c.intentosRestantes = intentosRestantes;
+        c.cantidadTransacciones = cantidadTransacciones;
+        c.historialCargado = false;
+        return c;
+    }
+
+    /**
+     * Para persistencia: restablece los totales acumulados guardados con la cuenta.
+     *
+     * @param totalDepositado   suma de los montos depositados
+     * @param totalRetirado     suma de los montos retirados
+     * @param comisionDepositos suma de las comisiones cobradas en depósitos
+     * @param comisionRetiros   suma de las comisiones cobradas en retiros
+     */
+    public synchronized void restaurarTotales(long totalDepositado,
+                                              long totalRetirado,
+                                              long comisionDepositos,
+                                              long comisionRetiros) {
+        this.totalDepositado = totalDepositado;
+        this.totalRetirado = totalRetirado;
+        this.comisionDepositos = comisionDepositos;
+        this.comisionRetiros = comisionRetiros;
+        this.totalesAlDia = true;
+    }
+
+    /**
+     * Para persistencia: copia el estado que se guarda de la cuenta, sin historial,
+     * para escribirlo después sin tener tomada la cuenta.
+     *
+     * @return copia desvinculada de la cuenta, con el mismo dueño
+     */
+    public synchronized Cuenta copiar() {
+        Cuenta c = restaurar(numeroCuenta, fechaCreacion, estatus, saldo, dueno,
+                             pinCifrado, intentosRestantes, cantidadTransacciones);
+        c.generacionPin = generacionPin;
+        c.totalDepositado = totalDepositado;
+        c.totalRetirado = totalRetirado;
+        c.comisionDepositos = comisionDepositos;
+        c.comisionRetiros = comisionRetiros;
+        c.totalesAlDia = totalesAlDia;
+        return c;
+    }
+
     public String getNumeroCuenta() {
         return numeroCuenta;
     }
@@ -87,7 +204,7 @@ public class Cuenta {
         return fechaCreacion;
     }
 
-    public EstadoCuenta getEstatus() {
+    public synchronized EstadoCuenta getEstatus() {
         return estatus;
     }
 
@@ -99,10 +216,25 @@ public class Cuenta {
      * Deposita colones en la cuenta (sin comisión).
      *
      * @param monto cantidad en colones (>0)
+     * @return objeto Transaccion con detalles del depósito
      * @throws IllegalStateException      si la cuenta está inactiva
      * @throws IllegalArgumentException  si monto ≤ 0
      */
-    public void depositar(long monto) {
+    public synchronized Transaccion depositar(long monto) {
+        return depositar(monto, 0, null);
+    }
+
+    /**
+     * Deposita colones convertidos desde dólares y registra el tipo de cambio aplicado.
+     *
+     * @param monto      cantidad en colones (>0)
+     * @param tipoCambio colones por dólar aplicados en la conversión
+     * @param fecha      fecha de la consulta del tipo de cambio
+     * @return objeto Transaccion con detalles del depósito
+     * @throws IllegalStateException    si la cuenta está inactiva
+     * @throws IllegalArgumentException si monto ≤ 0
+     */
+    public synchronized Transaccion depositar(long monto, double tipoCambio, LocalDateTime fecha) {
         if (estatus != EstadoCuenta.ACTIVA) {
             throw new IllegalStateException("Cuenta inactiva");
         }
@@ -110,7 +242,10 @@ public class Cuenta {
             throw new IllegalArgumentException("Monto de depósito debe ser positivo");
         }
         saldo += monto;
-        transacciones.add(new Transaccion(TipoTransaccion.DEPOSITO, monto, false, 0));
+        Transaccion t = new Transaccion(TipoTransaccion.DEPOSITO, monto, false, 0);
+        t.asignarTipoCambio(tipoCambio, fecha);
+        registrar(t);
+        return t;
     }
 
     /**
@@ -122,7 +257,23 @@ public class Cuenta {
      * @throws IllegalArgumentException      si monto ≤ 0
      * @throws SaldoInsuficienteException    si no hay fondos suficientes
      */
-    public Transaccion retirar(long monto) {
+    public synchronized Transaccion retirar(long monto) {
+        return retirar(monto, 0, null);
+    }
+
+    /**
+     * Retira colones equivalentes a un monto en dólares y registra el tipo de
+     * cambio aplicado. La comisión es la misma que en {@link #retirar(long)}.
+     *
+     * @param monto      cantidad en colones (>0)
+     * @param tipoCambio colones por dólar aplicados en la conversión
+     * @param fecha      fecha de la consulta del tipo de cambio
+     * @return objeto Transaccion con detalles del retiro
+     * @throws IllegalStateException         si la cuenta está inactiva
+     * @throws IllegalArgumentException      si monto ≤ 0
+     * @throws SaldoInsuficienteException    si no hay fondos suficientes
+     */
+    public synchronized Transaccion retirar(long monto, double tipoCambio, LocalDateTime fecha) {
         if (estatus != EstadoCuenta.ACTIVA) {
             throw new IllegalStateException("Cuenta inactiva");
         }
@@ -130,7 +281,7 @@ public class Cuenta {
             throw new IllegalArgumentException("Monto de retiro debe ser positivo");
         }
 
-        boolean cobraComision = transacciones.size() >= 5;
+        boolean cobraComision = cantidadTransacciones >= 5;
         long comision = cobraComision ? Math.round(monto * 0.02) : 0L;
         long total = monto + comision;
 
@@ -141,22 +292,52 @@ public class Cuenta {
 
         saldo -= total;
         Transaccion t = new Transaccion(TipoTransaccion.RETIRO, monto, cobraComision, comision);
-        transacciones.add(t);
+        t.asignarTipoCambio(tipoCambio, fecha);
+        registrar(t);
         return t;
     }
 
+    /**
+     * Registra una transacción nueva: actualiza el contador, la deja pendiente de
+     * persistir y la agrega al historial si está cargado.
+     */
+    private void registrar(Transaccion t) {
+        cantidadTransacciones++;
+        acumular(t);
+        pendientes.add(t);
+        if (historialCargado) {
+            transacciones.add(t);
+            indice.agregar(t.getFecha());
+        }
+    }
+
     /**
      * Cambia el PIN de la cuenta tras validar su formato.
      *
      * @param nuevoPin PIN en texto plano
      * @throws PinInvalidoException si el formato es inválido
      */
-    public void cambiarPin(String nuevoPin) {
+    public synchronized void cambiarPin(String nuevoPin) {
         if (!Validacion.validarPin(nuevoPin)) {
             throw new PinInvalidoException("Formato de PIN inválido");
         }
         this.pinCifrado = Cifrado.encrypt(nuevoPin);
         this.intentosRestantes = 3;
+        this.generacionPin++;
+    }
+
+    /**
+     * Vuelve a cifrar el PIN con la versión de clave actual si se cifró con otra.
+     * El PIN no cambia, así que no afecta los intentos ni las sesiones abiertas.
+     *
+     * @return true si el PIN se volvió a cifrar; false si ya usaba la clave actual
+     */
+    public synchronized boolean recifrarPin() {
+        if (!Cifrado.requiereRecifrado(pinCifrado)) {
+            return false;
+        }
+        pinCifrado = Cifrado.recifrar(pinCifrado);
+        return true;
     }
 
     /**
@@ -166,7 +347,7 @@ public class Cuenta {
      * @return saldo en colones
      * @throws PinInvalidoException si el PIN es incorrecto o la cuenta se bloquea
      */
-    public long consultarSaldo(String pinPlano) {
+    public synchronized long consultarSaldo(String pinPlano) {
         if (!verificarPin(pinPlano)) {
             throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
         }
@@ -180,13 +361,99 @@ public class Cuenta {
      * @return lista inmutable de Transaccion
      * @throws PinInvalidoException si el PIN es incorrecto o la cuenta se bloquea
      */
-    public List<Transaccion> consultarTransacciones(String pinPlano) {
+    public synchronized List<Transaccion> consultarTransacciones(String pinPlano) {
         if (!verificarPin(pinPlano)) {
             throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
         }
+        exigirHistorial();
         return List.copyOf(transacciones);
     }
 
+    /**
+     * Devuelve una página del historial tras validar el PIN, de la transacción más
+     * reciente a la más antigua, sin copiar el historial completo.
+     *
+     * @param pinPlano       PIN en texto plano
+     * @param desplazamiento cantidad de transacciones recientes a saltar (≥0)
+     * @param limite         cantidad máxima de transacciones a devolver (>0)
+     * @return lista inmutable con la página
+     * @throws PinInvalidoException     si el PIN es incorrecto o la cuenta se bloquea
+     * @throws IllegalArgumentException si el desplazamiento o el límite son inválidos
+     */
+    public synchronized List<Transaccion> consultarTransacciones(String pinPlano, int desplazamiento, int limite) {
+        if (!verificarPin(pinPlano)) {
+            throw new PinInvalidoException("PIN incorrecto o cuenta bloqueada");
+        }
+        exigirHistorial();
+        return paginaHistorial(null, null, desplazamiento, limite);
+    }
+
+    /**
+     * Devuelve una página del historial en memoria sin validar PIN, de la
+     * transacción más reciente a la más antigua, dentro del rango [desde, hasta).
+     *
+     * @param desde          fecha inicial inclusiva (null para no acotar)
+     * @param hasta          fecha final exclusiva (null para no acotar)
+     * @param desplazamiento cantidad de transacciones recientes a saltar (≥0)
+     * @param limite         cantidad máxima de transacciones a devolver (>0)
+     * @return lista inmutable con la página, o null si el historial no está cargado
+     * @throws IllegalArgumentException si el desplazamiento o el límite son inválidos
+     */
+    public synchronized List<Transaccion> paginaHistorial(LocalDateTime desde,
+                                                          LocalDateTime hasta,
+                                                          int desplazamiento,
+                                                          int limite) {
+        if (desplazamiento < 0 || limite <= 0) {
+            throw new IllegalArgumentException("Página de historial inválida");
+        }
+        if (!historialCargado) {
+            return null;
+        }
+        List<Transaccion> pagina = new ArrayList<>(Math.min(limite, transacciones.size()));
+        if (indice.isOrdenado()) {
+            int inicio = indice.primeraDesde(desde, hasta);
+            for (int i = indice.finAntesDe(hasta) - 1 - desplazamiento; i >= inicio && pagina.size() < limite; i--) {
+                pagina.add(transacciones.get(i));
+            }
+            return List.copyOf(pagina);
+        }
+        int saltadas = 0;
+        for (int i = transacciones.size() - 1; i >= 0 && pagina.size() < limite; i--) {
+            Transaccion t = transacciones.get(i);
+            if (enRango(t.getFecha(), desde, hasta) && saltadas++ >= desplazamiento) {
+                pagina.add(t);
+            }
+        }
+        return List.copyOf(pagina);
+    }
+
+    /**
+     * Devuelve las transacciones del historial en memoria dentro del rango
+     * [desde, hasta), sin validar PIN. El rango se ubica con búsqueda binaria
+     * sobre las fechas, por lo que no recorre el resto del historial.
+     *
+     * @param desde fecha inicial inclusiva (null para no acotar)
+     * @param hasta fecha final exclusiva (null para no acotar)
+     * @return lista inmutable en orden cronológico, o null si el historial no está cargado
+     */
+    public synchronized List<Transaccion> transaccionesPeriodo(LocalDateTime desde, LocalDateTime hasta) {
+        if (!historialCargado) {
+            return null;
+        }
+        if (indice.isOrdenado()) {
+            int inicio = indice.primeraDesde(desde, hasta);
+            int fin = indice.finAntesDe(hasta);
+            return inicio < fin ? List.copyOf(transacciones.subList(inicio, fin)) : List.of();
+        }
+        List<Transaccion> periodo = new ArrayList<>();
+        for (Transaccion t : transacciones) {
+            if (enRango(t.getFecha(), desde, hasta)) {
+                periodo.add(t);
+            }
+        }
+        return List.copyOf(periodo);
+    }
+
     /**
      * Para persistencia: devuelve todas las transacciones sin validar PIN.
      * Este método está destinado a ser utilizado por el subsistema de persistencia
@@ -194,62 +461,264 @@ public class Cuenta {
      *
      * @return Una copia inmutable de la lista de transacciones de la cuenta
      */
-    public List<Transaccion> getTransacciones() {
+    public synchronized List<Transaccion> getTransacciones() {
+        exigirHistorial();
         return transacciones;
     }
 
+    /**
+     * Para persistencia: carga el historial leído del almacenamiento, conservando
+     * las transacciones registradas que aún no se han guardado.
+     *
+     * @param persistidas transacciones leídas del almacenamiento
+     */
+    public synchronized void cargarHistorial(List<Transaccion> persistidas) {
+        transacciones.clear();
+        transacciones.addAll(persistidas);
+        transacciones.addAll(pendientes.subList(pendientesYaPersistidas(persistidas.size()), pendientes.size()));
+        historialCargado = true;
+        indice.limpiar();
+        for (Transaccion t : transacciones) {
+            indice.agregar(t.getFecha());
+        }
+        // Cuentas guardadas antes de existir el contador
+        if (cantidadTransacciones < transacciones.size()) {
+            cantidadTransacciones = transacciones.size();
+        }
+        // Cuentas guardadas antes de existir los totales
+        if (!totalesAlDia) {
+            totalDepositado = totalRetirado = comisionDepositos = comisionRetiros = 0;
+            for (Transaccion t : transacciones) {
+                acumular(t);
+            }
+            totalesAlDia = true;
+        }
+    }
+
+    /**
+     * Para persistencia: libera el historial en memoria. Las transacciones nuevas
+     * se siguen acumulando como pendientes hasta que se guarden.
+     */
+    public synchronized void descargarHistorial() {
+        transacciones.clear();
+        indice.limpiar();
+        historialCargado = false;
+    }
+
+    public synchronized boolean isHistorialCargado() {
+        return historialCargado;
+    }
+
+    /**
+     * Para persistencia: devuelve las transacciones registradas que aún no se han
+     * entregado para guardar. Siguen pendientes, y visibles al cargar el historial,
+     * hasta que se confirme su escritura con {@link #confirmarPendientes(int)}.
+     *
+     * @return lista de transacciones nuevas, en orden
+     */
+    public synchronized List<Transaccion> tomarPendientes() {
+        List<Transaccion> nuevas = List.copyOf(pendientes.subList(pendientesTomadas, pendientes.size()));
+        pendientesTomadas = pendientes.size();
+        return nuevas;
+    }
+
+    /**
+     * Para persistencia: confirma que se escribieron las primeras transacciones
+     * pendientes. Las escrituras se confirman en el mismo orden en que se tomaron.
+     *
+     * @param cantidad cantidad de transacciones escritas
+     */
+    public synchronized void confirmarPendientes(int cantidad) {
+        int n = Math.min(cantidad, pendientes.size());
+        pendientes.subList(0, n).clear();
+        pendientesTomadas = Math.max(pendientesTomadas - n, 0);
+    }
+
+    /**
+     * Para persistencia: indica si hay transacciones pendientes tomadas para una
+     * escritura. Solo esas pueden estar ya en el almacenamiento.
+     */
+    public synchronized boolean hayPendientesTomadas() {
+        return pendientesTomadas > 0;
+    }
+
+    /**
+     * Para persistencia: devuelve las transacciones pendientes del rango [desde, hasta)
+     * que aún no están en el almacenamiento, para completar las consultas que lo leen
+     * sin cargar el historial. Las escritas sin confirmar se descuentan igual que en
+     * {@link #cargarHistorial(List)}.
+     *
+     * @param persistidas cantidad de transacciones en el almacenamiento
+     * @param desde       fecha inicial inclusiva (null para no acotar)
+     * @param hasta       fecha final exclusiva (null para no acotar)
+     * @return lista inmutable en orden cronológico
+     */
+    public synchronized List<Transaccion> pendientesSinPersistir(long persistidas,
+                                                                 LocalDateTime desde,
+                                                                 LocalDateTime hasta) {
+        int repetidas = pendientesYaPersistidas((int) Math.min(persistidas, Integer.MAX_VALUE));
+        List<Transaccion> nuevas = new ArrayList<>();
+        for (Transaccion t : pendientes.subList(repetidas, pendientes.size())) {
+            if (enRango(t.getFecha(), desde, hasta)) {
+                nuevas.add(t);
+            }
+        }
+        return List.copyOf(nuevas);
+    }
+
+    /**
+     * Devuelve una copia del historial si está en memoria, sin validar PIN.
+     *
+     * @return copia inmutable de las transacciones, o null si el historial no está cargado
+     */
+    public synchronized List<Transaccion> copiarHistorial() {
+        return historialCargado ? List.copyOf(transacciones) : null;
+    }
+
+    /**
+     * Cantidad de pendientes que ya están entre las persistidas: las escritas cuya
+     * escritura aún no se confirma. Solo se puede saber con el contador al día.
+     */
+    private int pendientesYaPersistidas(int persistidas) {
+        if (cantidadTransacciones < persistidas) {
+            return 0;
+        }
+        int repetidas = persistidas + pendientes.size() - cantidadTransacciones;
+        return Math.min(Math.max(repetidas, 0), pendientes.size());
+    }
+
+    private static boolean enRango(LocalDateTime fecha, LocalDateTime desde, LocalDateTime hasta) {
+        if (fecha == null) {
+            return desde == null && hasta == null;
+        }
+        return (desde == null || !fecha.isBefore(desde)) && (hasta == null || fecha.isBefore(hasta));
+    }
+
+    private void acumular(Transaccion t) {
+        if (t.getTipo() == TipoTransaccion.DEPOSITO) {
+            totalDepositado += t.getMonto();
+            if (t.isCobroComision()) comisionDepositos += t.getMontoComision();
+        } else {
+            totalRetirado += t.getMonto();
+            if (t.isCobroComision()) comisionRetiros += t.getMontoComision();
+        }
+    }
+
+    private void exigirHistorial() {
+        if (!historialCargado) {
+            throw new IllegalStateException("Historial no cargado para la cuenta " + numeroCuenta);
+        }
+    }
+
     /**
      * Verifica el PIN descifrado y bloquea la cuenta tras 3 intentos fallidos.
      *
      * @param pinPlano PIN en texto plano
      * @return true si el PIN coincide
      */
-    public boolean verificarPin(String pinPlano) {
-        
+    public synchronized boolean verificarPin(String pinPlano) {
         if (estatus == EstadoCuenta.INACTIVA) {
+            Auditoria.registrar("PIN_RECHAZADO", numeroCuenta, "cuenta inactiva");
             return false;
         }
-                System.out.println(pinCifrado);
-
         String actual = Cifrado.decrypt(pinCifrado);
-        
-        System.out.println(actual);
-        System.out.println(pinPlano);
-
         if (actual.equals(pinPlano)) {
             intentosRestantes = 3;
+            Auditoria.registrar("PIN_VERIFICADO", numeroCuenta, null);
             return true;
         }
         if (--intentosRestantes <= 0) {
             estatus = EstadoCuenta.INACTIVA;
+            Auditoria.registrar("CUENTA_BLOQUEADA", numeroCuenta, null);
+        } else {
+            Auditoria.registrar("PIN_FALLIDO", numeroCuenta, "intentosRestantes=" + intentosRestantes);
         }
         return false;
     }
 
-    public String obtenerEstado() {
-        long totalDeposito = 0, totalRetiro = 0;
-        long comisionDeposito = 0, comisionRetiro = 0;
-
-        for (Transaccion t : transacciones) {
-            if (t.getTipo() == TipoTransaccion.DEPOSITO) {
-                totalDeposito += t.getMonto();
-                if (t.isCobroComision()) comisionDeposito += t.getMontoComision();
-            } else {
-                totalRetiro += t.getMonto();
-                if (t.isCobroComision()) comisionRetiro += t.getMontoComision();
-            }
+    /**
+     * Arma el estado de cuenta a partir de los totales acumulados, sin recorrer el historial.
+     *
+     * @return texto con el estatus, el PIN cifrado y los totales de la cuenta
+     * @throws IllegalStateException si la cuenta viene de un archivo sin totales y
+     *                               su historial aún no se ha cargado
+     */
+    public synchronized String obtenerEstado() {
+        if (!totalesAlDia) {
+            exigirHistorial();
         }
-
         return "Estatus: " + estatus + "\n" +
                "PIN (cifrado): " + pinCifrado + "\n\n" +
-               "Total depositado: " + totalDeposito + " ₡\n" +
-               "Total retiros: " + totalRetiro + " ₡\n\n" +
-               "Comisión depósitos: " + comisionDeposito + " ₡\n" +
-               "Comisión retiros: " + comisionRetiro + " ₡\n" +
-               "Total comisiones: " + (comisionDeposito + comisionRetiro) + " ₡\n";
+               "Total depositado: " + totalDepositado + " ₡\n" +
+               "Total retiros: " + totalRetirado + " ₡\n\n" +
+               "Comisión depósitos: " + comisionDepositos + " ₡\n" +
+               "Comisión retiros: " + comisionRetiros + " ₡\n" +
+               "Total comisiones: " + (comisionDepositos + comisionRetiros) + " ₡\n";
     }
 
-    public String getPinCifrado() {
+    public synchronized String getPinCifrado() {
         return pinCifrado;
     }
+
+    /**
+     * Obtiene un contador que aumenta cada vez que se cambia el PIN.
+     *
+     * @return Generación del PIN
+     */
+    public synchronized int getGeneracionPin() {
+        return generacionPin;
+    }
+
+    /**
+     * Para persistencia: devuelve el saldo sin validar PIN.
+     *
+     * @return saldo en colones
+     */
+    public synchronized long getSaldo() {
+        return saldo;
+    }
+
+    /**
+     * Para persistencia: devuelve los intentos de PIN restantes.
+     *
+     * @return intentos restantes antes del bloqueo
+     */
+    public synchronized int getIntentosRestantes() {
+        return intentosRestantes;
+    }
+
+    /**
+     * Devuelve la cantidad total de transacciones registradas, esté o no cargado el historial.
+     *
+     * @return cantidad de transacciones
+     */
+    public synchronized int getCantidadTransacciones() {
+        return cantidadTransacciones;
+    }
+
+    /**
+     * Indica si los totales acumulados reflejan todo el historial. Solo es falso
+     * en cuentas leídas de archivos anteriores a los totales, hasta cargar su historial.
+     *
+     * @return true si los totales están al día
+     */
+    public synchronized boolean isTotalesAlDia() {
+        return totalesAlDia;
+    }
+
+    public synchronized long getTotalDepositado() {
+        return totalDepositado;
+    }
+
+    public synchronized long getTotalRetirado() {
+        return totalRetirado;
+    }
+
+    public synchronized long getComisionDepositos() {
+        return comisionDepositos;
+    }
+
+    public synchronized long getComisionRetiros() {
+        return comisionRetiros;
+    }
 }
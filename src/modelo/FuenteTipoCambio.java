@@ -0,0 +1,17 @@
+package modelo;
+
+/**
+ * Origen remoto del tipo de cambio (el servicio web del BCCR o un simulador).
+ * Cada llamada es una consulta real; el cache está en {@link ProveedorTipoCambio}.
+ */
+@FunctionalInterface
+public interface FuenteTipoCambio {
+
+    /**
+     * Consulta el tipo de cambio vigente.
+     *
+     * @return Tipos de compra y venta con la fecha de la consulta
+     * @throws Exception Si la consulta falla
+     */
+    TipoCambio consultar() throws Exception;
+}
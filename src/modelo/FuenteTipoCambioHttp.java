@@ -0,0 +1,63 @@
+package modelo;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Fuente de tipo de cambio que consulta un servicio HTTP con respuestas de texto
+ * "compra=&lt;valor&gt;" y "venta=&lt;valor&gt;" en líneas separadas, el mismo
+ * formato de la ruta /tipo-cambio del servidor del cajero.
+ */
+public class FuenteTipoCambioHttp implements FuenteTipoCambio {
+    private final HttpClient cliente;
+    private final URI uri;
+    private final Duration timeout;
+
+    /**
+     * Crea la fuente.
+     *
+     * @param uri           Dirección completa del servicio
+     * @param timeoutMillis Tiempo máximo de conexión y de respuesta
+     */
+    public FuenteTipoCambioHttp(URI uri, long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("El tiempo máximo debe ser positivo");
+        }
+        this.uri = uri;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.cliente = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public TipoCambio consultar() throws Exception {
+        HttpRequest solicitud = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+        HttpResponse<String> respuesta = cliente.send(solicitud, HttpResponse.BodyHandlers.ofString());
+        if (respuesta.statusCode() != 200) {
+            throw new IOException("El servicio de tipo de cambio respondió " + respuesta.statusCode());
+        }
+        Double compra = null;
+        Double venta = null;
+        for (String linea : respuesta.body().split("\n")) {
+            int igual = linea.indexOf('=');
+            if (igual < 0) {
+                continue;
+            }
+            String nombre = linea.substring(0, igual).trim();
+            double valor = Double.parseDouble(linea.substring(igual + 1).trim());
+            if (nombre.equals("compra")) {
+                compra = valor;
+            } else if (nombre.equals("venta")) {
+                venta = valor;
+            }
+        }
+        if (compra == null || venta == null) {
+            throw new IOException("Respuesta de tipo de cambio incompleta");
+        }
+        return new TipoCambio(compra, venta, LocalDateTime.now());
+    }
+}
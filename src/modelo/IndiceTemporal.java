@@ -0,0 +1,125 @@
+package modelo;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Índice por fecha del historial de una cuenta: guarda la marca de tiempo de cada
+ * transacción en el mismo orden del historial, de modo que un rango de fechas se
+ * ubica con dos búsquedas binarias en lugar de recorrer la lista.
+ *
+ * El historial se agrega en orden cronológico, así que el índice se mantiene
+ * ordenado sin reordenar. Las transacciones sin fecha de los archivos antiguos
+ * están todas al principio del historial: el índice empieza después de ellas y
+ * recuerda cuántas son. Si llega una fecha nula después de una fechada, o una
+ * anterior a la última (por ejemplo, un ajuste del reloj), el índice deja de ser
+ * utilizable hasta reconstruirse y las consultas deben recorrer el historial.
+ */
+final class IndiceTemporal {
+    private long[] marcas = new long[16];
+    private int tamano = 0;
+    private int sinFecha = 0;
+    private boolean ordenado = true;
+
+    /**
+     * Vacía el índice.
+     */
+    void limpiar() {
+        tamano = 0;
+        sinFecha = 0;
+        ordenado = true;
+    }
+
+    /**
+     * Agrega la fecha de la siguiente transacción del historial.
+     *
+     * @param fecha Fecha de la transacción (puede ser null)
+     */
+    void agregar(LocalDateTime fecha) {
+        if (!ordenado) {
+            return;
+        }
+        if (fecha == null) {
+            if (tamano == 0) {
+                sinFecha++;
+            } else {
+                ordenado = false;
+            }
+            return;
+        }
+        long marca = marca(fecha);
+        if (tamano > 0 && marca < marcas[tamano - 1]) {
+            ordenado = false;
+            return;
+        }
+        if (tamano == marcas.length) {
+            marcas = Arrays.copyOf(marcas, tamano * 2);
+        }
+        marcas[tamano++] = marca;
+    }
+
+    /**
+     * Indica si el índice puede usarse para ubicar rangos.
+     *
+     * @return true si las fechas agregadas, después de las nulas iniciales, son no nulas y no decrecientes
+     */
+    boolean isOrdenado() {
+        return ordenado;
+    }
+
+    /**
+     * Posición de la primera transacción del rango [desde, hasta). Las transacciones
+     * sin fecha solo entran en un rango sin acotar.
+     *
+     * @param desde Fecha inicial inclusiva (null para no acotar)
+     * @param hasta Fecha final exclusiva (null para no acotar)
+     * @return Índice en el historial, entre 0 y la cantidad de transacciones
+     */
+    int primeraDesde(LocalDateTime desde, LocalDateTime hasta) {
+        if (desde == null) {
+            return hasta == null ? 0 : sinFecha;
+        }
+        return sinFecha + buscar(marca(desde));
+    }
+
+    /**
+     * Posición siguiente a la última transacción con fecha anterior a la dada.
+     *
+     * @param fecha Fecha límite exclusiva (null para el final del historial)
+     * @return Índice en el historial, entre 0 y la cantidad de transacciones
+     */
+    int finAntesDe(LocalDateTime fecha) {
+        return sinFecha + (fecha == null ? tamano : buscar(marca(fecha)));
+    }
+
+    // — Helpers privados —
+
+    /**
+     * Posición entre las marcas de la primera igual o posterior a la buscada.
+     */
+    private int buscar(long buscada) {
+        int bajo = 0;
+        int alto = tamano;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (marcas[medio] < buscada) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private static long marca(LocalDateTime fecha) {
+        // Nanosegundos desde epoch; fuera de los años 1677-2262 se satura, lo que
+        // basta para fechas límite de consulta como LocalDateTime.MIN o MAX
+        long segundos = fecha.toEpochSecond(ZoneOffset.UTC);
+        try {
+            return Math.addExact(Math.multiplyExact(segundos, 1_000_000_000L), fecha.getNano());
+        } catch (ArithmeticException e) {
+            return segundos < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package modelo;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Cache del tipo de cambio con refresco en segundo plano, para que las
+ * operaciones en dólares no esperen una llamada remota.
+ *
+ * Un hilo programado vuelve a consultar la fuente cada la mitad del TTL, así que
+ * normalmente el valor en memoria está vigente. Si el valor ya pasó su TTL pero
+ * sigue dentro de la ventana de obsolescencia, se usa igual y se pide un refresco
+ * en segundo plano (stale-while-revalidate). Solo cuando no hay valor o ya pasó
+ * también esa ventana, quien consulta espera a la fuente; varias consultas
+ * simultáneas en ese caso hacen una sola llamada.
+ *
+ * Si la fuente falla en segundo plano se conserva el último valor; si falla en
+ * una consulta que debe esperarla, se lanza {@link WebServiceException}.
+ */
+public class ProveedorTipoCambio {
+
+    /**
+     * Valor en cache con el momento (System.nanoTime) en que se obtuvo.
+     */
+    private static final class Entrada {
+        private final TipoCambio tipoCambio;
+        private final long obtenidoNanos;
+
+        private Entrada(TipoCambio tipoCambio) {
+            this.tipoCambio = tipoCambio;
+            this.obtenidoNanos = System.nanoTime();
+        }
+    }
+
+    private final FuenteTipoCambio fuente;
+    private final long ttlNanos;
+    private final long obsoletoNanos;
+    private final ScheduledExecutorService programador;
+    private final AtomicBoolean refrescando = new AtomicBoolean();
+    private final Object consultaDirecta = new Object();
+    private volatile Entrada entrada;
+
+    private final LongAdder consultasFuente = new LongAdder();
+    private final LongAdder fallosFuente = new LongAdder();
+    private final LongAdder servidosObsoletos = new LongAdder();
+
+    /**
+     * Crea el proveedor. El refresco periódico empieza con {@link #iniciar()}.
+     *
+     * @param fuente         Origen remoto del tipo de cambio
+     * @param ttlMillis      Tiempo durante el cual un valor se considera vigente
+     * @param obsoletoMillis Tiempo adicional durante el cual un valor vencido aún se
+     *                       usa mientras se refresca en segundo plano (0 para no usarlo)
+     */
+    public ProveedorTipoCambio(FuenteTipoCambio fuente, long ttlMillis, long obsoletoMillis) {
+        if (ttlMillis <= 0 || obsoletoMillis < 0) {
+            throw new IllegalArgumentException("Tiempos de vigencia del tipo de cambio inválidos");
+        }
+        this.fuente = fuente;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.obsoletoNanos = TimeUnit.MILLISECONDS.toNanos(obsoletoMillis);
+        this.programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tipo-cambio");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Inicia el refresco periódico, con una primera consulta inmediata.
+     */
+    public void iniciar() {
+        long periodo = Math.max(ttlNanos / 2, 1);
+        programador.scheduleWithFixedDelay(this::refrescar, 0, periodo, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Detiene el refresco en segundo plano.
+     */
+    public void cerrar() {
+        programador.shutdownNow();
+    }
+
+    /**
+     * Obtiene el tipo de cambio en cache, o lo consulta si no hay uno utilizable.
+     *
+     * @return Tipo de cambio vigente o, dentro de la ventana de obsolescencia, el último obtenido
+     * @throws WebServiceException Si hubo que consultar la fuente y la consulta falló
+     */
+    public TipoCambio actual() {
+        Entrada e = entrada;
+        if (e != null) {
+            long edad = System.nanoTime() - e.obtenidoNanos;
+            if (edad < ttlNanos) {
+                return e.tipoCambio;
+            }
+            if (edad - ttlNanos < obsoletoNanos) {
+                servidosObsoletos.increment();
+                refrescarEnSegundoPlano();
+                return e.tipoCambio;
+            }
+        }
+        return consultarDirecto();
+    }
+
+    /**
+     * Obtiene la cantidad de consultas exitosas a la fuente.
+     *
+     * @return Consultas a la fuente
+     */
+    public long getConsultasFuente() {
+        return consultasFuente.sum();
+    }
+
+    public long getFallosFuente() {
+        return fallosFuente.sum();
+    }
+
+    /**
+     * Obtiene la cantidad de veces que se entregó un valor vencido mientras se refrescaba.
+     *
+     * @return Valores obsoletos entregados
+     */
+    public long getServidosObsoletos() {
+        return servidosObsoletos.sum();
+    }
+
+    // — Helpers privados —
+
+    private TipoCambio consultarDirecto() {
+        synchronized (consultaDirecta) {
+            // Otra consulta pudo haberlo obtenido mientras se esperaba el cerrojo
+            Entrada e = entrada;
+            if (e != null && System.nanoTime() - e.obtenidoNanos < ttlNanos) {
+                return e.tipoCambio;
+            }
+            try {
+                return guardar(fuente.consultar());
+            } catch (Exception ex) {
+                fallosFuente.increment();
+                throw new WebServiceException("No se pudo obtener el tipo de cambio", ex);
+            }
+        }
+    }
+
+    private void refrescarEnSegundoPlano() {
+        if (refrescando.compareAndSet(false, true)) {
+            try {
+                programador.execute(() -> {
+                    try {
+                        refrescar();
+                    } finally {
+                        refrescando.set(false);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                // Proveedor cerrado: se sigue usando el valor en cache
+                refrescando.set(false);
+            }
+        }
+    }
+
+    private void refrescar() {
+        try {
+            guardar(fuente.consultar());
+        } catch (Exception ex) {
+            // Se conserva el último valor; las consultas lo usarán mientras sea utilizable
+            fallosFuente.increment();
+        }
+    }
+
+    private TipoCambio guardar(TipoCambio tipoCambio) {
+        entrada = new Entrada(tipoCambio);
+        consultasFuente.increment();
+        return tipoCambio;
+    }
+}
@@ -1,17 +1,41 @@
 package modelo;
 
+import java.time.LocalDateTime;
 import javax.xml.ws.WebServiceException;
 
 /**
  * Cliente simulado para el servicio web del Banco Central de Costa Rica (BCCR).
  * Proporciona tipos de cambio de compra y venta. En producción, reemplazar
- * la implementación por una llamada real al web service público del BCCR.
+ * la fuente simulada por una llamada real al web service público del BCCR.
+ *
+ * Las consultas se atienden desde un {@link ProveedorTipoCambio} que mantiene el
+ * valor en memoria y lo refresca en segundo plano, de modo que una operación no
+ * espera al servicio remoto. Por defecto usa la fuente simulada; con
+ * {@link #configurar(ProveedorTipoCambio)} se cambia por otra (por ejemplo,
+ * {@link FuenteTipoCambioHttp} contra un simulador local).
  */
 public final class ServicioBCCR {
+    private static final double COMPRA_SIMULADA = 610.50;
+    private static final double VENTA_SIMULADA = 600.75;
+    private static final long TTL_MILLIS = 60_000;
+    private static final long OBSOLETO_MILLIS = 5 * 60_000;
+
+    private static volatile ProveedorTipoCambio proveedor;
+
     private ServicioBCCR() {
         // No se instancia
     }
 
+    /**
+     * Obtiene los tipos de cambio de compra y venta de una misma consulta.
+     *
+     * @return tipo de cambio en cache
+     * @throws WebServiceException si no hay un valor utilizable y falla la llamada al servicio
+     */
+    public static TipoCambio getTipoCambio() {
+        return proveedor().actual();
+    }
+
     /**
      * Obtiene el tipo de cambio de compra del dólar en colones.
      *
@@ -19,8 +43,7 @@ public final class ServicioBCCR {
      * @throws WebServiceException si falla la llamada al servicio
      */
     public static double getTipoCompra() {
-        // TODO: implementar llamada real al web service del BCCR
-        return 610.50;
+        return getTipoCambio().getCompra();
     }
 
     /**
@@ -30,7 +53,47 @@ public final class ServicioBCCR {
      * @throws WebServiceException si falla la llamada al servicio
      */
     public static double getTipoVenta() {
+        return getTipoCambio().getVenta();
+    }
+
+    /**
+     * Reemplaza el proveedor de tipo de cambio y detiene el anterior. El proveedor
+     * nuevo debe estar iniciado si se quiere refresco periódico.
+     *
+     * @param nuevo Proveedor a usar
+     */
+    public static synchronized void configurar(ProveedorTipoCambio nuevo) {
+        ProveedorTipoCambio anterior = proveedor;
+        proveedor = nuevo;
+        if (anterior != null && anterior != nuevo) {
+            anterior.cerrar();
+        }
+    }
+
+    /**
+     * Fuente simulada con tipos fijos.
+     *
+     * @return tipo de cambio simulado
+     */
+    public static TipoCambio consultarSimulado() {
         // TODO: implementar llamada real al web service del BCCR
-        return 600.75;
+        return new TipoCambio(COMPRA_SIMULADA, VENTA_SIMULADA, LocalDateTime.now());
+    }
+
+    // — Helpers privados —
+
+    private static ProveedorTipoCambio proveedor() {
+        ProveedorTipoCambio p = proveedor;
+        if (p == null) {
+            synchronized (ServicioBCCR.class) {
+                p = proveedor;
+                if (p == null) {
+                    p = new ProveedorTipoCambio(ServicioBCCR::consultarSimulado, TTL_MILLIS, OBSOLETO_MILLIS);
+                    p.iniciar();
+                    proveedor = p;
+                }
+            }
+        }
+        return p;
     }
 }
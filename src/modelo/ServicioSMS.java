@@ -1,24 +1,41 @@
 package modelo;
 
 import java.util.Random;
+import util.Auditoria;
 
 /**
- * Servicio simulado para envío de códigos SMS.
- * Genera palabras aleatorias de 3 a 7 letras mayúsculas.
- * En producción, reemplazar este stub por integración real
- * con una API de envío de SMS.
+ * Servicio para envío de códigos SMS.
+ * Genera palabras aleatorias de 3 a 7 letras mayúsculas y las entrega por un
+ * {@link CanalSMS}. Mientras no se configure un canal los mensajes no salen: en
+ * producción se configura el canal de la API de envío de SMS, y el simulador
+ * {@link CanalSMSConsola} solo se activa explícitamente, porque escribe el código
+ * en la consola.
  */
 public final class ServicioSMS {
     private static final Random RAND = new Random();
     private static final String ABECEDARIO = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
 
+    private static volatile CanalSMS canal = (telefono, mensaje) -> { };
+
     // Constructor privado para evitar instanciación
     private ServicioSMS() { }
 
     /**
-     * Simula el envío de un código secreto por SMS.
+     * Reemplaza el canal por el que se entregan los SMS.
      *
-     * @param telefono número de teléfono destino (para registro o logging)
+     * @param nuevo Canal a usar
+     */
+    public static void configurar(CanalSMS nuevo) {
+        if (nuevo == null) {
+            throw new IllegalArgumentException("El canal de SMS es obligatorio");
+        }
+        canal = nuevo;
+    }
+
+    /**
+     * Envía un código secreto por SMS.
+     *
+     * @param telefono número de teléfono destino
      * @return la palabra generada (3 a 7 letras mayúsculas)
      */
     public static String enviarCodigo(String telefono) {
@@ -27,8 +44,18 @@ public final class ServicioSMS {
         for (int i = 0; i < longitud; i++) {
             sb.append(ABECEDARIO.charAt(RAND.nextInt(ABECEDARIO.length())));
         }
-        // Simulación de envío; en real se llamaría a la API externa:
-        System.out.printf("Enviando SMS a %s: código=%s%n", telefono, sb);
+        // El código solo va por el canal; la auditoría no lo guarda
+        canal.enviar(telefono, "Su código de verificación es " + sb);
+        Auditoria.registrar("SMS_ENVIADO", null, "telefono=" + enmascarar(telefono));
         return sb.toString();
     }
+
+    // — Helpers privados —
+
+    private static String enmascarar(String telefono) {
+        if (telefono == null || telefono.length() <= 4) {
+            return "****";
+        }
+        return "****" + telefono.substring(telefono.length() - 4);
+    }
 }
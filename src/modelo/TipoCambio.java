@@ -0,0 +1,48 @@
+package modelo;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tipos de cambio de compra y venta del dólar obtenidos en una misma consulta.
+ * Las operaciones en dólares usan una sola instancia para convertir y para
+ * registrar el tipo aplicado, de modo que ambos coincidan.
+ */
+public final class TipoCambio {
+    private final double compra;
+    private final double venta;
+    private final LocalDateTime fecha;
+
+    /**
+     * Crea el tipo de cambio.
+     *
+     * @param compra Colones por dólar al comprar dólares al cliente
+     * @param venta  Colones por dólar al venderle dólares al cliente
+     * @param fecha  Momento en que se consultó a la fuente
+     * @throws IllegalArgumentException si algún tipo no es positivo
+     */
+    public TipoCambio(double compra, double venta, LocalDateTime fecha) {
+        if (!(compra > 0) || !(venta > 0)) {
+            throw new IllegalArgumentException("Tipo de cambio inválido: compra=" + compra + ", venta=" + venta);
+        }
+        this.compra = compra;
+        this.venta = venta;
+        this.fecha = fecha;
+    }
+
+    public double getCompra() {
+        return compra;
+    }
+
+    public double getVenta() {
+        return venta;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TipoCambio[compra=%.2f, venta=%.2f, fecha=%s]", compra, venta, fecha);
+    }
+}
@@ -1,6 +1,8 @@
 package modelo;
 
 import java.time.LocalDateTime;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 import util.LocalDateTimeAdapter;
@@ -10,6 +12,7 @@ import util.LocalDateTimeAdapter;
  * depósito, retiro o transferencia, con posible comisión.
  */
 @XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
 public class Transaccion {
     private TipoTransaccion tipo;
     private long monto;               // Monto en colones (o equivalente en colones)
@@ -17,6 +20,9 @@ public class Transaccion {
     private LocalDateTime fecha;
     private boolean cobroComision;
     private long montoComision;       // 0 si no hubo cobro
+    private double tipoCambio;        // Colones por dólar aplicados; 0 si fue en colones
+    @XmlJavaTypeAdapter(LocalDateTimeAdapter.class)
+    private LocalDateTime fechaTipoCambio;
 
     
     public Transaccion() {
@@ -50,6 +56,68 @@ public class Transaccion {
         this.fecha = LocalDateTime.now();
     }
 
+    /**
+     * Para persistencia: reconstruye una transacción almacenada con su fecha original,
+     * sin volver a validar los montos (los archivos antiguos pueden no tenerlos).
+     *
+     * @param tipo            tipo de transacción
+     * @param monto           monto principal (en colones)
+     * @param cobroComision   true si se aplicó comisión
+     * @param montoComision   monto de la comisión
+     * @param fecha           fecha en que se registró la transacción
+     * @return la transacción reconstruida
+     */
+    public static Transaccion restaurar(TipoTransaccion tipo,
+                                        long monto,
+                                        boolean cobroComision,
+                                        long montoComision,
+                                        LocalDateTime fecha) {
+        Transaccion t = new Transaccion();
+        t.tipo = tipo;
+        t.monto = monto;
+        t.cobroComision = cobroComision;
+        t.montoComision = montoComision;
+        t.fecha = fecha;
+        return t;
+    }
+
+    /**
+     * Para persistencia: reconstruye una transacción en dólares con el tipo de
+     * cambio que se aplicó.
+     *
+     * @param tipo            tipo de transacción
+     * @param monto           monto principal (en colones)
+     * @param cobroComision   true si se aplicó comisión
+     * @param montoComision   monto de la comisión
+     * @param fecha           fecha en que se registró la transacción
+     * @param tipoCambio      colones por dólar aplicados (0 si fue en colones)
+     * @param fechaTipoCambio fecha de la consulta del tipo de cambio
+     * @return la transacción reconstruida
+     */
+    public static Transaccion restaurar(TipoTransaccion tipo,
+                                        long monto,
+                                        boolean cobroComision,
+                                        long montoComision,
+                                        LocalDateTime fecha,
+                                        double tipoCambio,
+                                        LocalDateTime fechaTipoCambio) {
+        Transaccion t = restaurar(tipo, monto, cobroComision, montoComision, fecha);
+        t.tipoCambio = tipoCambio;
+        t.fechaTipoCambio = fechaTipoCambio;
+        return t;
+    }
+
+    /**
+     * Registra el tipo de cambio con que se convirtió el monto.
+     *
+     * @param tipoCambio colones por dólar aplicados
+     * @param fecha      fecha de la consulta del tipo de cambio
+     */
+    void asignarTipoCambio(double tipoCambio, LocalDateTime fecha) {
+        this.tipoCambio = tipoCambio;
+        this.fechaTipoCambio = fecha;
+    }
+
     public TipoTransaccion getTipo() {
         return tipo;
     }
@@ -70,11 +138,25 @@ public class Transaccion {
         return montoComision;
     }
 
+    /**
+     * Obtiene el tipo de cambio aplicado en una operación en dólares.
+     *
+     * @return colones por dólar, o 0 si la operación fue en colones
+     */
+    public double getTipoCambio() {
+        return tipoCambio;
+    }
+
+    public LocalDateTime getFechaTipoCambio() {
+        return fechaTipoCambio;
+    }
+
     @Override
     public String toString() {
         return String.format(
-            "Transaccion[tipo=%s, monto=%d, fecha=%s, comision=%s(%d)]",
-            tipo, monto, fecha, cobroComision ? "sí" : "no", montoComision
+            "Transaccion[tipo=%s, monto=%d, fecha=%s, comision=%s(%d)%s]",
+            tipo, monto, fecha, cobroComision ? "sí" : "no", montoComision,
+            tipoCambio > 0 ? String.format(", tipoCambio=%.2f(%s)", tipoCambio, fechaTipoCambio) : ""
         );
     }
 }
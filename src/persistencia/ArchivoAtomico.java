@@ -0,0 +1,57 @@
+package persistencia;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reemplazo atómico de archivos: el contenido se escribe en un archivo temporal
+ * del mismo directorio, se sincroniza a disco y luego se renombra sobre el destino.
+ * Una caída a mitad de la escritura deja intacta la versión anterior.
+ */
+final class ArchivoAtomico {
+
+    /**
+     * Escribe el contenido de un archivo a partir de su ruta temporal.
+     */
+    @FunctionalInterface
+    interface Escritura {
+        void escribir(File temporal) throws Exception;
+    }
+
+    private ArchivoAtomico() { }
+
+    /**
+     * Reemplaza el destino con el contenido producido por la escritura.
+     *
+     * @param destino  Archivo final
+     * @param escritura Acción que escribe el contenido completo en el temporal recibido
+     * @throws Exception Si falla la escritura o el reemplazo; el destino queda sin cambios
+     */
+    static void reemplazar(File destino, Escritura escritura) throws Exception {
+        File directorio = destino.getAbsoluteFile().getParentFile();
+        Path temporal = Files.createTempFile(directorio.toPath(), destino.getName() + ".", ".tmp");
+        try {
+            escritura.escribir(temporal.toFile());
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                canal.force(true);
+            }
+            mover(temporal, destino.toPath());
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private static void mover(Path origen, Path destino) throws IOException {
+        try {
+            Files.move(origen, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(origen, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package persistencia;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Etapa de commit grupal para un archivo de solo escritura al final.
+ * Las operaciones que llegan dentro de una ventana de tiempo (o hasta un máximo
+ * de operaciones) se escriben en un solo lote con un único fsync, y luego se
+ * completa a todos los llamadores que esperaban.
+ */
+public class CommitGrupal {
+    private final File archivo;
+    private final long ventanaNanos;
+    private final int maxOperaciones;
+    private final LinkedBlockingQueue<Pendiente> cola = new LinkedBlockingQueue<>();
+    private final Thread escritor;
+    private volatile boolean activo = true;
+
+    // Ordena encolar() con el cierre: nada entra a la cola después de la marca final
+    private final Object entrada = new Object();
+
+    // Estadísticas para ajustar la ventana
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong operaciones = new AtomicLong();
+    private final AtomicLong loteMaximo = new AtomicLong();
+    private final AtomicLong latenciaTotalNanos = new AtomicLong();
+    private final AtomicLong latenciaMaximaNanos = new AtomicLong();
+
+    /**
+     * Operación encolada a la espera del siguiente lote.
+     */
+    private static final class Pendiente {
+        private final List<String> registros;
+        private final CompletableFuture<Void> resultado = new CompletableFuture<>();
+        private final long encolada = System.nanoTime();
+
+        private Pendiente(List<String> registros) {
+            this.registros = registros;
+        }
+    }
+
+    /**
+     * Crea la etapa de commit grupal e inicia su hilo escritor.
+     *
+     * @param archivo        Archivo al que se agregan los registros
+     * @param ventanaMillis  Tiempo máximo que se espera para juntar operaciones en un lote
+     * @param maxOperaciones Cantidad de operaciones que cierra un lote antes de la ventana
+     */
+    public CommitGrupal(File archivo, long ventanaMillis, int maxOperaciones) {
+        if (ventanaMillis < 0 || maxOperaciones <= 0) {
+            throw new IllegalArgumentException("Ventana o tamaño de lote inválido");
+        }
+        this.archivo = archivo;
+        this.ventanaNanos = TimeUnit.MILLISECONDS.toNanos(ventanaMillis);
+        this.maxOperaciones = maxOperaciones;
+        this.escritor = new Thread(this::ciclo, "commit-grupal");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Encola registros para el siguiente lote.
+     *
+     * @param registros Líneas a agregar al archivo
+     * @return Futuro que se completa cuando los registros están sincronizados en disco
+     */
+    public CompletableFuture<Void> encolar(List<String> registros) {
+        Pendiente p = new Pendiente(registros);
+        synchronized (entrada) {
+            if (!activo) {
+                throw new IllegalStateException("El commit grupal está detenido");
+            }
+            cola.add(p);
+        }
+        return p.resultado;
+    }
+
+    /**
+     * Espera a que todas las operaciones encoladas hasta ahora estén en disco.
+     *
+     * @throws Exception Si la escritura de alguna de ellas falla
+     */
+    public void vaciar() throws Exception {
+        esperar(encolar(List.of()));
+    }
+
+    /**
+     * Vacía la cola y detiene el hilo escritor. Las operaciones encoladas después
+     * del cierre se rechazan de inmediato.
+     *
+     * @throws Exception Si la escritura pendiente falla
+     */
+    public void cerrar() throws Exception {
+        Pendiente ultima = new Pendiente(List.of());
+        synchronized (entrada) {
+            if (!activo) {
+                throw new IllegalStateException("El commit grupal está detenido");
+            }
+            activo = false;
+            cola.add(ultima);
+        }
+        try {
+            esperar(ultima.resultado);
+        } finally {
+            escritor.interrupt();
+        }
+    }
+
+    /**
+     * Espera un futuro devuelto por {@link #encolar(List)} y relanza la causa si falló.
+     *
+     * @param futuro Futuro a esperar
+     * @throws Exception La causa original si la escritura falló
+     */
+    public static void esperar(CompletableFuture<Void> futuro) throws Exception {
+        try {
+            futuro.get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof Exception) {
+                throw (Exception) causa;
+            }
+            throw e;
+        }
+    }
+
+    public long getLotes() {
+        return lotes.get();
+    }
+
+    public long getOperaciones() {
+        return operaciones.get();
+    }
+
+    public long getLoteMaximo() {
+        return loteMaximo.get();
+    }
+
+    public double getTamanoPromedioLote() {
+        long l = lotes.get();
+        return l == 0 ? 0 : (double) operaciones.get() / l;
+    }
+
+    public double getLatenciaPromedioMillis() {
+        long o = operaciones.get();
+        return o == 0 ? 0 : latenciaTotalNanos.get() / 1_000_000.0 / o;
+    }
+
+    public double getLatenciaMaximaMillis() {
+        return latenciaMaximaNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "CommitGrupal[lotes=%d, operaciones=%d, lotePromedio=%.2f, loteMax=%d, latenciaProm=%.3fms, latenciaMax=%.3fms]",
+            getLotes(), getOperaciones(), getTamanoPromedioLote(), getLoteMaximo(),
+            getLatenciaPromedioMillis(), getLatenciaMaximaMillis()
+        );
+    }
+
+    // — Helpers privados —
+
+    private void ciclo() {
+        List<Pendiente> lote = new ArrayList<>();
+        while (activo || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.take();
+                lote.add(primero);
+                long limite = System.nanoTime() + ventanaNanos;
+                while (lote.size() < maxOperaciones) {
+                    long restante = limite - System.nanoTime();
+                    Pendiente p = restante > 0
+                        ? cola.poll(restante, TimeUnit.NANOSECONDS)
+                        : cola.poll();
+                    if (p == null) {
+                        break;
+                    }
+                    lote.add(p);
+                }
+            } catch (InterruptedException e) {
+                if (lote.isEmpty()) {
+                    continue;
+                }
+            }
+            confirmar(lote);
+            lote.clear();
+        }
+    }
+
+    /**
+     * Escribe el lote completo con un único fsync y completa a sus llamadores.
+     */
+    private void confirmar(List<Pendiente> lote) {
+        try {
+            escribir(lote);
+        } catch (IOException e) {
+            for (Pendiente p : lote) {
+                p.resultado.completeExceptionally(e);
+            }
+            return;
+        }
+        long ahora = System.nanoTime();
+        int tamano = 0;
+        for (Pendiente p : lote) {
+            // Las marcas vacías de vaciar() no cuentan en las estadísticas
+            if (!p.registros.isEmpty()) {
+                long latencia = ahora - p.encolada;
+                latenciaTotalNanos.addAndGet(latencia);
+                latenciaMaximaNanos.accumulateAndGet(latencia, Math::max);
+                tamano++;
+            }
+        }
+        if (tamano > 0) {
+            lotes.incrementAndGet();
+            operaciones.addAndGet(tamano);
+            loteMaximo.accumulateAndGet(tamano, Math::max);
+        }
+        for (Pendiente p : lote) {
+            p.resultado.complete(null);
+        }
+    }
+
+    private void escribir(List<Pendiente> lote) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Pendiente p : lote) {
+            for (String r : p.registros) {
+                sb.append(r).append('\n');
+            }
+        }
+        if (sb.length() == 0) {
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(archivo, true)) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.getChannel().force(false);
+        }
+    }
+}
@@ -3,7 +3,12 @@ package persistencia;
 import modelo.Cliente;
 import modelo.Cuenta;
 import modelo.Transaccion;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Contrato de persistencia para clientes, cuentas y transacciones.
@@ -22,5 +27,117 @@ public interface Persistencia {
 
     void guardarTransacciones(String numeroCuenta, List<Transaccion> transacciones) throws Exception;
 
+    /**
+     * Agrega transacciones nuevas al historial de una cuenta. Por defecto lee y
+     * reescribe el historial completo; las implementaciones que puedan agregar
+     * al final sin leerlo deben sobrescribirlo.
+     */
+    default void agregarTransacciones(String numeroCuenta, List<Transaccion> nuevas) throws Exception {
+        if (nuevas.isEmpty()) {
+            return;
+        }
+        List<Transaccion> todas = new ArrayList<>(cargarTransacciones(numeroCuenta));
+        todas.addAll(nuevas);
+        guardarTransacciones(numeroCuenta, todas);
+    }
+
+    /**
+     * Agrega transacciones nuevas al historial de varias cuentas en una sola operación.
+     * Por defecto agrega cuenta por cuenta; las implementaciones que puedan escribir
+     * todo junto (por ejemplo, con una única sincronización a disco) deben sobrescribirlo.
+     *
+     * @param nuevasPorCuenta Transacciones nuevas por número de cuenta
+     */
+    default void agregarTransaccionesLote(Map<String, List<Transaccion>> nuevasPorCuenta) throws Exception {
+        for (Map.Entry<String, List<Transaccion>> e : nuevasPorCuenta.entrySet()) {
+            agregarTransacciones(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Recorre las transacciones de una cuenta cuya fecha está en el rango [desde, hasta).
+     * Por defecto carga el historial completo y lo filtra; las implementaciones que
+     * puedan leer solo la parte relevante deben sobrescribirlo.
+     */
+    default void recorrerTransacciones(String numeroCuenta,
+                                       LocalDateTime desde,
+                                       LocalDateTime hasta,
+                                       Consumer<Transaccion> accion) throws Exception {
+        for (Transaccion t : cargarTransacciones(numeroCuenta)) {
+            if (TransaccionesStAX.enRango(t.getFecha(), desde, hasta)) {
+                accion.accept(t);
+            }
+        }
+    }
+
+    /**
+     * Obtiene una página del historial de una cuenta, de la transacción más reciente
+     * a la más antigua, dentro del rango [desde, hasta). Por defecto recorre el
+     * historial completo conservando solo las últimas desplazamiento + limite
+     * transacciones; las implementaciones que puedan leer desde el final deben
+     * sobrescribirlo.
+     *
+     * @param numeroCuenta   Número de la cuenta
+     * @param desde          Fecha inicial inclusiva (null para no acotar)
+     * @param hasta          Fecha final exclusiva (null para no acotar)
+     * @param desplazamiento Cantidad de transacciones recientes a saltar
+     * @param limite         Cantidad máxima de transacciones a devolver
+     * @return Las transacciones de la página, la más reciente primero
+     */
+    default List<Transaccion> cargarTransaccionesRecientes(String numeroCuenta,
+                                                           LocalDateTime desde,
+                                                           LocalDateTime hasta,
+                                                           int desplazamiento,
+                                                           int limite) throws Exception {
+        long ventana = (long) desplazamiento + limite;
+        ArrayDeque<Transaccion> ultimas = new ArrayDeque<>();
+        recorrerTransacciones(numeroCuenta, desde, hasta, t -> {
+            if (ultimas.size() == ventana) {
+                ultimas.removeFirst();
+            }
+            ultimas.addLast(t);
+        });
+        List<Transaccion> pagina = new ArrayList<>();
+        int saltadas = 0;
+        for (var it = ultimas.descendingIterator(); it.hasNext() && pagina.size() < limite; ) {
+            Transaccion t = it.next();
+            if (saltadas++ >= desplazamiento) {
+                pagina.add(t);
+            }
+        }
+        return pagina;
+    }
+
+    /**
+     * Cuenta las transacciones almacenadas de una cuenta. Por defecto las recorre
+     * todas; las implementaciones que conozcan la cantidad deben sobrescribirlo.
+     *
+     * @param numeroCuenta Número de la cuenta
+     * @return Cantidad de transacciones almacenadas
+     */
+    default long contarTransacciones(String numeroCuenta) throws Exception {
+        long[] cantidad = {0};
+        recorrerTransacciones(numeroCuenta, null, null, t -> cantidad[0]++);
+        return cantidad[0];
+    }
+
     void eliminarArchivoTransacciones(String numeroCuenta);
+
+    /**
+     * Guarda resultados de operaciones con clave de idempotencia para que sigan
+     * vigentes tras un reinicio. Por defecto no se guardan.
+     *
+     * @param registros Registros a guardar
+     */
+    default void guardarIdempotencia(List<RegistroIdempotencia> registros) throws Exception {
+    }
+
+    /**
+     * Carga los registros de idempotencia guardados. Por defecto no hay ninguno.
+     *
+     * @return Registros guardados, en el orden en que se guardaron
+     */
+    default List<RegistroIdempotencia> cargarIdempotencia() throws Exception {
+        return List.of();
+    }
 }
@@ -0,0 +1,333 @@
+package persistencia;
+
+import modelo.Cliente;
+import modelo.Cuenta;
+import modelo.Transaccion;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Persistencia con escritura diferida (write-behind) sobre otra implementación.
+ * Las operaciones de guardado se confirman en cuanto quedan en una cola acotada
+ * y un hilo en segundo plano las aplica en orden. Si la cola está llena, quien
+ * guarda espera (contrapresión). El hilo arranca con {@link #iniciar()}, que
+ * también vacía la cola al apagar la JVM.
+ *
+ * Una escritura que falla no se descarta: queda primera en la cola y se
+ * reintenta con esperas crecientes. Mientras tanto no se aceptan guardados
+ * nuevos y {@link #vaciar()}, que es como quien guarda confirma que lo suyo
+ * llegó al destino, lanza la falla; deja de hacerlo cuando el reintento funciona.
+ *
+ * Los guardados completos (clientes, cuentas, historial de una cuenta) se
+ * combinan: si hay uno más reciente en cola, el anterior se omite. Las lecturas
+ * esperan a que la cola se vacíe para ver siempre lo último guardado.
+ * Las listas se copian al encolar, pero clientes y cuentas se serializan con
+ * el estado que tengan al momento de escribirse, que puede ser más reciente.
+ */
+public class PersistenciaAsincrona implements Persistencia {
+    private static final int CAPACIDAD_POR_DEFECTO = 1024;
+    private static final long REINTENTO_MINIMO_MS = 50;
+    private static final long REINTENTO_MAXIMO_MS = 5000;
+    private static final long REVISION_VACIADO_MS = 100;
+
+    private final Persistencia destino;
+    private final BlockingQueue<Operacion> cola;
+    private Thread escritor;
+    private volatile boolean activo = false;
+    // Falla de la escritura que se está reintentando, o null si la última funcionó
+    private volatile Exception errorPendiente;
+
+    // Versiones para omitir guardados completos ya superados por uno más nuevo
+    private final AtomicLong versionClientes = new AtomicLong();
+    private final AtomicLong versionCuentas = new AtomicLong();
+    private final Map<String, Long> versionTransacciones = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+
+    /**
+     * Escritura encolada para el hilo en segundo plano.
+     */
+    @FunctionalInterface
+    private interface Operacion {
+        void ejecutar() throws Exception;
+    }
+
+    /**
+     * Crea la persistencia diferida con la capacidad de cola por defecto. No acepta
+     * guardados hasta llamar a {@link #iniciar()}.
+     *
+     * @param destino Persistencia donde se aplican las escrituras
+     */
+    public PersistenciaAsincrona(Persistencia destino) {
+        this(destino, CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * Crea la persistencia diferida.
+     *
+     * @param destino   Persistencia donde se aplican las escrituras
+     * @param capacidad Cantidad máxima de escrituras en cola antes de bloquear a quien guarda
+     */
+    public PersistenciaAsincrona(Persistencia destino, int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad de la cola debe ser positiva");
+        }
+        this.destino = destino;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+    }
+
+    /**
+     * Arranca el hilo escritor y registra el vaciado de la cola al apagar la JVM.
+     */
+    public synchronized void iniciar() {
+        if (escritor != null) {
+            return;
+        }
+        escritor = new Thread(this::ciclo, "persistencia-diferida");
+        escritor.setDaemon(true);
+        activo = true;
+        escritor.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                cerrar();
+            } catch (Exception e) {
+                System.err.println("ERROR: No se pudieron guardar los cambios pendientes: " + e.getMessage());
+            }
+        }, "vaciado-persistencia"));
+    }
+
+    @Override
+    public List<Cliente> cargarClientes() throws Exception {
+        vaciar();
+        return destino.cargarClientes();
+    }
+
+    @Override
+    public List<Cuenta> cargarCuentas() throws Exception {
+        vaciar();
+        return destino.cargarCuentas();
+    }
+
+    @Override
+    public List<Transaccion> cargarTransacciones(String numeroCuenta) throws Exception {
+        vaciar();
+        return destino.cargarTransacciones(numeroCuenta);
+    }
+
+    @Override
+    public void recorrerTransacciones(String numeroCuenta,
+                                      LocalDateTime desde,
+                                      LocalDateTime hasta,
+                                      Consumer<Transaccion> accion) throws Exception {
+        vaciar();
+        destino.recorrerTransacciones(numeroCuenta, desde, hasta, accion);
+    }
+
+    @Override
+    public List<Transaccion> cargarTransaccionesRecientes(String numeroCuenta,
+                                                          LocalDateTime desde,
+                                                          LocalDateTime hasta,
+                                                          int desplazamiento,
+                                                          int limite) throws Exception {
+        vaciar();
+        return destino.cargarTransaccionesRecientes(numeroCuenta, desde, hasta, desplazamiento, limite);
+    }
+
+    @Override
+    public long contarTransacciones(String numeroCuenta) throws Exception {
+        vaciar();
+        return destino.contarTransacciones(numeroCuenta);
+    }
+
+    @Override
+    public void guardarClientes(List<Cliente> clientes) throws Exception {
+        List<Cliente> copia = new ArrayList<>(clientes);
+        long version = versionClientes.incrementAndGet();
+        encolar(() -> {
+            if (version == versionClientes.get()) {
+                destino.guardarClientes(copia);
+            }
+        });
+    }
+
+    @Override
+    public void guardarCuentas(List<Cuenta> cuentas) throws Exception {
+        List<Cuenta> copia = new ArrayList<>(cuentas);
+        long version = versionCuentas.incrementAndGet();
+        encolar(() -> {
+            if (version == versionCuentas.get()) {
+                destino.guardarCuentas(copia);
+            }
+        });
+    }
+
+    @Override
+    public void guardarTransacciones(String numeroCuenta, List<Transaccion> transacciones) throws Exception {
+        List<Transaccion> copia = new ArrayList<>(transacciones);
+        long version = secuencia.incrementAndGet();
+        versionTransacciones.put(numeroCuenta, version);
+        encolar(() -> {
+            if (Long.valueOf(version).equals(versionTransacciones.get(numeroCuenta))) {
+                destino.guardarTransacciones(numeroCuenta, copia);
+            }
+        });
+    }
+
+    @Override
+    public void agregarTransacciones(String numeroCuenta, List<Transaccion> nuevas) throws Exception {
+        List<Transaccion> copia = List.copyOf(nuevas);
+        encolar(() -> destino.agregarTransacciones(numeroCuenta, copia));
+    }
+
+    @Override
+    public void agregarTransaccionesLote(Map<String, List<Transaccion>> nuevasPorCuenta) throws Exception {
+        Map<String, List<Transaccion>> copia = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Transaccion>> e : nuevasPorCuenta.entrySet()) {
+            copia.put(e.getKey(), List.copyOf(e.getValue()));
+        }
+        encolar(() -> destino.agregarTransaccionesLote(copia));
+    }
+
+    @Override
+    public void eliminarArchivoTransacciones(String numeroCuenta) {
+        versionTransacciones.remove(numeroCuenta);
+        try {
+            encolar(() -> destino.eliminarArchivoTransacciones(numeroCuenta));
+        } catch (Exception e) {
+            throw new RuntimeException("Error encolando la eliminación de la cuenta " + numeroCuenta, e);
+        }
+    }
+
+    @Override
+    public void guardarIdempotencia(List<RegistroIdempotencia> registros) throws Exception {
+        List<RegistroIdempotencia> copia = List.copyOf(registros);
+        encolar(() -> destino.guardarIdempotencia(copia));
+    }
+
+    @Override
+    public List<RegistroIdempotencia> cargarIdempotencia() throws Exception {
+        vaciar();
+        return destino.cargarIdempotencia();
+    }
+
+    /**
+     * Espera a que todas las escrituras encoladas hasta ahora se hayan aplicado.
+     * Si una de ellas falla no se espera a sus reintentos: se lanza la falla, y la
+     * escritura sigue en la cola.
+     *
+     * @throws Exception Si una escritura encolada antes de esta llamada está fallando
+     */
+    public void vaciar() throws Exception {
+        CompletableFuture<Void> marca = new CompletableFuture<>();
+        encolar(() -> marca.complete(null));
+        while (true) {
+            try {
+                marca.get(REVISION_VACIADO_MS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                // El escritor va en orden: una falla ahora es de algo anterior a la marca
+                lanzarErrorPendiente();
+            }
+        }
+    }
+
+    /**
+     * Vacía la cola y detiene el hilo escritor. Se llama también al apagar la JVM.
+     * Si una escritura sigue fallando, se deja de reintentar y se pierde lo que quedó en cola.
+     *
+     * @throws Exception Si alguna escritura pendiente falló
+     */
+    public synchronized void cerrar() throws Exception {
+        if (!activo) {
+            return;
+        }
+        try {
+            vaciar();
+        } finally {
+            activo = false;
+            escritor.interrupt();
+        }
+    }
+
+    /**
+     * Indica si hay una escritura fallida que se está reintentando.
+     *
+     * @return true mientras la última escritura intentada haya fallado
+     */
+    public boolean isFallando() {
+        return errorPendiente != null;
+    }
+
+    /**
+     * Obtiene la cantidad de escrituras en cola.
+     *
+     * @return Escrituras pendientes
+     */
+    public int getPendientes() {
+        return cola.size();
+    }
+
+    // — Helpers privados —
+
+    private void encolar(Operacion op) throws Exception {
+        if (!activo) {
+            throw new IllegalStateException("La persistencia diferida no está iniciada o ya se cerró");
+        }
+        lanzarErrorPendiente();
+        cola.put(op);
+    }
+
+    /**
+     * Lanza la falla de la escritura en reintento, sin olvidarla: la siguiente
+     * llamada la vuelve a ver hasta que el reintento funcione.
+     */
+    private void lanzarErrorPendiente() {
+        Exception error = errorPendiente;
+        if (error != null) {
+            throw new IllegalStateException("Falló una escritura en segundo plano; se está reintentando", error);
+        }
+    }
+
+    private void ciclo() {
+        Operacion op = null;
+        long espera = REINTENTO_MINIMO_MS;
+        while (op != null || activo || !cola.isEmpty()) {
+            if (op == null) {
+                try {
+                    op = cola.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            try {
+                op.ejecutar();
+                op = null;
+                errorPendiente = null;
+                espera = REINTENTO_MINIMO_MS;
+            } catch (Exception e) {
+                // La operación se conserva y se reintenta, salvo que se esté cerrando
+                errorPendiente = e;
+                if (!activo) {
+                    return;
+                }
+                try {
+                    Thread.sleep(espera);
+                } catch (InterruptedException ie) {
+                    // cerrar() interrumpe: se revisa activo en la siguiente vuelta
+                }
+                espera = Math.min(espera * 2, REINTENTO_MAXIMO_MS);
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package persistencia;
+
+import modelo.Cliente;
+import modelo.Cuenta;
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Persistencia con historial de transacciones en formato binario compacto:
+ * Transacciones_&lt;numeroCuenta&gt;.bin. Clientes y cuentas se delegan en
+ * {@link PersistenciaXML}.
+ *
+ * Cada archivo tiene una cabecera de 8 bytes (número mágico y tamaño de registro)
+ * seguida de registros de ancho fijo de 41 bytes:
+ * tipo (1 byte), monto (8), fecha en milisegundos epoch (8), comisión (8),
+ * tipo de cambio aplicado (8, 0 si fue en colones) y fecha del tipo de cambio (8).
+ * La lectura recorre el archivo mapeado en memoria sin interpretar XML, y las
+ * consultas por fecha comparan los milisegundos antes de construir objetos.
+ * Las fechas se guardan con precisión de milisegundos.
+ */
+public class PersistenciaBinaria implements Persistencia {
+    private static final int MAGICO = 0x54584231; // "TXB1"
+    private static final int CABECERA = 8;
+    private static final int REGISTRO = 41;
+    private static final byte SIN_TIPO = -1;
+    private static final long SIN_FECHA = Long.MIN_VALUE;
+
+    private final PersistenciaXML base;
+
+    public PersistenciaBinaria() {
+        this(new PersistenciaXML());
+    }
+
+    /**
+     * Crea la persistencia binaria.
+     *
+     * @param base Persistencia XML para clientes y cuentas; los historiales van en su directorio
+     */
+    public PersistenciaBinaria(PersistenciaXML base) {
+        this.base = base;
+    }
+
+    @Override
+    public List<Cliente> cargarClientes() throws Exception {
+        return base.cargarClientes();
+    }
+
+    @Override
+    public List<Cuenta> cargarCuentas() throws Exception {
+        return base.cargarCuentas();
+    }
+
+    @Override
+    public List<Transaccion> cargarTransacciones(String numeroCuenta) throws Exception {
+        List<Transaccion> lista = new ArrayList<>();
+        recorrerTransacciones(numeroCuenta, null, null, lista::add);
+        return lista;
+    }
+
+    @Override
+    public void guardarClientes(List<Cliente> clientes) throws Exception {
+        base.guardarClientes(clientes);
+    }
+
+    @Override
+    public void guardarCuentas(List<Cuenta> cuentas) throws Exception {
+        base.guardarCuentas(cuentas);
+    }
+
+    @Override
+    public void guardarTransacciones(String numeroCuenta, List<Transaccion> transacciones) throws Exception {
+        ArchivoAtomico.reemplazar(archivoTransacciones(numeroCuenta), tmp -> {
+            try (FileChannel canal = FileChannel.open(tmp.toPath(),
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+                cabecera.putInt(MAGICO).putInt(REGISTRO).flip();
+                escribirTodo(canal, cabecera);
+                escribirTodo(canal, codificar(transacciones));
+            }
+        });
+    }
+
+    @Override
+    public void agregarTransacciones(String numeroCuenta, List<Transaccion> nuevas) throws Exception {
+        if (nuevas.isEmpty()) {
+            return;
+        }
+        File archivo = archivoTransacciones(numeroCuenta);
+        if (!archivo.exists()) {
+            guardarTransacciones(numeroCuenta, nuevas);
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.WRITE)) {
+            long registros = (canal.size() - CABECERA) / REGISTRO;
+            // Descarta un registro incompleto que haya quedado de una caída
+            canal.position(CABECERA + registros * REGISTRO);
+            escribirTodo(canal, codificar(nuevas));
+            canal.truncate(canal.position());
+            canal.force(false);
+        }
+    }
+
+    @Override
+    public void recorrerTransacciones(String numeroCuenta,
+                                      LocalDateTime desde,
+                                      LocalDateTime hasta,
+                                      Consumer<Transaccion> accion) throws Exception {
+        File archivo = archivoTransacciones(numeroCuenta);
+        if (!archivo.exists()) {
+            return;
+        }
+        long desdeMs = desde == null ? Long.MIN_VALUE : aMilis(desde);
+        long hastaMs = hasta == null ? Long.MAX_VALUE : aMilis(hasta);
+        boolean sinRango = desde == null && hasta == null;
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer datos = mapear(canal);
+            int registros = (datos.limit() - CABECERA) / REGISTRO;
+            for (int i = 0; i < registros; i++) {
+                int pos = CABECERA + i * REGISTRO;
+                long fecha = datos.getLong(pos + 9);
+                boolean enRango = fecha == SIN_FECHA
+                    ? sinRango
+                    : fecha >= desdeMs && fecha < hastaMs;
+                if (enRango) {
+                    accion.accept(leer(datos, pos));
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee los registros desde el final del archivo, de modo que una página reciente
+     * solo toca los registros que devuelve (y los que salta o quedan fuera del rango).
+     */
+    @Override
+    public List<Transaccion> cargarTransaccionesRecientes(String numeroCuenta,
+                                                          LocalDateTime desde,
+                                                          LocalDateTime hasta,
+                                                          int desplazamiento,
+                                                          int limite) throws Exception {
+        List<Transaccion> pagina = new ArrayList<>();
+        File archivo = archivoTransacciones(numeroCuenta);
+        if (!archivo.exists()) {
+            return pagina;
+        }
+        long desdeMs = desde == null ? Long.MIN_VALUE : aMilis(desde);
+        long hastaMs = hasta == null ? Long.MAX_VALUE : aMilis(hasta);
+        boolean sinRango = desde == null && hasta == null;
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer datos = mapear(canal);
+            int registros = (datos.limit() - CABECERA) / REGISTRO;
+            int saltadas = 0;
+            for (int i = registros - 1; i >= 0 && pagina.size() < limite; i--) {
+                int pos = CABECERA + i * REGISTRO;
+                long fecha = datos.getLong(pos + 9);
+                boolean enRango = fecha == SIN_FECHA
+                    ? sinRango
+                    : fecha >= desdeMs && fecha < hastaMs;
+                if (enRango && saltadas++ >= desplazamiento) {
+                    pagina.add(leer(datos, pos));
+                }
+            }
+        }
+        return pagina;
+    }
+
+    /**
+     * Cuenta las transacciones de una cuenta a partir del tamaño del archivo, sin leerlo.
+     *
+     * @param numeroCuenta Número de la cuenta
+     * @return Cantidad de transacciones almacenadas
+     */
+    @Override
+    public long contarTransacciones(String numeroCuenta) {
+        File archivo = archivoTransacciones(numeroCuenta);
+        return archivo.exists() ? Math.max(archivo.length() - CABECERA, 0) / REGISTRO : 0;
+    }
+
+    @Override
+    public void eliminarArchivoTransacciones(String numeroCuenta) {
+        File archivo = archivoTransacciones(numeroCuenta);
+        if (archivo.exists()) {
+            archivo.delete();
+        }
+    }
+
+    /**
+     * Convierte el historial de todas las cuentas de otra persistencia (por ejemplo,
+     * los archivos XML actuales) al formato binario. Los archivos de origen no se modifican.
+     *
+     * @param origen Persistencia desde la cual leer cuentas y transacciones
+     * @return Cantidad de transacciones convertidas
+     * @throws Exception Si ocurre un error leyendo o escribiendo
+     */
+    public long importar(Persistencia origen) throws Exception {
+        long total = 0;
+        for (Cuenta c : origen.cargarCuentas()) {
+            List<Transaccion> historial = origen.cargarTransacciones(c.getNumeroCuenta());
+            guardarTransacciones(c.getNumeroCuenta(), historial);
+            total += historial.size();
+        }
+        return total;
+    }
+
+    // — Helpers privados —
+
+    private static MappedByteBuffer mapear(FileChannel canal) throws IOException {
+        long tamano = canal.size();
+        if (tamano < CABECERA) {
+            throw new IOException("Archivo de transacciones binario sin cabecera");
+        }
+        MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+        if (datos.getInt(0) != MAGICO || datos.getInt(4) != REGISTRO) {
+            throw new IOException("Formato de archivo de transacciones binario desconocido");
+        }
+        return datos;
+    }
+
+    private static ByteBuffer codificar(List<Transaccion> transacciones) {
+        ByteBuffer buffer = ByteBuffer.allocate(transacciones.size() * REGISTRO);
+        for (Transaccion t : transacciones) {
+            buffer.put(t.getTipo() == null ? SIN_TIPO : (byte) t.getTipo().ordinal());
+            buffer.putLong(t.getMonto());
+            buffer.putLong(t.getFecha() == null ? SIN_FECHA : aMilis(t.getFecha()));
+            buffer.putLong(t.getMontoComision());
+            buffer.putDouble(t.getTipoCambio());
+            buffer.putLong(t.getFechaTipoCambio() == null ? SIN_FECHA : aMilis(t.getFechaTipoCambio()));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static Transaccion leer(ByteBuffer datos, int pos) {
+        byte tipo = datos.get(pos);
+        long monto = datos.getLong(pos + 1);
+        long fecha = datos.getLong(pos + 9);
+        long comision = datos.getLong(pos + 17);
+        double tipoCambio = datos.getDouble(pos + 25);
+        long fechaTipoCambio = datos.getLong(pos + 33);
+        return Transaccion.restaurar(
+            tipo == SIN_TIPO ? null : TipoTransaccion.values()[tipo],
+            monto,
+            comision > 0,
+            comision,
+            deMilis(fecha),
+            tipoCambio,
+            deMilis(fechaTipoCambio)
+        );
+    }
+
+    private static LocalDateTime deMilis(long milis) {
+        return milis == SIN_FECHA ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(milis), ZoneOffset.UTC);
+    }
+
+    private static long aMilis(LocalDateTime fecha) {
+        return fecha.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static void escribirTodo(FileChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    private File archivoTransacciones(String numeroCuenta) {
+        return new File(base.getDirectorio(), "Transacciones_" + numeroCuenta + ".bin");
+    }
+}
@@ -0,0 +1,270 @@
+package persistencia;
+
+import modelo.Cliente;
+import modelo.Cuenta;
+import modelo.Transaccion;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * Persistencia con historial de transacciones particionado por mes:
+ * Transacciones_&lt;numeroCuenta&gt;_&lt;aaaa-MM&gt;.xml.
+ *
+ * Solo el segmento del mes en curso recibe escrituras (agregando al final);
+ * los meses anteriores quedan cerrados y no se vuelven a escribir. Las consultas
+ * por período abren únicamente los segmentos de los meses que abarca.
+ * Si existe un Transacciones_&lt;numeroCuenta&gt;.xml sin segmentar, se lee como
+ * el historial anterior al primer segmento. Las transacciones sin fecha de los
+ * archivos antiguos van a un segmento propio, Transacciones_&lt;numeroCuenta&gt;_sin-fecha.xml,
+ * que se lee antes que todos los demás. Clientes y cuentas se delegan en
+ * {@link PersistenciaXML}.
+ */
+public class PersistenciaSegmentada implements Persistencia {
+    private static final String PREFIJO = "Transacciones_";
+    private static final String EXTENSION = ".xml";
+    private static final String SUFIJO_SIN_FECHA = "sin-fecha";
+    // Clave del segmento sin fecha: ordena antes que cualquier mes
+    private static final YearMonth SIN_FECHA = YearMonth.of(Year.MIN_VALUE, 1);
+
+    private final PersistenciaXML base;
+
+    // Meses con segmento por cuenta, descubiertos la primera vez que se usa la cuenta
+    private final Map<String, NavigableSet<YearMonth>> segmentos = new ConcurrentHashMap<>();
+
+    public PersistenciaSegmentada() {
+        this(new PersistenciaXML());
+    }
+
+    /**
+     * Crea la persistencia segmentada.
+     *
+     * @param base Persistencia XML para clientes y cuentas; los historiales van en su directorio
+     */
+    public PersistenciaSegmentada(PersistenciaXML base) {
+        this.base = base;
+    }
+
+    @Override
+    public List<Cliente> cargarClientes() throws Exception {
+        return base.cargarClientes();
+    }
+
+    @Override
+    public List<Cuenta> cargarCuentas() throws Exception {
+        return base.cargarCuentas();
+    }
+
+    @Override
+    public List<Transaccion> cargarTransacciones(String numeroCuenta) throws Exception {
+        List<Transaccion> lista = new ArrayList<>();
+        recorrerTransacciones(numeroCuenta, null, null, lista::add);
+        return lista;
+    }
+
+    @Override
+    public void guardarClientes(List<Cliente> clientes) throws Exception {
+        base.guardarClientes(clientes);
+    }
+
+    @Override
+    public void guardarCuentas(List<Cuenta> cuentas) throws Exception {
+        base.guardarCuentas(cuentas);
+    }
+
+    /**
+     * Reemplaza el historial completo: reescribe los segmentos de cada mes presente,
+     * elimina los demás y migra el archivo sin segmentar si lo hubiera.
+     */
+    @Override
+    public void guardarTransacciones(String numeroCuenta, List<Transaccion> transacciones) throws Exception {
+        TreeMap<YearMonth, List<Transaccion>> porMes = agruparPorMes(transacciones);
+        NavigableSet<YearMonth> meses = meses(numeroCuenta);
+        for (Map.Entry<YearMonth, List<Transaccion>> e : porMes.entrySet()) {
+            List<Transaccion> delMes = e.getValue();
+            ArchivoAtomico.reemplazar(archivoSegmento(numeroCuenta, e.getKey()),
+                tmp -> TransaccionesStAX.escribir(tmp, delMes));
+            meses.add(e.getKey());
+        }
+        for (YearMonth mes : new ArrayList<>(meses)) {
+            if (!porMes.containsKey(mes)) {
+                archivoSegmento(numeroCuenta, mes).delete();
+                meses.remove(mes);
+            }
+        }
+        archivoSinSegmentar(numeroCuenta).delete();
+    }
+
+    /**
+     * Agrega las transacciones al segmento de su mes; en operación normal solo
+     * se escribe el segmento abierto (mes en curso).
+     */
+    @Override
+    public void agregarTransacciones(String numeroCuenta, List<Transaccion> nuevas) throws Exception {
+        NavigableSet<YearMonth> meses = meses(numeroCuenta);
+        for (Map.Entry<YearMonth, List<Transaccion>> e : agruparPorMes(nuevas).entrySet()) {
+            TransaccionesStAX.agregar(archivoSegmento(numeroCuenta, e.getKey()), e.getValue());
+            meses.add(e.getKey());
+        }
+    }
+
+    /**
+     * Recorre las transacciones del rango abriendo solo los segmentos de los meses que
+     * abarca. El segmento sin fecha solo se lee sin rango, y el archivo sin segmentar
+     * solo si el rango empieza antes de que termine el primer mes segmentado.
+     */
+    @Override
+    public void recorrerTransacciones(String numeroCuenta,
+                                      LocalDateTime desde,
+                                      LocalDateTime hasta,
+                                      Consumer<Transaccion> accion) throws Exception {
+        NavigableSet<YearMonth> meses = meses(numeroCuenta);
+        if (desde == null && hasta == null && meses.contains(SIN_FECHA)) {
+            TransaccionesStAX.recorrer(archivoSegmento(numeroCuenta, SIN_FECHA), null, null, accion);
+        }
+        if (leerSinSegmentar(meses, desde)) {
+            TransaccionesStAX.recorrer(archivoSinSegmentar(numeroCuenta), desde, hasta, accion);
+        }
+        for (YearMonth mes : mesesDelRango(meses, desde, hasta)) {
+            TransaccionesStAX.recorrer(archivoSegmento(numeroCuenta, mes), desde, hasta, accion);
+        }
+    }
+
+    /**
+     * Abre los segmentos del más reciente al más antiguo y se detiene en cuanto
+     * completa la página, de modo que las páginas recientes solo leen el último mes.
+     */
+    @Override
+    public List<Transaccion> cargarTransaccionesRecientes(String numeroCuenta,
+                                                          LocalDateTime desde,
+                                                          LocalDateTime hasta,
+                                                          int desplazamiento,
+                                                          int limite) throws Exception {
+        NavigableSet<YearMonth> meses = meses(numeroCuenta);
+        List<Transaccion> pagina = new ArrayList<>();
+        int[] saltadas = {0};
+        for (YearMonth mes : mesesDelRango(meses, desde, hasta).descendingSet()) {
+            if (pagina.size() >= limite) {
+                return pagina;
+            }
+            agregarDesdeElFinal(archivoSegmento(numeroCuenta, mes), desde, hasta, desplazamiento, limite, saltadas, pagina);
+        }
+        if (pagina.size() < limite && leerSinSegmentar(meses, desde)) {
+            agregarDesdeElFinal(archivoSinSegmentar(numeroCuenta), desde, hasta, desplazamiento, limite, saltadas, pagina);
+        }
+        if (pagina.size() < limite && desde == null && hasta == null && meses.contains(SIN_FECHA)) {
+            agregarDesdeElFinal(archivoSegmento(numeroCuenta, SIN_FECHA), null, null, desplazamiento, limite, saltadas, pagina);
+        }
+        return pagina;
+    }
+
+    @Override
+    public void eliminarArchivoTransacciones(String numeroCuenta) {
+        for (YearMonth mes : meses(numeroCuenta)) {
+            archivoSegmento(numeroCuenta, mes).delete();
+        }
+        segmentos.remove(numeroCuenta);
+        base.eliminarArchivoTransacciones(numeroCuenta);
+    }
+
+    // — Helpers privados —
+
+    private NavigableSet<YearMonth> meses(String numeroCuenta) {
+        return segmentos.computeIfAbsent(numeroCuenta, this::descubrirSegmentos);
+    }
+
+    /**
+     * Meses con segmento que abarca el rango, sin el segmento sin fecha.
+     */
+    private static NavigableSet<YearMonth> mesesDelRango(NavigableSet<YearMonth> meses,
+                                                         LocalDateTime desde,
+                                                         LocalDateTime hasta) {
+        NavigableSet<YearMonth> delRango = meses.tailSet(desde == null ? SIN_FECHA : YearMonth.from(desde), desde != null);
+        if (hasta != null) {
+            delRango = delRango.headSet(YearMonth.from(hasta), true);
+        }
+        return delRango;
+    }
+
+    /**
+     * El archivo sin segmentar es anterior al primer segmento, aunque puede compartir
+     * su mes: se salta si el rango empieza en un mes posterior.
+     */
+    private static boolean leerSinSegmentar(NavigableSet<YearMonth> meses, LocalDateTime desde) {
+        YearMonth primero = meses.higher(SIN_FECHA);
+        return desde == null || primero == null || !YearMonth.from(desde).isAfter(primero);
+    }
+
+    private NavigableSet<YearMonth> descubrirSegmentos(String numeroCuenta) {
+        NavigableSet<YearMonth> meses = new ConcurrentSkipListSet<>();
+        String prefijo = PREFIJO + numeroCuenta + "_";
+        File[] archivos = base.getDirectorio().listFiles((dir, nombre) ->
+            nombre.startsWith(prefijo) && nombre.endsWith(EXTENSION));
+        if (archivos != null) {
+            for (File f : archivos) {
+                String nombre = f.getName();
+                String mes = nombre.substring(prefijo.length(), nombre.length() - EXTENSION.length());
+                if (mes.equals(SUFIJO_SIN_FECHA)) {
+                    meses.add(SIN_FECHA);
+                    continue;
+                }
+                try {
+                    meses.add(YearMonth.parse(mes));
+                } catch (DateTimeParseException e) {
+                    // Otro archivo con el mismo prefijo (p. ej. una cuenta CTA1_X): se ignora
+                }
+            }
+        }
+        return meses;
+    }
+
+    /**
+     * Lee un archivo en orden y agrega sus transacciones a la página de la más
+     * reciente a la más antigua, saltando las primeras según el desplazamiento.
+     */
+    private static void agregarDesdeElFinal(File archivo,
+                                            LocalDateTime desde,
+                                            LocalDateTime hasta,
+                                            int desplazamiento,
+                                            int limite,
+                                            int[] saltadas,
+                                            List<Transaccion> pagina) throws Exception {
+        List<Transaccion> leidas = new ArrayList<>();
+        TransaccionesStAX.recorrer(archivo, desde, hasta, leidas::add);
+        for (int i = leidas.size() - 1; i >= 0 && pagina.size() < limite; i--) {
+            if (saltadas[0]++ >= desplazamiento) {
+                pagina.add(leidas.get(i));
+            }
+        }
+    }
+
+    private static TreeMap<YearMonth, List<Transaccion>> agruparPorMes(List<Transaccion> transacciones) {
+        TreeMap<YearMonth, List<Transaccion>> porMes = new TreeMap<>();
+        for (Transaccion t : transacciones) {
+            // Las transacciones sin fecha (archivos antiguos) van a su segmento, antes de todos los meses
+            YearMonth mes = t.getFecha() == null ? SIN_FECHA : YearMonth.from(t.getFecha());
+            porMes.computeIfAbsent(mes, k -> new ArrayList<>()).add(t);
+        }
+        return porMes;
+    }
+
+    private File archivoSegmento(String numeroCuenta, YearMonth mes) {
+        String sufijo = mes.equals(SIN_FECHA) ? SUFIJO_SIN_FECHA : mes.toString();
+        return new File(base.getDirectorio(), PREFIJO + numeroCuenta + "_" + sufijo + EXTENSION);
+    }
+
+    private File archivoSinSegmentar(String numeroCuenta) {
+        return new File(base.getDirectorio(), PREFIJO + numeroCuenta + EXTENSION);
+    }
+}
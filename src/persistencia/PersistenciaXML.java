@@ -4,93 +4,139 @@ import modelo.Cliente;
 import modelo.Cuenta;
 import modelo.Transaccion;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.Marshaller;
-import javax.xml.bind.Unmarshaller;
 import java.io.File;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Implementación de Persistencia usando JAXB para archivos XML:
  * - Clientes.xml
  * - Cuentas.xml
  * - Transacciones_<numeroCuenta>.xml
+ *
+ * Los contextos JAXB y los (un)marshallers se reutilizan mediante {@link RegistroJAXB}.
+ * Los archivos de transacciones se leen y escriben en streaming con {@link TransaccionesStAX}.
+ * Las reescrituras completas se hacen sobre un temporal que luego se renombra
+ * atómicamente ({@link ArchivoAtomico}), así una caída no deja archivos a medias.
  */
 public class PersistenciaXML implements Persistencia {
-    private static final String PATH = ".";
+    private final File directorio;
+
+    /**
+     * Crea la persistencia XML sobre el directorio de trabajo.
+     */
+    public PersistenciaXML() {
+        this(new File("."));
+    }
+
+    /**
+     * Crea la persistencia XML sobre un directorio específico.
+     *
+     * @param directorio Directorio donde están los archivos
+     */
+    public PersistenciaXML(File directorio) {
+        this.directorio = directorio;
+    }
+
+    /**
+     * Obtiene el directorio de los archivos, que comparten las persistencias que
+     * delegan en esta los clientes y las cuentas.
+     *
+     * @return El directorio de los archivos
+     */
+    public File getDirectorio() {
+        return directorio;
+    }
 
     @Override
     public List<Cliente> cargarClientes() throws Exception {
-        File file = new File(PATH, "Clientes.xml");
+        File file = new File(directorio, "Clientes.xml");
         if (!file.exists()) {
             return new ArrayList<>();
         }
-        JAXBContext ctx = JAXBContext.newInstance(ClienteList.class);
-        Unmarshaller u = ctx.createUnmarshaller();
-        ClienteList wrapper = (ClienteList) u.unmarshal(file);
+        ClienteList wrapper = RegistroJAXB.unmarshal(ClienteList.class, file);
         return wrapper.getClientes();
     }
 
     @Override
     public List<Cuenta> cargarCuentas() throws Exception {
-        File file = new File(PATH, "Cuentas.xml");
+        File file = new File(directorio, "Cuentas.xml");
         if (!file.exists()) {
             return new ArrayList<>();
         }
-        JAXBContext ctx = JAXBContext.newInstance(CuentaList.class);
-        Unmarshaller u = ctx.createUnmarshaller();
-        CuentaList wrapper = (CuentaList) u.unmarshal(file);
+        CuentaList wrapper = RegistroJAXB.unmarshal(CuentaList.class, file);
         return wrapper.getCuentas();
     }
 
     @Override
     public List<Transaccion> cargarTransacciones(String numeroCuenta) throws Exception {
-        File file = new File(PATH, "Transacciones_" + numeroCuenta + ".xml");
-        if (!file.exists()) {
-            return new ArrayList<>();
-        }
-        JAXBContext ctx = JAXBContext.newInstance(TransaccionWrapper.class);
-        Unmarshaller u = ctx.createUnmarshaller();
-        TransaccionWrapper wrapper = (TransaccionWrapper) u.unmarshal(file);
-        return wrapper.getTransacciones();
+        List<Transaccion> lista = new ArrayList<>();
+        TransaccionesStAX.recorrer(archivoTransacciones(numeroCuenta), null, null, lista::add);
+        return lista;
     }
 
     @Override
     public void guardarClientes(List<Cliente> clientes) throws Exception {
         ClienteList wrapper = new ClienteList();
         wrapper.setClientes(clientes);
-        JAXBContext ctx = JAXBContext.newInstance(ClienteList.class);
-        Marshaller m = ctx.createMarshaller();
-        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-        m.marshal(wrapper, new File(PATH, "Clientes.xml"));
+        ArchivoAtomico.reemplazar(new File(directorio, "Clientes.xml"), tmp -> RegistroJAXB.marshal(wrapper, tmp));
     }
 
     @Override
     public void guardarCuentas(List<Cuenta> cuentas) throws Exception {
         CuentaList wrapper = new CuentaList();
         wrapper.setCuentas(cuentas);
-        JAXBContext ctx = JAXBContext.newInstance(CuentaList.class);
-        Marshaller m = ctx.createMarshaller();
-        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-        m.marshal(wrapper, new File(PATH, "Cuentas.xml"));
+        ArchivoAtomico.reemplazar(new File(directorio, "Cuentas.xml"), tmp -> RegistroJAXB.marshal(wrapper, tmp));
     }
 
     @Override
     public void guardarTransacciones(String numeroCuenta, List<Transaccion> transacciones) throws Exception {
-        TransaccionWrapper wrapper = new TransaccionWrapper();
-        wrapper.setTransacciones(transacciones);
-        JAXBContext ctx = JAXBContext.newInstance(TransaccionWrapper.class);
-        Marshaller m = ctx.createMarshaller();
-        m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-        m.marshal(wrapper, new File(PATH, "Transacciones_" + numeroCuenta + ".xml"));
+        ArchivoAtomico.reemplazar(archivoTransacciones(numeroCuenta), tmp -> TransaccionesStAX.escribir(tmp, transacciones));
+    }
+
+    /**
+     * Agrega transacciones al final del archivo de la cuenta sin reescribir las existentes.
+     *
+     * @param numeroCuenta Número de la cuenta
+     * @param nuevas       Transacciones a agregar, en orden
+     * @throws Exception Si ocurre un error de escritura
+     */
+    @Override
+    public void agregarTransacciones(String numeroCuenta, List<Transaccion> nuevas) throws Exception {
+        if (nuevas.isEmpty()) {
+            return;
+        }
+        TransaccionesStAX.agregar(archivoTransacciones(numeroCuenta), nuevas);
+    }
+
+    /**
+     * Recorre en streaming las transacciones de una cuenta dentro de un rango de fechas.
+     *
+     * @param numeroCuenta Número de la cuenta
+     * @param desde        Fecha inicial inclusiva, o null para no acotar
+     * @param hasta        Fecha final exclusiva, o null para no acotar
+     * @param accion       Acción a ejecutar por cada transacción
+     * @throws Exception Si ocurre un error de lectura
+     */
+    @Override
+    public void recorrerTransacciones(String numeroCuenta,
+                                      LocalDateTime desde,
+                                      LocalDateTime hasta,
+                                      Consumer<Transaccion> accion) throws Exception {
+        TransaccionesStAX.recorrer(archivoTransacciones(numeroCuenta), desde, hasta, accion);
     }
 
     @Override
     public void eliminarArchivoTransacciones(String numeroCuenta) {
-        File archivo = new File("Transacciones_" + numeroCuenta + ".xml");
+        File archivo = archivoTransacciones(numeroCuenta);
         if (archivo.exists()) {
             archivo.delete();
         }
     }
+
+    private File archivoTransacciones(String numeroCuenta) {
+        return new File(directorio, "Transacciones_" + numeroCuenta + ".xml");
+    }
 }
\ No newline at end of file
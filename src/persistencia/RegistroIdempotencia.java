@@ -0,0 +1,61 @@
+package persistencia;
+
+import modelo.Transaccion;
+
+/**
+ * Resultado guardado de una operación con clave de idempotencia, para que un
+ * reintento con la misma clave devuelva lo mismo sin volver a ejecutarla.
+ */
+public class RegistroIdempotencia {
+    private final String clave;
+    private final long expiraMillis;
+    private final String huella;
+    private final Transaccion resultado;
+
+    /**
+     * Crea el registro.
+     *
+     * @param clave        Clave de la operación (incluye la cuenta a la que pertenece)
+     * @param expiraMillis Instante de vencimiento, en milisegundos epoch
+     * @param huella       Datos de la solicitud (monto, destino) con que se usó la clave,
+     *                     o null en registros guardados antes de existir la huella
+     * @param resultado    Transacción producida por la operación, o null si no produce una
+     */
+    public RegistroIdempotencia(String clave, long expiraMillis, String huella, Transaccion resultado) {
+        this.clave = clave;
+        this.expiraMillis = expiraMillis;
+        this.huella = huella;
+        this.resultado = resultado;
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    public long getExpiraMillis() {
+        return expiraMillis;
+    }
+
+    public String getHuella() {
+        return huella;
+    }
+
+    public Transaccion getResultado() {
+        return resultado;
+    }
+
+    /**
+     * Indica si un reintento con la clave pide lo mismo que la solicitud original.
+     * Un registro sin huella se acepta con cualquier solicitud.
+     *
+     * @param otra Huella de la solicitud que reutiliza la clave
+     * @return true si la solicitud coincide con la original
+     */
+    public boolean coincide(String otra) {
+        return huella == null || huella.equals(otra);
+    }
+
+    public boolean isVigente(long ahoraMillis) {
+        return ahoraMillis < expiraMillis;
+    }
+}
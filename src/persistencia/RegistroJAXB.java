@@ -0,0 +1,91 @@
+package persistencia;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.File;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Registro de contextos JAXB creados una sola vez por clase raíz
+ * (ClienteList, CuentaList, TransaccionWrapper), con pools de
+ * Marshaller/Unmarshaller reutilizables entre hilos.
+ *
+ * JAXBContext es seguro entre hilos pero costoso de crear; Marshaller y
+ * Unmarshaller no son seguros entre hilos, por eso cada hilo toma uno del
+ * pool y lo devuelve al terminar.
+ */
+final class RegistroJAXB {
+    private static final Map<Class<?>, JAXBContext> CONTEXTOS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Queue<Marshaller>> MARSHALLERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Queue<Unmarshaller>> UNMARSHALLERS = new ConcurrentHashMap<>();
+
+    private RegistroJAXB() { }
+
+    /**
+     * Obtiene (o crea la primera vez) el contexto JAXB de una clase raíz.
+     *
+     * @param clase Clase raíz ligada al contexto
+     * @return El contexto compartido
+     * @throws JAXBException Si no se puede crear el contexto
+     */
+    static JAXBContext contexto(Class<?> clase) throws JAXBException {
+        JAXBContext ctx = CONTEXTOS.get(clase);
+        if (ctx == null) {
+            ctx = JAXBContext.newInstance(clase);
+            JAXBContext previo = CONTEXTOS.putIfAbsent(clase, ctx);
+            if (previo != null) {
+                ctx = previo;
+            }
+        }
+        return ctx;
+    }
+
+    /**
+     * Serializa un objeto a archivo usando un Marshaller del pool.
+     *
+     * @param objeto  Objeto raíz a serializar
+     * @param destino Archivo destino
+     * @throws JAXBException Si ocurre un error al serializar
+     */
+    static void marshal(Object objeto, File destino) throws JAXBException {
+        Class<?> clase = objeto.getClass();
+        Queue<Marshaller> pool = MARSHALLERS.computeIfAbsent(clase, k -> new ConcurrentLinkedQueue<>());
+        Marshaller m = pool.poll();
+        if (m == null) {
+            m = contexto(clase).createMarshaller();
+            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+        }
+        try {
+            m.marshal(objeto, destino);
+        } finally {
+            pool.offer(m);
+        }
+    }
+
+    /**
+     * Deserializa un archivo usando un Unmarshaller del pool.
+     *
+     * @param clase  Clase raíz esperada
+     * @param origen Archivo a leer
+     * @param <T>    Tipo de la clase raíz
+     * @return El objeto leído
+     * @throws JAXBException Si ocurre un error al deserializar
+     */
+    static <T> T unmarshal(Class<T> clase, File origen) throws JAXBException {
+        Queue<Unmarshaller> pool = UNMARSHALLERS.computeIfAbsent(clase, k -> new ConcurrentLinkedQueue<>());
+        Unmarshaller u = pool.poll();
+        if (u == null) {
+            u = contexto(clase).createUnmarshaller();
+        }
+        try {
+            return clase.cast(u.unmarshal(origen));
+        } finally {
+            pool.offer(u);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package persistencia;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Códec StAX para los archivos Transacciones_&lt;numeroCuenta&gt;.xml.
+ * Permite recorrer, filtrar por fecha, escribir y agregar transacciones sin
+ * cargar el documento completo en memoria. Mantiene el mismo formato que
+ * produce JAXB para {@link TransaccionWrapper}, por lo que ambos son
+ * intercambiables.
+ */
+public final class TransaccionesStAX {
+    private static final DateTimeFormatter FMT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final String RAIZ = "transacciones";
+    private static final String ELEMENTO = "transaccion";
+    private static final String CIERRE = "</" + RAIZ + ">";
+    private static final XMLInputFactory ENTRADA = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory SALIDA = XMLOutputFactory.newInstance();
+
+    private TransaccionesStAX() { }
+
+    /**
+     * Iterador de solo avance sobre las transacciones de un archivo.
+     * Debe cerrarse al terminar para liberar el archivo.
+     */
+    public static final class Lector implements Iterator<Transaccion>, AutoCloseable {
+        private final InputStream in;
+        private final XMLStreamReader reader;
+        private final boolean tolerarCorte;
+        private boolean enRaiz;
+        private Transaccion siguiente;
+
+        private Lector(File archivo, boolean tolerarCorte) throws IOException, XMLStreamException {
+            this.in = new BufferedInputStream(new FileInputStream(archivo));
+            this.reader = ENTRADA.createXMLStreamReader(in);
+            this.tolerarCorte = tolerarCorte;
+            avanzar();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return siguiente != null;
+        }
+
+        @Override
+        public Transaccion next() {
+            if (siguiente == null) {
+                throw new NoSuchElementException();
+            }
+            Transaccion actual = siguiente;
+            avanzar();
+            return actual;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            } finally {
+                in.close();
+            }
+        }
+
+        private void avanzar() {
+            siguiente = null;
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    if (RAIZ.equals(reader.getLocalName())) {
+                        enRaiz = true;
+                    } else if (ELEMENTO.equals(reader.getLocalName())) {
+                        siguiente = leerTransaccion(reader);
+                        return;
+                    }
+                }
+            } catch (XMLStreamException e) {
+                // Un agregar() cortado deja el final a medias: valen las transacciones completas
+                if (tolerarCorte && enRaiz) {
+                    siguiente = null;
+                    return;
+                }
+                throw new IllegalStateException("Archivo de transacciones corrupto", e);
+            }
+        }
+    }
+
+    /**
+     * Abre un lector incremental sobre un archivo de transacciones. Si el archivo no
+     * termina en la etiqueta de cierre, porque una escritura de {@link #agregar} se
+     * cortó a la mitad, el lector termina en la última transacción completa.
+     *
+     * @param archivo Archivo a leer
+     * @return El lector, que debe cerrarse al terminar
+     * @throws IOException        Si no se puede abrir el archivo
+     * @throws XMLStreamException Si el XML es inválido
+     */
+    public static Lector abrir(File archivo) throws IOException, XMLStreamException {
+        return new Lector(archivo, posicionCierre(archivo) < 0);
+    }
+
+    /**
+     * Recorre las transacciones del archivo cuya fecha está en el rango indicado.
+     *
+     * @param archivo Archivo a leer (si no existe no se hace nada)
+     * @param desde   Fecha inicial inclusiva, o null para no acotar
+     * @param hasta   Fecha final exclusiva, o null para no acotar
+     * @param accion  Acción a ejecutar por cada transacción del rango
+     * @throws Exception Si ocurre un error de lectura
+     */
+    public static void recorrer(File archivo,
+                                LocalDateTime desde,
+                                LocalDateTime hasta,
+                                Consumer<Transaccion> accion) throws Exception {
+        if (!archivo.exists()) {
+            return;
+        }
+        try (Lector lector = abrir(archivo)) {
+            while (lector.hasNext()) {
+                Transaccion t = lector.next();
+                if (enRango(t.getFecha(), desde, hasta)) {
+                    accion.accept(t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe el archivo completo a partir de una secuencia de transacciones.
+     *
+     * @param archivo       Archivo destino (se reemplaza)
+     * @param transacciones Transacciones a escribir, en orden
+     * @throws Exception Si ocurre un error de escritura
+     */
+    public static void escribir(File archivo, Iterable<Transaccion> transacciones) throws Exception {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(archivo))) {
+            XMLStreamWriter w = SALIDA.createXMLStreamWriter(out, "UTF-8");
+            w.writeStartDocument("UTF-8", "1.0");
+            w.writeCharacters("\n");
+            w.writeStartElement(RAIZ);
+            for (Transaccion t : transacciones) {
+                escribirTransaccion(w, t);
+            }
+            w.writeCharacters("\n");
+            w.writeEndElement();
+            w.writeCharacters("\n");
+            w.writeEndDocument();
+            w.close();
+        }
+    }
+
+    /**
+     * Agrega transacciones al final del archivo sin leer ni reescribir las existentes.
+     * Los bytes nuevos se escriben sobre la etiqueta de cierre, sin truncar antes, y se
+     * sincronizan a disco. Si el archivo no existe o no termina en la etiqueta de cierre
+     * esperada, se reescribe completo de forma atómica; así una escritura anterior
+     * cortada a la mitad se recupera con sus transacciones completas y se vuelve a cerrar.
+     *
+     * @param archivo Archivo destino
+     * @param nuevas  Transacciones a agregar, en orden
+     * @throws Exception Si ocurre un error de escritura
+     */
+    public static void agregar(File archivo, Iterable<Transaccion> nuevas) throws Exception {
+        long posicion = archivo.exists() ? posicionCierre(archivo) : -1;
+        if (posicion < 0) {
+            List<Transaccion> todas = new ArrayList<>();
+            if (archivo.exists()) {
+                recorrer(archivo, null, null, todas::add);
+            }
+            nuevas.forEach(todas::add);
+            ArchivoAtomico.reemplazar(archivo, tmp -> escribir(tmp, todas));
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        XMLStreamWriter w = SALIDA.createXMLStreamWriter(buffer, "UTF-8");
+        for (Transaccion t : nuevas) {
+            escribirTransaccion(w, t);
+        }
+        w.flush();
+        w.close();
+        buffer.write(("\n" + CIERRE + "\n").getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = buffer.toByteArray();
+        try (RandomAccessFile raf = new RandomAccessFile(archivo, "rw")) {
+            raf.seek(posicion);
+            raf.write(bytes);
+            raf.setLength(posicion + bytes.length);
+            raf.getChannel().force(false);
+        }
+    }
+
+    // — Helpers privados —
+
+    /**
+     * Indica si la fecha cae en [desde, hasta); los extremos null no acotan.
+     */
+    static boolean enRango(LocalDateTime fecha, LocalDateTime desde, LocalDateTime hasta) {
+        if (fecha == null) {
+            return desde == null && hasta == null;
+        }
+        return (desde == null || !fecha.isBefore(desde))
+            && (hasta == null || fecha.isBefore(hasta));
+    }
+
+    /**
+     * Busca la posición de la etiqueta de cierre al final del archivo, ignorando espacios.
+     * Devuelve -1 si el archivo no termina con ella (por ejemplo, &lt;transacciones/&gt;).
+     */
+    private static long posicionCierre(File archivo) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(archivo, "r")) {
+            long largo = raf.length();
+            int cola = (int) Math.min(largo, 256);
+            byte[] fin = new byte[cola];
+            raf.seek(largo - cola);
+            raf.readFully(fin);
+            // La etiqueta de cierre es ASCII, así que se puede buscar directamente sobre los bytes
+            String texto = new String(fin, StandardCharsets.ISO_8859_1);
+            int indice = texto.lastIndexOf(CIERRE);
+            if (indice < 0 || !texto.substring(indice + CIERRE.length()).isBlank()) {
+                return -1;
+            }
+            // Retrocede también los espacios y saltos de línea previos al cierre
+            while (indice > 0 && Character.isWhitespace(texto.charAt(indice - 1))) {
+                indice--;
+            }
+            return largo - cola + indice;
+        }
+    }
+
+    private static Transaccion leerTransaccion(XMLStreamReader r) throws XMLStreamException {
+        TipoTransaccion tipo = null;
+        long monto = 0;
+        LocalDateTime fecha = null;
+        boolean cobroComision = false;
+        long montoComision = 0;
+        double tipoCambio = 0;
+        LocalDateTime fechaTipoCambio = null;
+        while (r.hasNext()) {
+            int evento = r.next();
+            if (evento == XMLStreamConstants.END_ELEMENT && ELEMENTO.equals(r.getLocalName())) {
+                break;
+            }
+            if (evento != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            String nombre = r.getLocalName();
+            String valor = r.getElementText().trim();
+            if (valor.isEmpty()) {
+                continue;
+            }
+            switch (nombre) {
+                case "tipo":
+                    tipo = TipoTransaccion.valueOf(valor);
+                    break;
+                case "monto":
+                    monto = Long.parseLong(valor);
+                    break;
+                case "fecha":
+                    fecha = LocalDateTime.parse(valor, FMT);
+                    break;
+                case "cobroComision":
+                    cobroComision = Boolean.parseBoolean(valor);
+                    break;
+                case "montoComision":
+                    montoComision = Long.parseLong(valor);
+                    break;
+                case "tipoCambio":
+                    tipoCambio = Double.parseDouble(valor);
+                    break;
+                case "fechaTipoCambio":
+                    fechaTipoCambio = LocalDateTime.parse(valor, FMT);
+                    break;
+                default:
+                    // Elementos desconocidos se ignoran para tolerar versiones futuras
+                    break;
+            }
+        }
+        return Transaccion.restaurar(tipo, monto, cobroComision, montoComision, fecha, tipoCambio, fechaTipoCambio);
+    }
+
+    private static void escribirTransaccion(XMLStreamWriter w, Transaccion t) throws XMLStreamException {
+        w.writeCharacters("\n    ");
+        w.writeStartElement(ELEMENTO);
+        if (t.getTipo() != null) {
+            escribirCampo(w, "tipo", t.getTipo().name());
+        }
+        escribirCampo(w, "monto", Long.toString(t.getMonto()));
+        if (t.getFecha() != null) {
+            escribirCampo(w, "fecha", t.getFecha().format(FMT));
+        }
+        escribirCampo(w, "cobroComision", Boolean.toString(t.isCobroComision()));
+        escribirCampo(w, "montoComision", Long.toString(t.getMontoComision()));
+        if (t.getTipoCambio() > 0) {
+            escribirCampo(w, "tipoCambio", Double.toString(t.getTipoCambio()));
+            if (t.getFechaTipoCambio() != null) {
+                escribirCampo(w, "fechaTipoCambio", t.getFechaTipoCambio().format(FMT));
+            }
+        }
+        w.writeCharacters("\n    ");
+        w.writeEndElement();
+    }
+
+    private static void escribirCampo(XMLStreamWriter w, String nombre, String valor) throws XMLStreamException {
+        w.writeCharacters("\n        ");
+        w.writeStartElement(nombre);
+        w.writeCharacters(valor);
+        w.writeEndElement();
+    }
+}
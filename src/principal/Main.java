@@ -1,10 +1,14 @@
 package principal;
 
 import javax.swing.SwingUtilities;
+import modelo.CanalSMSConsola;
+import modelo.ServicioSMS;
 import vista.VistaGUI;
 
 public class Main {
     public static void main(String[] args) {
+        // La aplicación de escritorio es un simulador: el código SMS se lee en la consola
+        ServicioSMS.configurar(new CanalSMSConsola());
         SwingUtilities.invokeLater(() -> {
             try {
                 new VistaGUI();
@@ -0,0 +1,158 @@
+package servidor;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Cliente de carga para {@link ServidorCajero}: simula muchos cajeros concurrentes,
+ * cada uno en un hilo virtual, que alternan depósitos y consultas de saldo sobre
+ * un conjunto de cuentas durante un tiempo fijo. Al terminar informa solicitudes
+ * por segundo y percentiles de latencia.
+ *
+ * Uso: ClienteCarga [url] [cajeros] [segundos] [cuentas]
+ * (por defecto http://localhost:8080, 64 cajeros, 10 segundos, 50 cuentas).
+ */
+public class ClienteCarga {
+    private static final String PIN = "123456";
+
+    private final HttpClient http = HttpClient.newBuilder()
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final String url;
+
+    /**
+     * Resultado de un cajero simulado.
+     */
+    private static final class Resultado {
+        private final List<Long> latenciasNanos = new ArrayList<>();
+        private long errores = 0;
+    }
+
+    public ClienteCarga(String url) {
+        this.url = url;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        int cajeros = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int segundos = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int cuentas = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        new ClienteCarga(url).ejecutar(cajeros, segundos, cuentas);
+    }
+
+    /**
+     * Prepara las cuentas, ejecuta la carga e imprime el resumen.
+     *
+     * @param cajeros  Cantidad de cajeros concurrentes
+     * @param segundos Duración de la carga
+     * @param cuentas  Cantidad de cuentas sobre las que se opera
+     * @throws Exception Si falla la preparación de los datos
+     */
+    public void ejecutar(int cajeros, int segundos, int cuentas) throws Exception {
+        List<String> numeros = prepararCuentas(cuentas);
+        long fin = System.nanoTime() + Duration.ofSeconds(segundos).toNanos();
+
+        List<Future<Resultado>> tareas = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < cajeros; i++) {
+                int semilla = i;
+                tareas.add(pool.submit(() -> cajero(numeros, fin, new Random(semilla))));
+            }
+        }
+        double transcurrido = (System.nanoTime() - inicio) / 1e9;
+
+        List<Long> latencias = new ArrayList<>();
+        long errores = 0;
+        for (Future<Resultado> f : tareas) {
+            Resultado r = f.get();
+            latencias.addAll(r.latenciasNanos);
+            errores += r.errores;
+        }
+        long[] ordenadas = latencias.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(ordenadas);
+        System.out.printf("Solicitudes: %d en %.1f s (%.0f por segundo), errores: %d%n",
+            ordenadas.length, transcurrido, ordenadas.length / transcurrido, errores);
+        System.out.printf("Latencia p50=%.2f ms, p99=%.2f ms, máx=%.2f ms%n",
+            percentil(ordenadas, 0.50), percentil(ordenadas, 0.99), percentil(ordenadas, 1.0));
+    }
+
+    // — Helpers privados —
+
+    private List<String> prepararCuentas(int cantidad) throws Exception {
+        String id = "CARGA" + System.currentTimeMillis();
+        exigir(enviar("/clientes", "nombre", "Cliente de carga", "identificacion", id,
+                      "telefono", "88888888", "email", "carga@banco.cr"));
+        List<String> numeros = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            numeros.add(exigir(enviar("/cuentas", "id", id, "pin", PIN, "monto", "100000")));
+        }
+        return numeros;
+    }
+
+    private static String exigir(HttpResponse<String> resp) {
+        if (resp.statusCode() != 200) {
+            throw new IllegalStateException("El servidor respondió " + resp.statusCode() + ": " + resp.body());
+        }
+        return resp.body();
+    }
+
+    private Resultado cajero(List<String> numeros, long fin, Random r) {
+        Resultado res = new Resultado();
+        boolean deposito = r.nextBoolean();
+        while (System.nanoTime() < fin) {
+            String numero = numeros.get(r.nextInt(numeros.size()));
+            long t0 = System.nanoTime();
+            try {
+                HttpResponse<String> resp = deposito
+                    ? enviar("/depositos", "numero", numero, "monto", "100")
+                    : enviar("/saldo", "numero", numero, "pin", PIN);
+                if (resp.statusCode() != 200) {
+                    res.errores++;
+                }
+            } catch (Exception e) {
+                res.errores++;
+            }
+            res.latenciasNanos.add(System.nanoTime() - t0);
+            deposito = !deposito;
+        }
+        return res;
+    }
+
+    private HttpResponse<String> enviar(String ruta, String... pares) throws Exception {
+        StringBuilder form = new StringBuilder();
+        for (int i = 0; i < pares.length; i += 2) {
+            if (form.length() > 0) {
+                form.append('&');
+            }
+            form.append(URLEncoder.encode(pares[i], StandardCharsets.UTF_8)).append('=')
+                .append(URLEncoder.encode(pares[i + 1], StandardCharsets.UTF_8));
+        }
+        HttpRequest req = HttpRequest.newBuilder(URI.create(url + ruta))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form.toString()))
+            .build();
+        return http.send(req, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int i = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(i, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,427 @@
+package servidor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import controlador.ControladorCajero;
+import controlador.RecifradoPines;
+import controlador.ServicioVerificacionPin;
+import excepciones.PinInvalidoException;
+import excepciones.SaldoInsuficienteException;
+import modelo.Cifrado;
+import modelo.FuenteTipoCambioHttp;
+import modelo.ProveedorTipoCambio;
+import modelo.ServicioBCCR;
+import modelo.TipoCambio;
+import modelo.Transaccion;
+import persistencia.PersistenciaJournal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Servidor HTTP local que expone las operaciones de {@link ControladorCajero}
+ * para que varios cajeros trabajen contra un mismo proceso. Cada solicitud se
+ * atiende en su propio hilo virtual. Solo escucha en la interfaz de loopback.
+ *
+ * Todas las operaciones se invocan con POST y parámetros en el cuerpo con formato
+ * application/x-www-form-urlencoded; los de la URL se ignoran, para que el PIN o la
+ * sesión no queden en registros de acceso. /tipo-cambio también acepta GET. La respuesta es texto plano: el resultado de la
+ * operación con código 200, o el mensaje de error con 400 (datos inválidos),
+ * 401 (PIN incorrecto o cuenta bloqueada), 404 (ruta desconocida),
+ * 409 (saldo insuficiente o cuenta inactiva), 503 (verificación de PIN saturada
+ * o vencida, o tipo de cambio no disponible) o 500.
+ *
+ * Las operaciones que reciben un PIN se ejecutan en el {@link ServicioVerificacionPin},
+ * con su pool y su cola limitados, para que un pico de solicitudes no dispare
+ * verificaciones sin límite; las que usan una sesión no verifican PIN.
+ *
+ * El código SMS de una transferencia se pide antes con /sms y el servidor lo
+ * conserva por cuenta hasta usarlo, como hace la interfaz gráfica.
+ *
+ * /sesiones verifica el PIN una vez y devuelve un token de sesión; /saldo,
+ * /retiros, /retiros-usd, /transacciones (también con "limite") y /estado aceptan
+ * ese token en el parámetro "sesion" en lugar de número y PIN, hasta cerrarlo con
+ * /cerrar-sesion o que venza.
+ *
+ * /retiros, /retiros-usd y /transferencias aceptan un parámetro opcional
+ * "clave" de idempotencia: si la terminal reintenta con la misma clave, la
+ * operación no se aplica de nuevo y se responde con el resultado original. La
+ * misma clave con otro monto o destino responde 400, y mientras la operación
+ * original no se ha guardado, 409.
+ *
+ * Uso: ServidorCajero [puerto] [urlTipoCambio]. Con una URL, el tipo de cambio se
+ * toma de ese servicio (por ejemplo el ServidorTipoCambioSimulado de las pruebas)
+ * con cache y refresco en segundo plano; sin ella se usa la fuente simulada de
+ * ServicioBCCR.
+ */
+public class ServidorCajero {
+    private static final int PUERTO_POR_DEFECTO = 8080;
+    private static final int COLA_VERIFICACION = 1000;
+    private static final long TIMEOUT_VERIFICACION_MS = 2000;
+    private static final long TTL_TIPO_CAMBIO_MS = 60_000;
+    private static final long OBSOLETO_TIPO_CAMBIO_MS = 5 * 60_000;
+    private static final long TIMEOUT_TIPO_CAMBIO_MS = 2000;
+
+    /**
+     * Operación expuesta en una ruta: recibe los parámetros y devuelve el cuerpo de la respuesta.
+     */
+    @FunctionalInterface
+    private interface Operacion {
+        String ejecutar(Parametros p) throws Exception;
+    }
+
+    /**
+     * Parámetros de una solicitud, leídos solo del cuerpo del formulario. Pedir uno
+     * obligatorio que no viene responde 400 en lugar de llegar nulo al controlador.
+     */
+    private static final class Parametros {
+        private final Map<String, String> valores;
+
+        private Parametros(Map<String, String> valores) {
+            this.valores = valores;
+        }
+
+        private boolean contiene(String nombre) {
+            return valores.containsKey(nombre);
+        }
+
+        private String texto(String nombre) {
+            String valor = valores.get(nombre);
+            if (valor == null) {
+                throw new IllegalArgumentException("Falta el parámetro: " + nombre);
+            }
+            return valor;
+        }
+
+        private String opcional(String nombre) {
+            return valores.get(nombre);
+        }
+
+        private long entero(String nombre) {
+            try {
+                return Long.parseLong(texto(nombre).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Parámetro numérico inválido: " + nombre);
+            }
+        }
+
+        private double decimal(String nombre) {
+            try {
+                return Double.parseDouble(texto(nombre).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Parámetro numérico inválido: " + nombre);
+            }
+        }
+    }
+
+    private final ControladorCajero ctrl;
+    private final ServicioVerificacionPin verificador;
+    private final HttpServer http;
+    private final ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Último código SMS enviado por cuenta origen, pendiente de usar en una transferencia
+    private final Map<String, String> codigosSms = new ConcurrentHashMap<>();
+
+    /**
+     * Crea el servidor; no atiende solicitudes hasta llamar a {@link #iniciar()}.
+     *
+     * @param ctrl   Controlador compartido por todos los cajeros
+     * @param puerto Puerto local donde escuchar (0 para uno libre)
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public ServidorCajero(ControladorCajero ctrl, int puerto) throws IOException {
+        this(ctrl, puerto, new ServicioVerificacionPin(ctrl, Runtime.getRuntime().availableProcessors(),
+                                                       COLA_VERIFICACION, TIMEOUT_VERIFICACION_MS));
+    }
+
+    /**
+     * Crea el servidor con un servicio de verificación de PIN propio para los
+     * inicios de sesión y las operaciones que reciben un PIN.
+     *
+     * @param ctrl         Controlador compartido por todos los cajeros
+     * @param puerto       Puerto local donde escuchar (0 para uno libre)
+     * @param verificador  Servicio que acota las verificaciones de PIN
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public ServidorCajero(ControladorCajero ctrl, int puerto, ServicioVerificacionPin verificador) throws IOException {
+        this.ctrl = ctrl;
+        this.verificador = verificador;
+        this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), puerto), 0);
+        this.http.setExecutor(hilos);
+        registrarOperaciones();
+    }
+
+    /**
+     * Comienza a atender solicitudes.
+     */
+    public void iniciar() {
+        http.start();
+    }
+
+    /**
+     * Deja de aceptar conexiones y espera hasta un segundo a que terminen las solicitudes en curso.
+     */
+    public void detener() {
+        http.stop(1);
+        hilos.shutdown();
+        try {
+            verificador.cerrar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Obtiene el puerto donde escucha el servidor.
+     *
+     * @return Puerto local
+     */
+    public int getPuerto() {
+        return http.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : PUERTO_POR_DEFECTO;
+        if (args.length > 1) {
+            // Servicio de tipo de cambio externo (o ServidorTipoCambioSimulado)
+            ProveedorTipoCambio tipoCambio = new ProveedorTipoCambio(
+                new FuenteTipoCambioHttp(URI.create(args[1]), TIMEOUT_TIPO_CAMBIO_MS),
+                TTL_TIPO_CAMBIO_MS, OBSOLETO_TIPO_CAMBIO_MS);
+            tipoCambio.iniciar();
+            ServicioBCCR.configurar(tipoCambio);
+        }
+        PersistenciaJournal persistencia = new PersistenciaJournal();
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        ServidorCajero servidor = new ServidorCajero(ctrl, puerto);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.detener();
+            try {
+                persistencia.cerrar();
+            } catch (Exception e) {
+                System.err.println("ERROR: No se pudo cerrar el diario: " + e.getMessage());
+            }
+        }, "detener-servidor"));
+        servidor.iniciar();
+        System.out.println("Cajero escuchando en el puerto " + servidor.getPuerto());
+
+        // Si se activó una clave nueva, los PIN se migran mientras el cajero atiende
+        RecifradoPines recifrado = new RecifradoPines(ctrl, 2, 500, 100);
+        recifrado.iniciar().whenComplete((n, e) -> {
+            if (e != null) {
+                System.err.println("ERROR: Se detuvo el recifrado de PIN: " + e.getMessage());
+            } else if (n > 0) {
+                System.out.println("PIN cifrados de nuevo con la clave " + Cifrado.getVersionActual() + ": " + n);
+            }
+        });
+    }
+
+    // — Helpers privados —
+
+    private void registrarOperaciones() {
+        registrar("/clientes", p -> {
+            ctrl.crearCliente(p.texto("nombre"), p.texto("identificacion"), p.texto("telefono"), p.texto("email"));
+            return "OK";
+        });
+        registrar("/cuentas", p ->
+            conPin(() -> ctrl.crearCuenta(p.texto("id"), p.texto("pin"), p.entero("monto"))));
+        registrar("/cuentas-cliente", p ->
+            String.join("\n", ctrl.consultarCuentasCliente(p.texto("id"))));
+        registrar("/pin", p -> conPin(() -> {
+            ctrl.cambiarPin(p.texto("numero"), p.texto("pin"), p.texto("pinNuevo"));
+            return "OK";
+        }));
+        registrar("/depositos", p -> {
+            ctrl.depositarColones(p.texto("numero"), p.entero("monto"));
+            return "OK";
+        });
+        registrar("/depositos-usd", p ->
+            ctrl.depositarDolares(p.texto("numero"), p.decimal("monto")).toString());
+        registrar("/retiros", p -> (p.contiene("sesion")
+            ? ctrl.retirarConSmsSesion(p.texto("sesion"), p.texto("sms"), p.entero("monto"), p.opcional("clave"))
+            : conPin(() -> ctrl.retirarConSms(p.texto("numero"), p.texto("pin"), p.texto("sms"), p.entero("monto"),
+                                              p.opcional("clave")))).toString());
+        registrar("/retiros-usd", p -> (p.contiene("sesion")
+            ? ctrl.retirarDolaresSesion(p.texto("sesion"), p.texto("sms"), p.decimal("monto"), p.opcional("clave"))
+            : conPin(() -> ctrl.retirarDolares(p.texto("numero"), p.texto("pin"), p.texto("sms"), p.decimal("monto"),
+                                               p.opcional("clave")))).toString());
+        registrar("/saldo", p -> p.contiene("sesion")
+            ? String.valueOf(ctrl.consultarSaldoSesion(p.texto("sesion")))
+            : conPin(() -> String.valueOf(ctrl.consultarSaldo(p.texto("numero"), p.texto("pin")))));
+        registrar("/saldo-usd", p ->
+            conPin(() -> String.valueOf(ctrl.consultarSaldoDolares(p.texto("numero"), p.texto("pin")))));
+        registrar("/transacciones", p -> {
+            // Con "limite" se devuelve una página, la más reciente primero
+            List<Transaccion> lista;
+            if (p.contiene("limite")) {
+                int desplazamiento = p.contiene("desplazamiento") ? (int) p.entero("desplazamiento") : 0;
+                int limite = (int) p.entero("limite");
+                lista = p.contiene("sesion")
+                    ? ctrl.consultarTransaccionesPaginaSesion(p.texto("sesion"), null, null, desplazamiento, limite)
+                    : conPin(() -> ctrl.consultarTransaccionesPagina(p.texto("numero"), p.texto("pin"), null, null,
+                                                                     desplazamiento, limite));
+            } else {
+                lista = p.contiene("sesion")
+                    ? ctrl.consultarTransaccionesSesion(p.texto("sesion"))
+                    : conPin(() -> ctrl.consultarTransacciones(p.texto("numero"), p.texto("pin")));
+            }
+            StringBuilder sb = new StringBuilder();
+            for (Transaccion t : lista) {
+                sb.append(t).append('\n');
+            }
+            return sb.toString();
+        });
+        registrar("/estado", p -> p.contiene("sesion")
+            ? ctrl.obtenerEstadoCuentaSesion(p.texto("sesion"))
+            : conPin(() -> ctrl.obtenerEstadoCuenta(p.texto("numero"), p.texto("pin"))));
+        registrar("/sesiones", p ->
+            esperar(verificador.iniciarSesion(p.texto("numero"), p.texto("pin"))));
+        registrar("/cerrar-sesion", p -> {
+            ctrl.cerrarSesion(p.texto("sesion"));
+            return "OK";
+        });
+        registrar("/sms", p -> {
+            codigosSms.put(p.texto("numero"), ctrl.enviarMensaje(p.texto("numero")));
+            return "OK";
+        });
+        registrar("/transferencias", p -> {
+            String origen = p.texto("origen");
+            String codigo = codigosSms.remove(origen);
+            // Un reintento con clave ya no tiene código pendiente: lo resuelve la clave
+            if (codigo == null && p.opcional("clave") == null) {
+                throw new IllegalArgumentException("Debe solicitar un código SMS antes de transferir");
+            }
+            return conPin(() -> {
+                ctrl.transferir(origen, p.texto("pin"), p.texto("sms"), p.texto("destino"), p.entero("monto"), codigo,
+                                p.opcional("clave"));
+                return "OK";
+            });
+        });
+        registrar("/telefono", p -> {
+            ctrl.cambiarTelefono(p.texto("id"), p.texto("telefono"));
+            return "OK";
+        });
+        registrar("/email", p -> {
+            ctrl.cambiarEmail(p.texto("id"), p.texto("email"));
+            return "OK";
+        });
+        registrar("/eliminar", p -> conPin(() -> {
+            ctrl.eliminarCuenta(p.texto("numero"), p.texto("pin"));
+            return "OK";
+        }));
+        registrar("/tipo-cambio", p -> {
+            TipoCambio tc = ctrl.getTipoCambio();
+            return "compra=" + tc.getCompra() + "\nventa=" + tc.getVenta();
+        });
+    }
+
+    private void registrar(String ruta, Operacion operacion) {
+        boolean admiteGet = ruta.equals("/tipo-cambio");
+        http.createContext(ruta, intercambio -> {
+            try (intercambio) {
+                String metodo = intercambio.getRequestMethod();
+                if (!metodo.equals("POST") && !(admiteGet && metodo.equals("GET"))) {
+                    responder(intercambio, 405, "Método no permitido");
+                    return;
+                }
+                if (!intercambio.getRequestURI().getPath().equals(ruta)) {
+                    responder(intercambio, 404, "Operación desconocida");
+                    return;
+                }
+                int estado = 200;
+                String cuerpo;
+                try {
+                    cuerpo = operacion.ejecutar(parametros(intercambio));
+                } catch (RejectedExecutionException | TimeoutException | WebServiceException e) {
+                    estado = 503;
+                    cuerpo = e.getMessage() == null ? "Servicio ocupado" : e.getMessage();
+                } catch (PinInvalidoException e) {
+                    estado = 401;
+                    cuerpo = e.getMessage();
+                } catch (SaldoInsuficienteException | IllegalStateException e) {
+                    estado = 409;
+                    cuerpo = e.getMessage();
+                } catch (IllegalArgumentException e) {
+                    estado = 400;
+                    cuerpo = e.getMessage();
+                } catch (Exception e) {
+                    estado = 500;
+                    cuerpo = "Error interno: " + e.getMessage();
+                }
+                responder(intercambio, estado, cuerpo);
+            }
+        });
+    }
+
+    private static Parametros parametros(HttpExchange intercambio) throws IOException {
+        Map<String, String> p = new HashMap<>();
+        try (InputStream in = intercambio.getRequestBody()) {
+            leerFormulario(new String(in.readAllBytes(), StandardCharsets.UTF_8), p);
+        }
+        return new Parametros(p);
+    }
+
+    private static void leerFormulario(String texto, Map<String, String> p) {
+        if (texto == null || texto.isEmpty()) {
+            return;
+        }
+        for (String par : texto.split("&")) {
+            int igual = par.indexOf('=');
+            String clave = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            p.put(URLDecoder.decode(clave, StandardCharsets.UTF_8),
+                  URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Ejecuta una operación que recibe un PIN en el servicio de verificación, para
+     * que un pico de solicitudes con PIN quede acotado igual que los inicios de sesión.
+     */
+    private <T> T conPin(Callable<T> operacion) throws Exception {
+        return esperar(verificador.ejecutar(operacion));
+    }
+
+    /**
+     * Espera el resultado de una operación asíncrona y relanza su causa original.
+     */
+    private static <T> T esperar(CompletableFuture<T> futuro) throws Exception {
+        try {
+            return futuro.get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof Exception ex) {
+                throw ex;
+            }
+            throw e;
+        }
+    }
+
+    private static void responder(HttpExchange intercambio, int estado, String cuerpo) throws IOException {
+        byte[] datos = (cuerpo == null ? "" : cuerpo).getBytes(StandardCharsets.UTF_8);
+        intercambio.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        intercambio.sendResponseHeaders(estado, datos.length == 0 ? -1 : datos.length);
+        if (datos.length > 0) {
+            try (OutputStream out = intercambio.getResponseBody()) {
+                out.write(datos);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package util;
+
+import java.io.File;
+
+/**
+ * Punto de acceso al registro de auditoría por defecto de la aplicación.
+ *
+ * El registro escribe en "auditoria.log" (rota a los 10 MB y conserva 5 archivos
+ * anteriores) y se crea con el primer evento. Al terminar la JVM se escriben los
+ * eventos pendientes.
+ */
+public final class Auditoria {
+    private static final String ARCHIVO = "auditoria.log";
+    private static final int CAPACIDAD = 8192;
+    private static final long TAMANO_MAXIMO = 10L * 1024 * 1024;
+    private static final int ARCHIVOS_ANTERIORES = 5;
+
+    private Auditoria() { }
+
+    // Se crea al primer uso; la clase interna garantiza una sola instancia sin sincronizar
+    private static final class Instancia {
+        private static final RegistroAuditoria REGISTRO =
+            new RegistroAuditoria(new File(ARCHIVO), CAPACIDAD, TAMANO_MAXIMO, ARCHIVOS_ANTERIORES);
+        static {
+            REGISTRO.iniciar();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    REGISTRO.cerrar();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "auditoria-cierre"));
+        }
+    }
+
+    /**
+     * Registra un evento de auditoría sin bloquear al hilo que llama.
+     *
+     * @param tipo    Tipo de evento
+     * @param cuenta  Número de cuenta relacionado, o null
+     * @param detalle Datos adicionales sin secretos, o null
+     */
+    public static void registrar(String tipo, String cuenta, String detalle) {
+        Instancia.REGISTRO.registrar(tipo, cuenta, detalle);
+    }
+
+    /**
+     * Obtiene la cantidad de eventos descartados por tener el buffer lleno.
+     *
+     * @return Eventos descartados
+     */
+    public static long getDescartados() {
+        return Instancia.REGISTRO.getDescartados();
+    }
+}
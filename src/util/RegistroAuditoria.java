@@ -0,0 +1,267 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de eventos de auditoría con escritura en segundo plano.
+ *
+ * Quien registra un evento solo lo deja en un buffer circular sin cerrojos y
+ * sigue; un hilo escritor lo toma y lo agrega al archivo. Si el buffer está lleno
+ * el evento se descarta y se cuenta, de modo que registrar nunca bloquea.
+ *
+ * Cada evento es una línea "fecha|tipo|cuenta|hilo|detalle". El archivo rota
+ * al superar un tamaño: el actual pasa a ser &lt;archivo&gt;.1, el .1 pasa a .2,
+ * y así hasta la cantidad de archivos anteriores que se conservan.
+ *
+ * Los eventos no deben llevar PIN, códigos SMS ni otros secretos.
+ */
+public class RegistroAuditoria {
+    private static final long ESPERA_VACIO_NANOS = 5_000_000;
+
+    /**
+     * Evento pendiente de escribir.
+     */
+    private static final class Evento {
+        private final long fechaMillis;
+        private final String tipo;
+        private final String cuenta;
+        private final String hilo;
+        private final String detalle;
+
+        private Evento(String tipo, String cuenta, String detalle) {
+            this.fechaMillis = System.currentTimeMillis();
+            this.tipo = tipo;
+            this.cuenta = cuenta;
+            this.hilo = Thread.currentThread().getName();
+            this.detalle = detalle;
+        }
+    }
+
+    private final File archivo;
+    private final long tamanoMaximo;
+    private final int archivosAnteriores;
+
+    // Buffer circular con muchos productores y el escritor como único consumidor
+    private final int mascara;
+    private final AtomicReferenceArray<Evento> celdas;
+    private final AtomicLongArray secuencias;
+    private final AtomicLong siguienteProductor = new AtomicLong();
+    private long siguienteConsumidor = 0;
+
+    private final LongAdder descartados = new LongAdder();
+    private final AtomicLong escritos = new AtomicLong();
+    private Thread escritor;
+    private volatile boolean activo = true;
+
+    private BufferedWriter salida;
+    private long tamanoActual;
+
+    /**
+     * Crea el registro. Acepta eventos desde ya, pero no los escribe hasta llamar
+     * a {@link #iniciar()}.
+     *
+     * @param archivo            Archivo de auditoría
+     * @param capacidad          Eventos que caben en el buffer; se redondea a potencia de dos
+     * @param tamanoMaximo       Tamaño en bytes a partir del cual el archivo rota
+     * @param archivosAnteriores Cantidad de archivos rotados que se conservan
+     */
+    public RegistroAuditoria(File archivo, int capacidad, long tamanoMaximo, int archivosAnteriores) {
+        if (capacidad <= 0 || tamanoMaximo <= 0 || archivosAnteriores < 0) {
+            throw new IllegalArgumentException("Parámetros de auditoría inválidos");
+        }
+        this.archivo = archivo;
+        this.tamanoMaximo = tamanoMaximo;
+        this.archivosAnteriores = archivosAnteriores;
+        int tamano = capacidad == 1 ? 1 : Integer.highestOneBit(capacidad - 1) << 1;
+        this.mascara = tamano - 1;
+        this.celdas = new AtomicReferenceArray<>(tamano);
+        this.secuencias = new AtomicLongArray(tamano);
+        for (int i = 0; i < tamano; i++) {
+            secuencias.set(i, i);
+        }
+    }
+
+    /**
+     * Arranca el hilo escritor.
+     */
+    public synchronized void iniciar() {
+        if (escritor != null) {
+            return;
+        }
+        escritor = new Thread(this::escribir, "auditoria");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Registra un evento sin esperar a que se escriba.
+     *
+     * @param tipo    Tipo de evento (por ejemplo PIN_FALLIDO)
+     * @param cuenta  Número de cuenta relacionado, o null
+     * @param detalle Datos adicionales sin secretos, o null
+     * @return true si el evento quedó en el buffer; false si se descartó por estar lleno o cerrado
+     */
+    public boolean registrar(String tipo, String cuenta, String detalle) {
+        if (!activo) {
+            descartados.increment();
+            return false;
+        }
+        Evento evento = new Evento(tipo, cuenta, detalle);
+        while (true) {
+            long pos = siguienteProductor.get();
+            int i = (int) (pos & mascara);
+            long diferencia = secuencias.get(i) - pos;
+            if (diferencia == 0) {
+                if (siguienteProductor.compareAndSet(pos, pos + 1)) {
+                    celdas.set(i, evento);
+                    secuencias.set(i, pos + 1);
+                    return true;
+                }
+            } else if (diferencia < 0) {
+                // Lleno: se descarta en lugar de esperar al escritor
+                descartados.increment();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Deja de aceptar eventos, escribe los pendientes y cierra el archivo. Si el
+     * escritor no se inició, los pendientes se escriben en el hilo que llama.
+     */
+    public synchronized void cerrar() throws InterruptedException {
+        if (!activo) {
+            return;
+        }
+        activo = false;
+        if (escritor == null) {
+            escribir();
+            return;
+        }
+        LockSupport.unpark(escritor);
+        escritor.join();
+    }
+
+    /**
+     * Obtiene la cantidad de eventos descartados por tener el buffer lleno.
+     *
+     * @return Eventos descartados
+     */
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    public long getEscritos() {
+        return escritos.get();
+    }
+
+    // — Helpers privados —
+
+    private void escribir() {
+        try {
+            while (true) {
+                boolean seguir = activo;
+                int tomados = escribirDisponibles();
+                if (tomados == 0) {
+                    if (!seguir) {
+                        break;
+                    }
+                    if (salida != null) {
+                        salida.flush();
+                    }
+                    LockSupport.parkNanos(this, ESPERA_VACIO_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            activo = false;
+            System.err.println("ERROR: Se detuvo el registro de auditoría: " + e.getMessage());
+        } finally {
+            try {
+                if (salida != null) {
+                    salida.close();
+                }
+            } catch (IOException e) {
+                System.err.println("ERROR: No se pudo cerrar el registro de auditoría: " + e.getMessage());
+            }
+        }
+    }
+
+    private int escribirDisponibles() throws IOException {
+        int tomados = 0;
+        while (true) {
+            int i = (int) (siguienteConsumidor & mascara);
+            if (secuencias.get(i) != siguienteConsumidor + 1) {
+                return tomados;
+            }
+            Evento e = celdas.get(i);
+            celdas.set(i, null);
+            secuencias.set(i, siguienteConsumidor + mascara + 1);
+            siguienteConsumidor++;
+            escribirLinea(formatear(e));
+            tomados++;
+        }
+    }
+
+    private void escribirLinea(String linea) throws IOException {
+        if (salida == null) {
+            abrir();
+        } else if (tamanoActual >= tamanoMaximo) {
+            rotar();
+        }
+        salida.write(linea);
+        salida.newLine();
+        // Aproximado en caracteres; basta para decidir cuándo rotar
+        tamanoActual += linea.length() + 1;
+        escritos.incrementAndGet();
+    }
+
+    private void abrir() throws IOException {
+        tamanoActual = archivo.exists() ? archivo.length() : 0;
+        salida = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(archivo, true), StandardCharsets.UTF_8));
+    }
+
+    private void rotar() throws IOException {
+        salida.close();
+        salida = null;
+        if (archivosAnteriores == 0) {
+            archivo.delete();
+        } else {
+            new File(archivo.getPath() + "." + archivosAnteriores).delete();
+            for (int n = archivosAnteriores - 1; n >= 1; n--) {
+                File anterior = new File(archivo.getPath() + "." + n);
+                if (anterior.exists()) {
+                    anterior.renameTo(new File(archivo.getPath() + "." + (n + 1)));
+                }
+            }
+            archivo.renameTo(new File(archivo.getPath() + ".1"));
+        }
+        abrir();
+    }
+
+    private static String formatear(Evento e) {
+        LocalDateTime fecha = LocalDateTime.ofInstant(Instant.ofEpochMilli(e.fechaMillis), ZoneId.systemDefault());
+        return fecha + "|" + limpiar(e.tipo) + "|" + limpiar(e.cuenta) + "|" + limpiar(e.hilo) + "|" + limpiar(e.detalle);
+    }
+
+    private static String limpiar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        // Una línea por evento: sin saltos ni separadores dentro de los campos
+        return texto.replace('|', '/').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -1,6 +1,8 @@
 package vista;
 
 import controlador.ControladorCajero;
+import modelo.CanalSMSConsola;
+import modelo.ServicioSMS;
 import modelo.Transaccion;
 import modelo.Validacion;
 import persistencia.PersistenciaXML;
@@ -691,6 +693,8 @@ private JPanel crearPanelEliminarCuenta() {
     }
 
     public static void main(String[] args) {
+        // El código SMS se lee en la consola, como en principal.Main
+        ServicioSMS.configurar(new CanalSMSConsola());
         SwingUtilities.invokeLater(() -> {
             try {
                 new VistaGUI();
@@ -0,0 +1,87 @@
+package controlador;
+
+import modelo.Cliente;
+import modelo.Cuenta;
+import persistencia.Persistencia;
+import persistencia.PersistenciaXML;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mide el tiempo de {@link ControladorCajero#cargarTodosLosHistoriales}:
+ * un solo hilo (como la carga secuencial anterior), un pool fijo y un hilo
+ * virtual por cuenta. Genera el conjunto de datos con {@link PersistenciaXML} en
+ * un directorio temporal que se borra al terminar, y comprueba que cada carga
+ * trae todos los movimientos.
+ *
+ * Uso: BenchmarkCargadorHistoriales [cuentas] [movimientosPorCuenta] [hilos]
+ * (por defecto 100000 cuentas con 20 movimientos)
+ */
+public class BenchmarkCargadorHistoriales {
+    private static final String PIN = "123456";
+
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int movimientos = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int hilos = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        File directorio = Files.createTempDirectory("cargador-historiales").toFile();
+        try {
+            Persistencia persistencia = new PersistenciaXML(directorio);
+            generar(persistencia, cantidad, movimientos);
+            System.out.printf("%d cuentas con %d movimientos%n", cantidad, movimientos);
+
+            // Una carga sin medir para que la primera medición no pague el calentamiento de la JVM
+            new ControladorCajero(persistencia).cargarTodosLosHistoriales(hilos, null);
+            medir("Secuencial (1 hilo)", persistencia, 1, movimientos);
+            medir("Pool de " + hilos + " hilos", persistencia, hilos, movimientos);
+            medir("Hilos virtuales", persistencia, 0, movimientos);
+        } finally {
+            borrar(directorio);
+        }
+    }
+
+    private static void borrar(File directorio) {
+        File[] archivos = directorio.listFiles();
+        if (archivos != null) {
+            for (File f : archivos) {
+                f.delete();
+            }
+        }
+        directorio.delete();
+    }
+
+    private static void generar(Persistencia persistencia, int cantidad, int movimientos) throws Exception {
+        Cliente dueno = new Cliente("Ana", "1", "88888888", "ana@correo.com");
+        List<Cuenta> cuentas = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Cuenta c = new Cuenta(dueno, PIN, 100_000);
+            // El depósito inicial cuenta como el primer movimiento
+            for (int m = 1; m < movimientos; m++) {
+                c.depositar(100);
+            }
+            persistencia.guardarTransacciones(c.getNumeroCuenta(), c.tomarPendientes());
+            cuentas.add(c);
+        }
+        persistencia.guardarClientes(List.of(dueno));
+        persistencia.guardarCuentas(cuentas);
+    }
+
+    private static void medir(String nombre, Persistencia persistencia, int hilos, int movimientos) throws Exception {
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        long inicio = System.nanoTime();
+        ctrl.cargarTodosLosHistoriales(hilos, null);
+        double ms = (System.nanoTime() - inicio) / 1e6;
+        for (Cuenta c : ctrl.cuentasRegistradas()) {
+            if (c.getTransacciones().size() != movimientos) {
+                System.err.println("FALLA: la cuenta " + c.getNumeroCuenta() + " cargó "
+                                   + c.getTransacciones().size() + " de " + movimientos + " movimientos");
+                System.exit(1);
+            }
+        }
+        System.out.printf("%-22s %8.0f ms%n", nombre, ms);
+    }
+}
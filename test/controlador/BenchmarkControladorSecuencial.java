@@ -0,0 +1,93 @@
+package controlador;
+
+import persistencia.PersistenciaMemoria;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compara el rendimiento de depósitos concurrentes aplicados directamente sobre
+ * {@link ControladorCajero} (cerrojos por cuenta, una escritura por operación o
+ * compartida entre las que esperan) contra {@link ControladorSecuencial} (un
+ * escritor, una escritura por lote), con un disco simulado de demora fija.
+ *
+ * Uso: BenchmarkControladorSecuencial [hilos] [operacionesPorHilo] [demoraMs] [cuentas]
+ */
+public class BenchmarkControladorSecuencial {
+    private static final String PIN = "123456";
+
+    /**
+     * Depósito de prueba sobre una de las dos variantes.
+     */
+    @FunctionalInterface
+    private interface Deposito {
+        void depositar(String numeroCuenta, long monto) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int hilos = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int porHilo = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        long demora = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        int cuentas = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        System.out.printf("%d hilos x %d depósitos, disco de %d ms, %d cuentas%n", hilos, porHilo, demora, cuentas);
+
+        PersistenciaMemoria p1 = new PersistenciaMemoria();
+        ControladorCajero directo = new ControladorCajero(p1);
+        List<String> n1 = preparar(directo, cuentas);
+        p1.setDemoraMillis(demora);
+        medir("Cerrojos por cuenta", hilos, porHilo, n1, directo::depositarColones);
+
+        PersistenciaMemoria p2 = new PersistenciaMemoria();
+        ControladorCajero base = new ControladorCajero(p2);
+        List<String> n2 = preparar(base, cuentas);
+        p2.setDemoraMillis(demora);
+        ControladorSecuencial sec = new ControladorSecuencial(base);
+        try {
+            medir("Escritor secuencial", hilos, porHilo, n2, sec::depositarColones);
+        } finally {
+            sec.cerrar();
+        }
+        System.out.printf("  lotes=%d promedio=%.1f máximo=%d%n",
+                          sec.getLotes(), sec.getTamanoPromedioLote(), sec.getLoteMaximo());
+    }
+
+    private static List<String> preparar(ControladorCajero ctrl, int cuentas) throws Exception {
+        ctrl.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        List<String> numeros = new ArrayList<>();
+        for (int i = 0; i < cuentas; i++) {
+            numeros.add(ctrl.crearCuenta("1", PIN, 10_000));
+        }
+        return numeros;
+    }
+
+    private static void medir(String nombre, int hilos, int porHilo, List<String> numeros,
+                              Deposito deposito) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        List<Future<?>> tareas = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try {
+            for (int h = 0; h < hilos; h++) {
+                tareas.add(pool.submit(() -> {
+                    ThreadLocalRandom azar = ThreadLocalRandom.current();
+                    for (int i = 0; i < porHilo; i++) {
+                        deposito.depositar(numeros.get(azar.nextInt(numeros.size())), 100);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> t : tareas) {
+                t.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        long total = (long) hilos * porHilo;
+        System.out.printf("%-20s %6d ops en %6.2f s = %8.0f ops/s%n", nombre, total, segundos, total / segundos);
+    }
+}
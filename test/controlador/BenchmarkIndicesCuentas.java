@@ -0,0 +1,82 @@
+package controlador;
+
+import modelo.Cliente;
+import modelo.Cuenta;
+import modelo.EstadoCuenta;
+import persistencia.PersistenciaMemoria;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mide la búsqueda de cuentas de {@link ControladorCajero} con muchas cuentas
+ * cargadas: el índice por número y por dueño contra el recorrido lineal de la
+ * lista que hacía antes buscarCuenta. También mide la reconstrucción de los
+ * índices al cargar.
+ *
+ * Uso: BenchmarkIndicesCuentas [cuentas] [busquedas]
+ * (con 1000000 cuentas conviene -Xmx2g).
+ */
+public class BenchmarkIndicesCuentas {
+    private static final int CUENTAS_POR_CLIENTE = 4;
+
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int busquedas = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        PersistenciaMemoria persistencia = new PersistenciaMemoria();
+        List<Cliente> clientes = new ArrayList<>();
+        List<Cuenta> cuentas = new ArrayList<>(cantidad);
+        // El PIN cifrado se comparte: cifrar uno por cuenta solo alarga la preparación
+        String pinCifrado = new Cuenta(new Cliente("Ana", "0", "88888888", "ana@correo.com"), "123456", 1).getPinCifrado();
+        LocalDateTime ahora = LocalDateTime.now();
+        Cliente dueno = null;
+        for (int i = 0; i < cantidad; i++) {
+            if (i % CUENTAS_POR_CLIENTE == 0) {
+                dueno = new Cliente("Ana", "ID" + i, "88888888", "ana@correo.com");
+                clientes.add(dueno);
+            }
+            cuentas.add(Cuenta.restaurar("N" + i, ahora, EstadoCuenta.ACTIVA, 1_000, dueno, pinCifrado, 3, 1));
+        }
+        persistencia.guardarClientes(clientes);
+        persistencia.guardarCuentas(cuentas);
+
+        long inicio = System.nanoTime();
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        System.out.printf("%d cuentas cargadas e indexadas en %.0f ms%n", cantidad, (System.nanoTime() - inicio) / 1e6);
+
+        List<Cuenta> lista = ctrl.cuentasRegistradas();
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        // El recorrido lineal es O(n) por búsqueda: se hacen menos para que termine
+        int lineales = Math.max(1, (int) Math.min(busquedas, 20_000_000_000L / Math.max(cantidad, 1) / 100));
+        inicio = System.nanoTime();
+        long encontradas = 0;
+        for (int i = 0; i < lineales; i++) {
+            String numero = "N" + azar.nextInt(cantidad);
+            encontradas += lista.stream().filter(c -> c.getNumeroCuenta().equals(numero)).findFirst().isPresent() ? 1 : 0;
+        }
+        double linealUs = (System.nanoTime() - inicio) / 1e3 / lineales;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < busquedas; i++) {
+            encontradas += ctrl.cuentaPorNumero("N" + azar.nextInt(cantidad)) != null ? 1 : 0;
+        }
+        double indiceUs = (System.nanoTime() - inicio) / 1e3 / busquedas;
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < busquedas; i++) {
+            encontradas += ctrl.consultarCuentasCliente("ID" + azar.nextInt(cantidad / CUENTAS_POR_CLIENTE) * CUENTAS_POR_CLIENTE).size();
+        }
+        double duenoUs = (System.nanoTime() - inicio) / 1e3 / busquedas;
+
+        if (encontradas < lineales + busquedas) {
+            System.err.println("FALLA: alguna búsqueda no encontró la cuenta");
+            System.exit(1);
+        }
+        System.out.printf("Recorrido lineal   %10.3f µs/búsqueda (%d búsquedas)%n", linealUs, lineales);
+        System.out.printf("Índice por número  %10.3f µs/búsqueda%n", indiceUs);
+        System.out.printf("Índice por dueño   %10.3f µs/búsqueda%n", duenoUs);
+    }
+}
@@ -0,0 +1,165 @@
+package controlador;
+
+import modelo.Transaccion;
+import persistencia.PersistenciaMemoria;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Prueba de {@link CacheHistorial} con lecturas lentas: la carga de una cuenta no
+ * detiene la de otra, y una cuenta con cambios tomados por una escritura en curso
+ * se carga cuando esa escritura termina, sin repetir lo que ya escribió. La
+ * carga de todos los historiales queda contada en la caché.
+ */
+public class PruebaCacheHistorial {
+    private static final String PIN = "123456";
+
+    /**
+     * Detiene la lectura de una cuenta o la escritura de un lote hasta que se liberen.
+     */
+    private static class PersistenciaDetenida extends PersistenciaMemoria {
+        private volatile String lecturaDetenida;
+        private volatile boolean escrituraDetenida;
+        private final CountDownLatch enEspera = new CountDownLatch(1);
+        private final CountDownLatch continuar = new CountDownLatch(1);
+
+        @Override
+        public List<Transaccion> cargarTransacciones(String numeroCuenta) {
+            if (numeroCuenta.equals(lecturaDetenida)) {
+                detener();
+            }
+            return super.cargarTransacciones(numeroCuenta);
+        }
+
+        @Override
+        public void agregarTransaccionesLote(Map<String, List<Transaccion>> nuevasPorCuenta) throws Exception {
+            super.agregarTransaccionesLote(nuevasPorCuenta);
+            if (escrituraDetenida) {
+                detener();
+            }
+        }
+
+        private void detener() {
+            enEspera.countDown();
+            try {
+                continuar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        lecturaLentaNoDetieneOtras();
+        cargaEsperaEscrituraEnCurso();
+        cargaCompletaPasaPorLaCache();
+        System.out.println("OK");
+    }
+
+    private static void lecturaLentaNoDetieneOtras() throws Exception {
+        PersistenciaDetenida persistencia = new PersistenciaDetenida();
+        ControladorCajero inicial = new ControladorCajero(persistencia);
+        inicial.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        String lenta = inicial.crearCuenta("1", PIN, 10_000);
+        String otra = inicial.crearCuenta("1", PIN, 20_000);
+
+        // Al reiniciar los historiales quedan sin cargar
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        persistencia.lecturaDetenida = lenta;
+        CompletableFuture<List<Transaccion>> detenida =
+            CompletableFuture.supplyAsync(() -> consultar(ctrl, lenta));
+        persistencia.enEspera.await();
+        CompletableFuture<List<Transaccion>> libre =
+            CompletableFuture.supplyAsync(() -> consultar(ctrl, otra));
+        verificar(montos(resultado(libre)).equals(List.of(20_000L)), "La carga de otra cuenta esperó a la lectura lenta");
+        persistencia.continuar.countDown();
+        verificar(montos(resultado(detenida)).equals(List.of(10_000L)), "Historial lento incorrecto");
+    }
+
+    private static void cargaEsperaEscrituraEnCurso() throws Exception {
+        PersistenciaDetenida persistencia = new PersistenciaDetenida();
+        ControladorCajero inicial = new ControladorCajero(persistencia);
+        inicial.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        String numero = inicial.crearCuenta("1", PIN, 10_000);
+
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        persistencia.escrituraDetenida = true;
+        CompletableFuture<Void> deposito = CompletableFuture.runAsync(() -> {
+            try {
+                ctrl.depositarColones(numero, 300);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        // El depósito ya está escrito pero su escritura no terminó
+        persistencia.enEspera.await();
+        verificar(ctrl.cuentaPorNumero(numero).hayPendientesTomadas(), "La prueba necesita pendientes tomadas");
+        CompletableFuture<List<Transaccion>> consulta =
+            CompletableFuture.supplyAsync(() -> consultar(ctrl, numero));
+        Thread.sleep(200);
+        verificar(!consulta.isDone(), "El historial se leyó con una escritura en curso");
+        persistencia.continuar.countDown();
+        deposito.get(5, TimeUnit.SECONDS);
+        verificar(montos(resultado(consulta)).equals(List.of(10_000L, 300L)),
+                  "Historial incorrecto tras la escritura: " + montos(resultado(consulta)));
+    }
+
+    private static void cargaCompletaPasaPorLaCache() throws Exception {
+        PersistenciaMemoria persistencia = new PersistenciaMemoria();
+        ControladorCajero inicial = new ControladorCajero(persistencia);
+        inicial.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        List<String> numeros = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            numeros.add(inicial.crearCuenta("1", PIN, 10_000));
+        }
+
+        CacheHistorial cache = new CacheHistorial(persistencia, 2, 1_000);
+        ControladorCajero ctrl = new ControladorCajero(persistencia, cache);
+        ctrl.cargarTodosLosHistoriales(2, null);
+        for (String n : numeros) {
+            verificar(ctrl.cuentaPorNumero(n).isHistorialCargado(), "La carga completa omitió la cuenta " + n);
+        }
+        verificar(cache.getCuentasEnMemoria() == 4 && cache.getTransaccionesEnMemoria() == 4,
+                  "La carga completa no quedó contada en la caché: " + cache.getCuentasEnMemoria());
+        consultar(ctrl, numeros.get(0));
+        verificar(cache.getCuentasEnMemoria() == 2, "La caché no volvió a sus límites: " + cache.getCuentasEnMemoria());
+    }
+
+    private static List<Transaccion> consultar(ControladorCajero ctrl, String numero) {
+        try {
+            return ctrl.consultarTransacciones(numero, PIN);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<Transaccion> resultado(CompletableFuture<List<Transaccion>> futuro) throws Exception {
+        try {
+            return futuro.get(5, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            verificar(false, "La consulta no terminó");
+            return null;
+        }
+    }
+
+    private static List<Long> montos(List<Transaccion> transacciones) {
+        List<Long> montos = new ArrayList<>();
+        for (Transaccion t : transacciones) {
+            montos.add(t.getMonto());
+        }
+        return montos;
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package controlador;
+
+import persistencia.PersistenciaMemoria;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de {@link ControladorSecuencial}: cerrar mientras varias terminales
+ * envían comandos no deja a ninguna esperando para siempre ni pierde operaciones
+ * confirmadas, y un lote cuyo guardado falla no publica sus saldos.
+ *
+ * Uso: PruebaControladorSecuencial [rondas]
+ */
+public class PruebaControladorSecuencial {
+    private static final String PIN = "123456";
+    private static final int HILOS = 8;
+    private static final long SALDO_INICIAL = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int rondas = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        for (int i = 0; i < rondas; i++) {
+            cerrarConEnviosEnCurso();
+        }
+        guardadoFallidoNoSePublica();
+        System.out.println("OK");
+    }
+
+    private static void cerrarConEnviosEnCurso() throws Exception {
+        PersistenciaMemoria persistencia = new PersistenciaMemoria();
+        ControladorCajero base = new ControladorCajero(persistencia);
+        base.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        String numero = base.crearCuenta("1", PIN, SALDO_INICIAL);
+        ControladorSecuencial sec = new ControladorSecuencial(base);
+
+        AtomicLong depositado = new AtomicLong();
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            Thread t = new Thread(() -> {
+                while (true) {
+                    try {
+                        sec.depositarColones(numero, 100);
+                        depositado.addAndGet(100);
+                    } catch (IllegalStateException e) {
+                        return;
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            t.setDaemon(true);
+            t.start();
+            hilos.add(t);
+        }
+        Thread.sleep(20);
+        sec.cerrar();
+        for (Thread t : hilos) {
+            t.join(10_000);
+            verificar(!t.isAlive(), "Una terminal quedó esperando un comando que nadie procesará");
+        }
+
+        long esperado = SALDO_INICIAL + depositado.get();
+        ControladorCajero reiniciado = new ControladorCajero(persistencia);
+        verificar(reiniciado.consultarSaldo(numero, PIN) == esperado,
+                  "Se perdieron depósitos confirmados: " + reiniciado.consultarSaldo(numero, PIN) + " != " + esperado);
+    }
+
+    private static void guardadoFallidoNoSePublica() throws Exception {
+        PersistenciaMemoria persistencia = new PersistenciaMemoria();
+        ControladorCajero base = new ControladorCajero(persistencia);
+        base.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        String numero = base.crearCuenta("1", PIN, SALDO_INICIAL);
+        ControladorSecuencial sec = new ControladorSecuencial(base);
+        try {
+            persistencia.fallarSiguientes(1);
+            boolean fallo = false;
+            try {
+                sec.depositarColones(numero, 500);
+            } catch (IllegalStateException e) {
+                fallo = true;
+            }
+            verificar(fallo, "El guardado fallido no llegó a quien depositó");
+            verificar(sec.consultarSaldo(numero, PIN) == SALDO_INICIAL,
+                      "Se publicó el saldo de un lote que no se guardó");
+
+            sec.depositarColones(numero, 700);
+            verificar(sec.consultarSaldo(numero, PIN) == SALDO_INICIAL + 1_200,
+                      "El saldo publicado no incluye el lote guardado en el reintento");
+        } finally {
+            sec.cerrar();
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
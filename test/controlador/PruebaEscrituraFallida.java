@@ -0,0 +1,51 @@
+package controlador;
+
+import persistencia.PersistenciaMemoria;
+
+/**
+ * Prueba de {@link ControladorCajero} ante una escritura fallida: las
+ * transacciones de la operación que no se pudo guardar no se pierden ni se
+ * duplican, y se escriben con el siguiente guardado.
+ */
+public class PruebaEscrituraFallida {
+    private static final String PIN = "123456";
+
+    public static void main(String[] args) throws Exception {
+        PersistenciaMemoria persistencia = new PersistenciaMemoria();
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        ctrl.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        String numero = ctrl.crearCuenta("1", PIN, 100_000);
+
+        persistencia.fallarSiguientes(1);
+        boolean fallo = false;
+        try {
+            ctrl.depositarColones(numero, 500);
+        } catch (Exception e) {
+            fallo = true;
+        }
+        verificar(fallo, "El guardado fallido no llegó a quien hizo el depósito");
+        verificar(persistencia.transaccionesGuardadas(numero).size() == 1,
+                  "Se escribió el depósito a pesar de la falla");
+        verificar(ctrl.consultarTransacciones(numero, PIN).size() == 2,
+                  "El depósito no guardado no aparece en el historial");
+
+        ctrl.depositarColones(numero, 700);
+        verificar(persistencia.transaccionesGuardadas(numero).size() == 3,
+                  "Se esperaban 3 transacciones guardadas y hay "
+                  + persistencia.transaccionesGuardadas(numero).size());
+        verificar(ctrl.consultarTransacciones(numero, PIN).size() == 3, "El historial en memoria tiene duplicados");
+
+        ControladorCajero reiniciado = new ControladorCajero(persistencia);
+        verificar(reiniciado.consultarSaldo(numero, PIN) == 101_200, "Saldo incorrecto tras reiniciar");
+        verificar(reiniciado.consultarTransacciones(numero, PIN).size() == 3,
+                  "Historial incorrecto tras reiniciar");
+        System.out.println("OK");
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package controlador;
+
+import modelo.Transaccion;
+import persistencia.PersistenciaMemoria;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prueba de {@link ControladorCajero#consultarTransaccionesPagina} y de las consultas
+ * por período con el historial sin cargar: incluyen las transacciones que aún no se
+ * escribieron, en su lugar, y no repiten las que se escribieron sin que se
+ * confirmara la escritura.
+ */
+public class PruebaHistorialPaginado {
+    private static final String PIN = "123456";
+
+    /**
+     * Escribe las transacciones y después falla, como una escritura que se corta
+     * antes de confirmarse.
+     */
+    private static class PersistenciaCortada extends PersistenciaMemoria {
+        private volatile boolean cortar;
+
+        @Override
+        public void agregarTransaccionesLote(Map<String, List<Transaccion>> nuevasPorCuenta) throws Exception {
+            super.agregarTransaccionesLote(nuevasPorCuenta);
+            if (cortar) {
+                cortar = false;
+                throw new java.io.IOException("Corte simulado tras escribir");
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        PersistenciaCortada persistencia = new PersistenciaCortada();
+        ControladorCajero inicial = new ControladorCajero(persistencia);
+        inicial.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        String numero = inicial.crearCuenta("1", PIN, 10_000);
+        inicial.depositarColones(numero, 100);
+        inicial.depositarColones(numero, 200);
+
+        // Al reiniciar el historial queda en el almacenamiento
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        persistencia.fallarSiguientes(1);
+        verificar(falla(() -> ctrl.depositarColones(numero, 300)), "El guardado fallido no llegó al depósito");
+        verificar(!ctrl.cuentaPorNumero(numero).isHistorialCargado(), "La prueba necesita el historial sin cargar");
+        verificar(montos(ctrl, 0, 10).equals(List.of(300L, 200L, 100L, 10_000L)),
+                  "Falta el depósito sin escribir: " + montos(ctrl, 0, 10));
+        verificar(montos(ctrl, 0, 2).equals(List.of(300L, 200L)), "Primera página incorrecta: " + montos(ctrl, 0, 2));
+        verificar(montos(ctrl, 1, 2).equals(List.of(200L, 100L)), "Segunda página incorrecta: " + montos(ctrl, 1, 2));
+        verificar(montos(ctrl, 3, 5).equals(List.of(10_000L)), "Última página incorrecta: " + montos(ctrl, 3, 5));
+        verificar(ctrl.consultarTransaccionesPeriodo(numero, PIN, null, null).size() == 4,
+                  "Falta el depósito sin escribir en el período");
+
+        persistencia.cortar = true;
+        verificar(falla(() -> ctrl.depositarColones(numero, 400)), "El corte no llegó al depósito");
+        verificar(persistencia.transaccionesGuardadas(numero).size() == 5, "El corte no dejó escritas las transacciones");
+        verificar(montos(ctrl, 0, 10).equals(List.of(400L, 300L, 200L, 100L, 10_000L)),
+                  "Transacciones escritas sin confirmar repetidas: " + montos(ctrl, 0, 10));
+        verificar(montos(ctrl, 1, 2).equals(List.of(300L, 200L)), "Página tras el corte incorrecta: " + montos(ctrl, 1, 2));
+        verificar(ctrl.consultarTransaccionesPeriodo(numero, PIN, null, null).size() == 5,
+                  "Período con transacciones escritas sin confirmar repetidas");
+
+        System.out.println("OK");
+    }
+
+    private static List<Long> montos(ControladorCajero ctrl, int desplazamiento, int limite) throws Exception {
+        String numero = ctrl.consultarCuentasCliente("1").get(0);
+        List<Long> montos = new ArrayList<>();
+        for (Transaccion t : ctrl.consultarTransaccionesPagina(numero, PIN, null, null, desplazamiento, limite)) {
+            montos.add(t.getMonto());
+        }
+        return montos;
+    }
+
+    private interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static boolean falla(Accion accion) {
+        try {
+            accion.ejecutar();
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package controlador;
+
+import excepciones.PinInvalidoException;
+import modelo.ServicioSMS;
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+import persistencia.PersistenciaMemoria;
+import persistencia.RegistroIdempotencia;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prueba de las claves de idempotencia de {@link ControladorCajero}: un reintento
+ * no vuelve a aplicar la transferencia ni el retiro aunque ya no tenga el código
+ * SMS, la clave no sirve sin autenticarse ni con otra solicitud, y no se reconoce
+ * hasta que la operación original se guardó.
+ */
+public class PruebaIdempotencia {
+    private static final String PIN = "123456";
+
+    public static void main(String[] args) throws Exception {
+        PersistenciaMemoria persistencia = new PersistenciaMemoria();
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        ctrl.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        String origen = ctrl.crearCuenta("1", PIN, 100_000);
+        String destino = ctrl.crearCuenta("1", PIN, 10_000);
+        String otro = ctrl.crearCuenta("1", PIN, 10_000);
+
+        ctrl.transferir(origen, PIN, "X", destino, 1_000, "X", "k1");
+        ctrl.transferir(origen, PIN, "X", destino, 1_000, "X", "k1");
+        verificar(ctrl.consultarSaldo(destino, PIN) == 11_000, "El reintento volvió a transferir");
+
+        verificar(lanza(PinInvalidoException.class,
+                        () -> ctrl.transferir(origen, "000000", "X", destino, 1_000, "X", "k1")),
+                  "La clave respondió sin verificar el PIN");
+        verificar(lanza(IllegalArgumentException.class,
+                        () -> ctrl.transferir(origen, PIN, "X", destino, 2_000, "X", "k1")),
+                  "Se aceptó la clave con otro monto");
+        verificar(lanza(IllegalArgumentException.class,
+                        () -> ctrl.transferir(origen, PIN, "X", otro, 1_000, "X", "k1")),
+                  "Se aceptó la clave con otro destino");
+
+        // Si el guardado falla, la clave queda pendiente: el reintento no se aplica dos veces
+        persistencia.fallarSiguientes(1);
+        verificar(lanza(Exception.class, () -> ctrl.transferir(origen, PIN, "X", destino, 500, "X", "k2")),
+                  "El guardado fallido no llegó a quien transfirió");
+        verificar(lanza(IllegalStateException.class,
+                        () -> ctrl.transferir(origen, PIN, "X", destino, 500, "X", "k2")),
+                  "Se reconoció una clave cuya operación no se había guardado");
+        ctrl.depositarColones(otro, 100);
+        ctrl.transferir(origen, PIN, "X", destino, 500, "X", "k2");
+        verificar(ctrl.consultarSaldo(destino, PIN) == 11_500, "La transferencia con guardado fallido se repitió");
+
+        ControladorCajero reiniciado = new ControladorCajero(persistencia);
+        reiniciado.transferir(origen, PIN, "X", destino, 500, "X", "k2");
+        verificar(reiniciado.consultarSaldo(destino, PIN) == 11_500, "La clave no sobrevivió al reinicio");
+        // El servidor ya consumió el código SMS: el reintento llega sin código y lo resuelve la clave
+        reiniciado.transferir(origen, PIN, "X", destino, 500, null, "k2");
+        verificar(reiniciado.consultarSaldo(destino, PIN) == 11_500, "El reintento sin código volvió a transferir");
+
+        // Un retiro guardado con clave: el reintento devuelve la transacción original sin pedir otro SMS
+        Transaccion original = Transaccion.restaurar(TipoTransaccion.RETIRO, 700, false, 0, LocalDateTime.now());
+        persistencia.guardarIdempotencia(List.of(new RegistroIdempotencia(
+            origen + "|k3", System.currentTimeMillis() + 60_000, "retiro=700", original)));
+        AtomicInteger enviados = new AtomicInteger();
+        ServicioSMS.configurar((telefono, mensaje) -> enviados.incrementAndGet());
+        ControladorCajero conRetiro = new ControladorCajero(persistencia);
+        long saldo = conRetiro.consultarSaldo(origen, PIN);
+        verificar(conRetiro.retirarConSms(origen, PIN, "VIEJO", 700, "k3") == original,
+                  "El reintento del retiro no devolvió la transacción original");
+        verificar(enviados.get() == 0, "El reintento del retiro envió otro SMS");
+        verificar(conRetiro.consultarSaldo(origen, PIN) == saldo, "El reintento volvió a retirar");
+        verificar(lanza(PinInvalidoException.class, () -> conRetiro.retirarConSms(origen, "000000", "VIEJO", 700, "k3")),
+                  "La clave del retiro sirvió sin PIN");
+        System.out.println("OK");
+    }
+
+    private interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static boolean lanza(Class<? extends Exception> tipo, Accion accion) {
+        try {
+            accion.ejecutar();
+            return false;
+        } catch (Exception e) {
+            return tipo.isInstance(e);
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package controlador;
+
+import persistencia.PersistenciaMemoria;
+
+import java.util.List;
+
+/**
+ * Prueba de los índices de {@link ControladorCajero}: las búsquedas por número
+ * de cuenta, por cliente y por dueño siguen correctas al crear y eliminar
+ * cuentas, y después de reconstruir los índices al cargar.
+ */
+public class PruebaIndicesCuentas {
+    private static final String PIN = "123456";
+
+    public static void main(String[] args) throws Exception {
+        PersistenciaMemoria persistencia = new PersistenciaMemoria();
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        ctrl.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        ctrl.crearCliente("Luis", "2", "77777777", "luis@correo.com");
+        String a1 = ctrl.crearCuenta("1", PIN, 1_000);
+        String a2 = ctrl.crearCuenta("1", PIN, 2_000);
+        String l1 = ctrl.crearCuenta("2", PIN, 3_000);
+
+        verificar(ctrl.consultarCuentasCliente("1").equals(List.of(a1, a2)), "Cuentas de Ana incorrectas");
+        verificar(ctrl.consultarCuentasCliente("2").equals(List.of(l1)), "Cuentas de Luis incorrectas");
+        verificar(ctrl.consultarCuentasCliente("3").isEmpty(), "Un cliente inexistente tiene cuentas");
+        verificar(ctrl.consultarSaldo(a2, PIN) == 2_000, "La búsqueda por número devolvió otra cuenta");
+
+        ctrl.eliminarCuenta(a1, PIN);
+        verificar(ctrl.consultarCuentasCliente("1").equals(List.of(a2)), "La cuenta eliminada sigue en el índice por dueño");
+        verificar(ctrl.cuentaPorNumero(a1) == null, "La cuenta eliminada sigue en el índice por número");
+        verificar(lanza(() -> ctrl.crearCuenta("3", PIN, 1_000)), "Se creó una cuenta para un cliente inexistente");
+
+        ctrl.cambiarTelefono("2", "66666666");
+        ControladorCajero reiniciado = new ControladorCajero(persistencia);
+        verificar(reiniciado.consultarCuentasCliente("1").equals(List.of(a2)), "Índice por dueño incorrecto tras cargar");
+        verificar(reiniciado.consultarCuentasCliente("2").equals(List.of(l1)), "Índice por dueño incorrecto tras cargar");
+        verificar(reiniciado.consultarSaldo(l1, PIN) == 3_000, "Índice por número incorrecto tras cargar");
+        verificar(reiniciado.cuentaPorNumero(a1) == null, "La cuenta eliminada reapareció al cargar");
+        System.out.println("OK");
+    }
+
+    private interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static boolean lanza(Accion accion) {
+        try {
+            accion.ejecutar();
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package controlador;
+
+import modelo.TipoTransaccion;
+import persistencia.PersistenciaMemoria;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prueba de {@link ControladorCajero#aplicarLote}: las líneas inválidas se
+ * rechazan una por una sin afectar a las demás, y lo aplicado se guarda en una
+ * sola escritura que sobrevive a un reinicio.
+ */
+public class PruebaLote {
+    private static final String PIN = "123456";
+
+    public static void main(String[] args) throws Exception {
+        PersistenciaMemoria persistencia = new PersistenciaMemoria();
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        ctrl.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        String a = ctrl.crearCuenta("1", PIN, 10_000);
+        String b = ctrl.crearCuenta("1", PIN, 10_000);
+
+        List<MovimientoLote> lote = Arrays.asList(
+            new MovimientoLote(a, TipoTransaccion.DEPOSITO, 1_000),
+            new MovimientoLote(b, TipoTransaccion.RETIRO, 1_000_000),
+            new MovimientoLote("NO-EXISTE", TipoTransaccion.DEPOSITO, 1_000),
+            null,
+            new MovimientoLote(a, TipoTransaccion.TRANSFERENCIA, 1_000),
+            new MovimientoLote(b, TipoTransaccion.DEPOSITO, -5),
+            new MovimientoLote(b, TipoTransaccion.RETIRO, 1_000));
+        List<ResultadoMovimiento> resultados = ctrl.aplicarLote(lote);
+
+        verificar(resultados.size() == lote.size(), "Faltan resultados de líneas");
+        boolean[] aplicadas = {true, false, false, false, false, false, true};
+        for (int i = 0; i < aplicadas.length; i++) {
+            verificar((resultados.get(i).getTransaccion() != null) == aplicadas[i],
+                      "Resultado inesperado en la línea " + i + ": " + resultados.get(i).getError());
+        }
+        verificar(ctrl.consultarSaldo(a, PIN) == 11_000, "Saldo incorrecto en la cuenta del depósito");
+
+        ControladorCajero reiniciado = new ControladorCajero(persistencia);
+        verificar(reiniciado.consultarSaldo(a, PIN) == ctrl.consultarSaldo(a, PIN)
+                  && reiniciado.consultarSaldo(b, PIN) == ctrl.consultarSaldo(b, PIN),
+                  "El lote no se guardó completo");
+        verificar(persistencia.transaccionesGuardadas(a).size() == 2
+                  && persistencia.transaccionesGuardadas(b).size() == 2,
+                  "Las transacciones del lote no se guardaron");
+        System.out.println("OK");
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package controlador;
+
+import modelo.Cifrado;
+import modelo.Cuenta;
+import persistencia.PersistenciaMemoria;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prueba de la rotación de claves con {@link RecifradoPines}: tras activar la
+ * versión 2, una tarea detenida a la mitad deja cuentas con ambas versiones y
+ * todas verifican su PIN; al retomarla sobre lo guardado solo quedan cuentas con
+ * la versión 2. También comprueba que un archivo de claves con una versión
+ * repetida se rechaza.
+ */
+public class PruebaRecifradoPines {
+    private static final String PIN = "123456";
+    private static final int CUENTAS = 40;
+    private static final int POR_TRAMO = 5;
+
+    public static void main(String[] args) throws Exception {
+        PersistenciaMemoria persistencia = new PersistenciaMemoria();
+        ControladorCajero inicial = new ControladorCajero(persistencia);
+        inicial.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        List<String> numeros = new ArrayList<>();
+        for (int i = 0; i < CUENTAS; i++) {
+            numeros.add(inicial.crearCuenta("1", PIN, 10_000));
+        }
+        verificar(versiones(inicial, numeros, 1) == CUENTAS, "Las cuentas no empezaron con la versión 1");
+
+        Cifrado.registrarClave(2, "OtraClaveSecreta".getBytes(StandardCharsets.UTF_8));
+        Cifrado.activarVersion(2);
+
+        // Un tramo cada 250 ms: se detiene después de dos
+        RecifradoPines primera = new RecifradoPines(inicial, 1, 20, POR_TRAMO);
+        var parcial = primera.iniciar();
+        verificar(primera.getPendientes() == CUENTAS, "Pendientes al iniciar: " + primera.getPendientes());
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (primera.getPuntosGuardados() < 2 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        primera.detener();
+        int migradas = parcial.get(5, TimeUnit.SECONDS);
+        verificar(migradas >= 2 * POR_TRAMO && migradas < CUENTAS, "La tarea no se detuvo a la mitad: " + migradas);
+        verificar(versiones(inicial, numeros, 2) == migradas, "Cuentas con la versión 2 distintas de las migradas");
+        for (String n : numeros) {
+            verificar(inicial.cuentaPorNumero(n).verificarPin(PIN),
+                      "No verifica el PIN de la cuenta " + n + " con la versión "
+                      + Cifrado.versionDe(inicial.cuentaPorNumero(n).getPinCifrado()));
+        }
+
+        // Al reiniciar se retoma desde lo guardado: solo quedan las que usan la versión 1
+        ControladorCajero reiniciado = new ControladorCajero(persistencia);
+        verificar(versiones(reiniciado, numeros, 2) == migradas, "Los tramos migrados no quedaron guardados");
+        RecifradoPines segunda = new RecifradoPines(reiniciado, 2, 1_000, POR_TRAMO);
+        int restantes = segunda.iniciar().get(10, TimeUnit.SECONDS);
+        verificar(segunda.getPendientes() == CUENTAS - migradas && restantes == CUENTAS - migradas,
+                  "Al retomar no se tomaron solo las pendientes: " + segunda.getPendientes());
+        verificar(versiones(reiniciado, numeros, 2) == CUENTAS, "Quedaron cuentas sin la versión 2");
+        for (Cuenta c : persistencia.cuentasGuardadas()) {
+            verificar(Cifrado.versionDe(c.getPinCifrado()) == 2, "Cuenta guardada sin la versión 2: " + c.getNumeroCuenta());
+        }
+        for (String n : numeros) {
+            verificar(reiniciado.cuentaPorNumero(n).verificarPin(PIN), "No verifica el PIN migrado de la cuenta " + n);
+        }
+
+        // Dos entradas de la misma versión en el archivo de claves
+        Path claves = Files.createTempFile("claves", ".properties");
+        try {
+            String clave = Base64.getEncoder().encodeToString(new byte[16]);
+            Files.writeString(claves, "clave.3=" + clave + "\nclave.03=" + clave + "\n");
+            verificar(lanza(() -> Cifrado.cargarClaves(claves)) instanceof IllegalArgumentException,
+                      "Se aceptó una versión repetida con otro nombre");
+            Files.writeString(claves, "clave.3=" + clave + "\nclave.3=" + clave + "\nversion.actual=3\n");
+            verificar(lanza(() -> Cifrado.cargarClaves(claves)) instanceof IllegalArgumentException,
+                      "Se aceptó una entrada repetida");
+            verificar(Cifrado.getVersionActual() == 2, "Un archivo rechazado cambió la versión actual");
+        } finally {
+            Files.delete(claves);
+        }
+        System.out.println("OK");
+    }
+
+    private static int versiones(ControladorCajero ctrl, List<String> numeros, int version) {
+        int total = 0;
+        for (String n : numeros) {
+            if (Cifrado.versionDe(ctrl.cuentaPorNumero(n).getPinCifrado()) == version) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    private interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static Exception lanza(Accion accion) {
+        try {
+            accion.ejecutar();
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
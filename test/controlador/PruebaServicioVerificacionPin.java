@@ -0,0 +1,79 @@
+package controlador;
+
+import persistencia.PersistenciaMemoria;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Prueba de {@link ServicioVerificacionPin}: una solicitud que vence en la cola no
+ * se ejecuta ni gasta un intento, pero cuenta en la latencia; una que ya empezó
+ * devuelve su resultado aunque pase el plazo; con la cola llena se rechaza.
+ */
+public class PruebaServicioVerificacionPin {
+    private static final String PIN = "123456";
+    private static final long TIMEOUT_MS = 100;
+
+    public static void main(String[] args) throws Exception {
+        ControladorCajero ctrl = new ControladorCajero(new PersistenciaMemoria());
+        ctrl.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        String numero = ctrl.crearCuenta("1", PIN, 10_000);
+        ServicioVerificacionPin servicio = new ServicioVerificacionPin(ctrl, 1, 1, TIMEOUT_MS);
+
+        // Ocupa el único hilo más allá del plazo
+        CountDownLatch empezo = new CountDownLatch(1);
+        CompletableFuture<String> lenta = servicio.ejecutar(() -> {
+            empezo.countDown();
+            Thread.sleep(3 * TIMEOUT_MS);
+            return "hecha";
+        });
+        empezo.await();
+        CompletableFuture<Boolean> enCola = servicio.verificar(numero, "000000");
+        verificar(lanza(() -> servicio.verificar(numero, PIN)) instanceof RejectedExecutionException,
+                  "Con la cola llena la solicitud no se rechazó");
+
+        verificar(causa(enCola) instanceof TimeoutException, "La verificación en cola no venció");
+        verificar(lenta.get().equals("hecha"), "La operación que ya empezó no devolvió su resultado");
+        Thread.sleep(TIMEOUT_MS);
+        verificar(servicio.getVencidas() == 1, "Vencidas: " + servicio.getVencidas());
+        verificar(servicio.getRechazadas() == 1, "Rechazadas: " + servicio.getRechazadas());
+        verificar(servicio.getLatenciaPercentil(0) >= TIMEOUT_MS,
+                  "La verificación vencida no cuenta en la latencia: " + servicio.getLatenciaPercentil(0));
+        // La verificación vencida tenía un PIN incorrecto: si se hubiera ejecutado gastaría un intento
+        verificar(ctrl.cuentaPorNumero(numero).getIntentosRestantes() == 3, "La verificación vencida gastó un intento");
+        servicio.cerrar();
+        System.out.println("OK");
+    }
+
+    private interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static Exception lanza(Accion accion) {
+        try {
+            accion.ejecutar();
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static Throwable causa(CompletableFuture<?> futuro) throws InterruptedException {
+        try {
+            futuro.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
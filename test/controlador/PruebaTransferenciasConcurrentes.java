@@ -0,0 +1,116 @@
+package controlador;
+
+import excepciones.SaldoInsuficienteException;
+import modelo.Cuenta;
+import persistencia.PersistenciaMemoria;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prueba de carga de {@link ControladorCajero}: varias terminales transfieren
+ * entre las mismas cuentas a la vez. El dinero total (saldos más comisiones
+ * cobradas) no debe cambiar, ni en memoria ni en ninguna de las listas de
+ * cuentas que llegan a persistencia, que no deben contener transferencias a medias.
+ *
+ * Uso: PruebaTransferenciasConcurrentes [hilos] [transferenciasPorHilo]
+ */
+public class PruebaTransferenciasConcurrentes {
+    private static final String PIN = "123456";
+    private static final int CUENTAS = 8;
+    private static final long SALDO_INICIAL = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int hilos = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int porHilo = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        PersistenciaMemoria persistencia = new PersistenciaMemoria();
+        ControladorCajero ctrl = new ControladorCajero(persistencia);
+        ctrl.crearCliente("Ana", "1", "88888888", "ana@correo.com");
+        List<String> numeros = new ArrayList<>();
+        for (int i = 0; i < CUENTAS; i++) {
+            numeros.add(ctrl.crearCuenta("1", PIN, SALDO_INICIAL));
+        }
+        long esperado = total(persistencia.cuentasGuardadas());
+
+        AtomicInteger inconsistentes = new AtomicInteger();
+        persistencia.setRevisor(lista -> {
+            if (lista.size() == CUENTAS && total(lista) != esperado) {
+                inconsistentes.incrementAndGet();
+            }
+        });
+
+        AtomicInteger aplicadas = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        List<Future<?>> tareas = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int h = 0; h < hilos; h++) {
+            tareas.add(pool.submit(() -> {
+                ThreadLocalRandom azar = ThreadLocalRandom.current();
+                for (int i = 0; i < porHilo; i++) {
+                    String origen = numeros.get(azar.nextInt(CUENTAS));
+                    String destino = numeros.get(azar.nextInt(CUENTAS));
+                    if (origen.equals(destino)) {
+                        continue;
+                    }
+                    try {
+                        // Montos desde 100 para que la comisión del 2 % no redondee a cero
+                        ctrl.transferir(origen, PIN, "1", destino, 100 + azar.nextInt(500), "1");
+                        aplicadas.incrementAndGet();
+                    } catch (SaldoInsuficienteException e) {
+                        // Con saldo agotado la transferencia se rechaza entera
+                    }
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> t : tareas) {
+                t.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+
+        List<Cuenta> guardadas = persistencia.cuentasGuardadas();
+        long enMemoria = 0;
+        for (String n : numeros) {
+            enMemoria += ctrl.consultarSaldo(n, PIN);
+        }
+        long guardadoSaldo = 0;
+        for (Cuenta c : guardadas) {
+            guardadoSaldo += c.getSaldo();
+        }
+
+        System.out.printf("%d transferencias en %d ms con %d hilos%n", aplicadas.get(), ms, hilos);
+        verificar(inconsistentes.get() == 0,
+                  inconsistentes.get() + " listas guardadas con una transferencia a medias");
+        verificar(total(guardadas) == esperado, "El total guardado cambió: " + total(guardadas) + " != " + esperado);
+        verificar(guardadoSaldo == enMemoria, "Lo guardado no coincide con memoria: " + guardadoSaldo + " != " + enMemoria);
+        System.out.println("OK");
+    }
+
+    /**
+     * Dinero total de las cuentas: saldos más comisiones ya cobradas.
+     */
+    private static long total(List<Cuenta> cuentas) {
+        long suma = 0;
+        for (Cuenta c : cuentas) {
+            suma += c.getSaldo() + c.getComisionDepositos() + c.getComisionRetiros();
+        }
+        return suma;
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package modelo;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compara {@link Cifrado} con la forma anterior de cifrar, que preparaba la
+ * clave, el Cipher y un SecureRandom en cada llamada. Antes de medir comprueba
+ * que los textos del formato anterior (sin versión) se siguen descifrando y que
+ * cifrar y descifrar desde varios hilos a la vez devuelve siempre el original.
+ *
+ * Uso: BenchmarkCifrado [hilos] [segundosPorMedicion]
+ */
+public class BenchmarkCifrado {
+    private static final byte[] CLAVE_V1 = "MiClaveSecreta13".getBytes(StandardCharsets.UTF_8);
+    private static final String PIN = "123456";
+
+    /**
+     * Operación medida; devuelve algo para que el JIT no la descarte.
+     */
+    @FunctionalInterface
+    private interface Operacion {
+        int ejecutar(int i) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int hilos = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        double segundos = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+
+        String anterior = cifrarAnterior(PIN);
+        verificar(Cifrado.decrypt(anterior).equals(PIN), "No se descifra un texto del formato anterior");
+        verificar(descifrarAnterior(anterior).equals(PIN), "La referencia anterior no descifra su propio texto");
+        verificar(Cifrado.decrypt(Cifrado.encrypt(PIN)).equals(PIN), "Cifrar y descifrar no devuelve el original");
+        medir("Concurrencia", hilos, 0.5, i -> {
+            String texto = "PIN-" + i;
+            verificar(Cifrado.decrypt(Cifrado.encrypt(texto)).equals(texto), "Resultado mezclado entre hilos");
+            return 1;
+        });
+
+        String cifrado = Cifrado.encrypt(PIN);
+        for (int h : hilos == 1 ? new int[] {1} : new int[] {1, hilos}) {
+            System.out.printf("— %d hilo(s) —%n", h);
+            medir("descifrar anterior", h, segundos, i -> descifrarAnterior(anterior).length());
+            medir("descifrar Cifrado", h, segundos, i -> Cifrado.decrypt(cifrado).length());
+            medir("cifrar anterior", h, segundos, i -> cifrarAnterior(PIN).length());
+            medir("cifrar Cifrado", h, segundos, i -> Cifrado.encrypt(PIN).length());
+        }
+    }
+
+    /**
+     * Cifrado como lo hacía la clase antes de reutilizar clave, Cipher y SecureRandom.
+     */
+    private static String cifrarAnterior(String texto) throws Exception {
+        byte[] iv = new byte[16];
+        new SecureRandom().nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(CLAVE_V1, "AES"), new IvParameterSpec(iv));
+        byte[] cifrado = cipher.doFinal(texto.getBytes(StandardCharsets.UTF_8));
+        byte[] combinado = new byte[iv.length + cifrado.length];
+        System.arraycopy(iv, 0, combinado, 0, iv.length);
+        System.arraycopy(cifrado, 0, combinado, iv.length, cifrado.length);
+        return Base64.getEncoder().encodeToString(combinado);
+    }
+
+    private static String descifrarAnterior(String texto) throws Exception {
+        byte[] combinado = Base64.getDecoder().decode(texto);
+        byte[] iv = new byte[16];
+        byte[] cifrado = new byte[combinado.length - 16];
+        System.arraycopy(combinado, 0, iv, 0, 16);
+        System.arraycopy(combinado, 16, cifrado, 0, cifrado.length);
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(CLAVE_V1, "AES"), new IvParameterSpec(iv));
+        return new String(cipher.doFinal(cifrado), StandardCharsets.UTF_8);
+    }
+
+    private static void medir(String nombre, int hilos, double segundos, Operacion operacion) throws Exception {
+        // Calentamiento corto para que la primera medición no incluya la compilación
+        long finCalentamiento = System.nanoTime() + 200_000_000L;
+        for (int i = 0; System.nanoTime() < finCalentamiento; i++) {
+            operacion.ejecutar(i);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        List<Future<Long>> tareas = new ArrayList<>();
+        long inicio = System.nanoTime();
+        long fin = inicio + (long) (segundos * 1e9);
+        try {
+            for (int h = 0; h < hilos; h++) {
+                tareas.add(pool.submit(() -> {
+                    long hechas = 0;
+                    int suma = 0;
+                    while (System.nanoTime() < fin) {
+                        suma += operacion.ejecutar((int) hechas);
+                        hechas++;
+                    }
+                    return suma == Integer.MIN_VALUE ? hechas + 1 : hechas;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> f : tareas) {
+                total += f.get();
+            }
+            double transcurrido = (System.nanoTime() - inicio) / 1e9;
+            System.out.printf("%-20s %12.0f ops/s%n", nombre, total / transcurrido);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
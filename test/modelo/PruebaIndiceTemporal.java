@@ -0,0 +1,105 @@
+package modelo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Prueba de las consultas por fecha con {@link IndiceTemporal}: con transacciones
+ * sin fecha al principio del historial el índice sigue en uso, y cada rango y
+ * cada página coinciden con el resultado de recorrer el historial completo.
+ */
+public class PruebaIndiceTemporal {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int HISTORIALES = 200;
+    private static final int CONSULTAS = 200;
+
+    public static void main(String[] args) {
+        Random azar = new Random(42);
+        for (int h = 0; h < HISTORIALES; h++) {
+            List<Transaccion> historial = new ArrayList<>();
+            int sinFecha = azar.nextInt(4);
+            for (int i = 0; i < sinFecha; i++) {
+                historial.add(transaccion(historial.size(), null));
+            }
+            int dias = 0;
+            for (int i = azar.nextInt(30); i > 0; i--) {
+                // Saltos de cero días para que haya fechas repetidas
+                dias += azar.nextInt(3);
+                historial.add(transaccion(historial.size(), INICIO.plusDays(dias)));
+            }
+            boolean desordenado = h % 10 == 9 && historial.size() > sinFecha;
+            if (desordenado) {
+                historial.add(transaccion(historial.size(), INICIO.minusDays(1)));
+            }
+
+            Cuenta cuenta = Cuenta.restaurar("I" + h, INICIO, EstadoCuenta.ACTIVA, 0, null, "pin", 3, historial.size());
+            cuenta.cargarHistorial(historial);
+            verificar(indiceOrdenado(historial) == !desordenado,
+                      "El índice no quedó en uso con " + sinFecha + " transacciones sin fecha al principio");
+
+            for (int c = 0; c < CONSULTAS; c++) {
+                LocalDateTime desde = fecha(azar, dias);
+                LocalDateTime hasta = fecha(azar, dias);
+                List<Transaccion> esperado = recorrer(historial, desde, hasta);
+                verificar(cuenta.transaccionesPeriodo(desde, hasta).equals(esperado),
+                          "Rango [" + desde + ", " + hasta + ") distinto del recorrido completo");
+                int desplazamiento = azar.nextInt(5);
+                int limite = 1 + azar.nextInt(5);
+                verificar(cuenta.paginaHistorial(desde, hasta, desplazamiento, limite)
+                              .equals(pagina(esperado, desplazamiento, limite)),
+                          "Página de [" + desde + ", " + hasta + ") distinta del recorrido completo");
+            }
+        }
+        System.out.println("OK");
+    }
+
+    private static boolean indiceOrdenado(List<Transaccion> historial) {
+        IndiceTemporal indice = new IndiceTemporal();
+        for (Transaccion t : historial) {
+            indice.agregar(t.getFecha());
+        }
+        return indice.isOrdenado();
+    }
+
+    /**
+     * Un extremo al azar: sin acotar, antes, dentro o después del historial.
+     */
+    private static LocalDateTime fecha(Random azar, int dias) {
+        return azar.nextInt(5) == 0 ? null : INICIO.plusDays(azar.nextInt(dias + 4) - 2);
+    }
+
+    private static List<Transaccion> recorrer(List<Transaccion> historial, LocalDateTime desde, LocalDateTime hasta) {
+        List<Transaccion> periodo = new ArrayList<>();
+        for (Transaccion t : historial) {
+            LocalDateTime f = t.getFecha();
+            boolean enRango = f == null
+                ? desde == null && hasta == null
+                : (desde == null || !f.isBefore(desde)) && (hasta == null || f.isBefore(hasta));
+            if (enRango) {
+                periodo.add(t);
+            }
+        }
+        return periodo;
+    }
+
+    private static List<Transaccion> pagina(List<Transaccion> periodo, int desplazamiento, int limite) {
+        List<Transaccion> pagina = new ArrayList<>();
+        for (int i = periodo.size() - 1 - desplazamiento; i >= 0 && pagina.size() < limite; i--) {
+            pagina.add(periodo.get(i));
+        }
+        return pagina;
+    }
+
+    private static Transaccion transaccion(long monto, LocalDateTime fecha) {
+        return Transaccion.restaurar(TipoTransaccion.DEPOSITO, monto, false, 0, fecha);
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package persistencia;
+
+import modelo.Cliente;
+import modelo.Cuenta;
+import modelo.Transaccion;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara {@link PersistenciaBinaria} con {@link PersistenciaXML}: genera los
+ * historiales en XML en un directorio temporal que se borra al terminar, los convierte con
+ * {@link PersistenciaBinaria#importar(Persistencia)}, comprueba que ambos
+ * formatos leen lo mismo y mide el tiempo de carga y el tamaño en disco.
+ *
+ * Uso: BenchmarkPersistenciaBinaria [cuentas] [movimientosPorCuenta] [rondas]
+ */
+public class BenchmarkPersistenciaBinaria {
+    private static final String PIN = "123456";
+
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int movimientos = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int rondas = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        File directorio = Files.createTempDirectory("persistencia-binaria").toFile();
+        try {
+            PersistenciaXML xml = new PersistenciaXML(directorio);
+            List<String> numeros = generar(xml, cantidad, movimientos);
+            PersistenciaBinaria binaria = new PersistenciaBinaria(xml);
+            long importadas = binaria.importar(xml);
+            verificar(importadas == (long) cantidad * movimientos,
+                      "Se importaron " + importadas + " transacciones de " + (long) cantidad * movimientos);
+            for (String n : numeros) {
+                verificar(iguales(xml.cargarTransacciones(n), binaria.cargarTransacciones(n)),
+                          "La cuenta " + n + " no lee lo mismo en binario que en XML");
+            }
+
+            System.out.printf("%d cuentas con %d movimientos%n", cantidad, movimientos);
+            for (int r = 1; r <= rondas; r++) {
+                System.out.printf("Ronda %d: XML %6.0f ms, binaria %6.0f ms%n",
+                                  r, medir(xml, numeros), medir(binaria, numeros));
+            }
+            System.out.printf("En disco: XML %.1f MB, binaria %.1f MB%n",
+                              tamano(directorio, ".xml") / 1e6, tamano(directorio, ".bin") / 1e6);
+        } finally {
+            borrar(directorio);
+        }
+    }
+
+    private static List<String> generar(Persistencia persistencia, int cantidad, int movimientos) throws Exception {
+        Cliente dueno = new Cliente("Ana", "1", "88888888", "ana@correo.com");
+        List<Cuenta> cuentas = new ArrayList<>(cantidad);
+        List<String> numeros = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Cuenta c = new Cuenta(dueno, PIN, 100_000);
+            // El depósito inicial cuenta como el primer movimiento
+            for (int m = 1; m < movimientos; m++) {
+                if (m % 3 == 0) {
+                    c.retirar(500);
+                } else {
+                    c.depositar(1_000);
+                }
+            }
+            persistencia.guardarTransacciones(c.getNumeroCuenta(), c.tomarPendientes());
+            cuentas.add(c);
+            numeros.add(c.getNumeroCuenta());
+        }
+        persistencia.guardarClientes(List.of(dueno));
+        persistencia.guardarCuentas(cuentas);
+        return numeros;
+    }
+
+    private static double medir(Persistencia persistencia, List<String> numeros) throws Exception {
+        long inicio = System.nanoTime();
+        long leidas = 0;
+        for (String n : numeros) {
+            leidas += persistencia.cargarTransacciones(n).size();
+        }
+        verificar(leidas > 0, "No se leyó ninguna transacción");
+        return (System.nanoTime() - inicio) / 1e6;
+    }
+
+    /**
+     * Compara tipo, montos y fecha al milisegundo, la precisión del formato binario.
+     */
+    private static boolean iguales(List<Transaccion> a, List<Transaccion> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            Transaccion x = a.get(i);
+            Transaccion y = b.get(i);
+            if (x.getTipo() != y.getTipo()
+                || x.getMonto() != y.getMonto()
+                || x.getMontoComision() != y.getMontoComision()
+                || x.getFecha().withNano(x.getFecha().getNano() / 1_000_000 * 1_000_000).compareTo(y.getFecha()) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long tamano(File directorio, String extension) {
+        long total = 0;
+        File[] archivos = directorio.listFiles((d, n) -> n.startsWith("Transacciones_") && n.endsWith(extension));
+        if (archivos != null) {
+            for (File f : archivos) {
+                total += f.length();
+            }
+        }
+        return total;
+    }
+
+    private static void borrar(File directorio) {
+        File[] archivos = directorio.listFiles();
+        if (archivos != null) {
+            for (File f : archivos) {
+                f.delete();
+            }
+        }
+        directorio.delete();
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
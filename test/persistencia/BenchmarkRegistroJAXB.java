@@ -0,0 +1,72 @@
+package persistencia;
+
+import modelo.Cliente;
+import modelo.Cuenta;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara el guardado de Cuentas.xml creando el JAXBContext en cada llamada, como
+ * hacía PersistenciaXML, contra {@link RegistroJAXB} con contexto y Marshaller
+ * reutilizados. Antes de medir comprueba que el archivo escrito se lee completo.
+ *
+ * Uso: BenchmarkRegistroJAXB [cuentas] [guardados]
+ */
+public class BenchmarkRegistroJAXB {
+    private static final int CALENTAMIENTO = 50;
+
+    /**
+     * Forma de escribir el archivo que se mide.
+     */
+    @FunctionalInterface
+    private interface Escritura {
+        void escribir(CuentaList lista, File destino) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int guardados = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        Cliente dueno = new Cliente("Ana", "1", "88888888", "ana@correo.com");
+        List<Cuenta> cuentas = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            cuentas.add(new Cuenta(dueno, "123456", 10_000 + i));
+        }
+        CuentaList lista = new CuentaList();
+        lista.setCuentas(cuentas);
+        File destino = File.createTempFile("cuentas", ".xml");
+        destino.deleteOnExit();
+
+        RegistroJAXB.marshal(lista, destino);
+        CuentaList leida = RegistroJAXB.unmarshal(CuentaList.class, destino);
+        if (leida.getCuentas().size() != cantidad) {
+            System.err.println("FALLA: se leyeron " + leida.getCuentas().size() + " de " + cantidad + " cuentas");
+            System.exit(1);
+        }
+
+        System.out.printf("%d guardados de %d cuentas%n", guardados, cantidad);
+        medir("Contexto por llamada", guardados, lista, destino, (l, f) -> {
+            Marshaller m = JAXBContext.newInstance(CuentaList.class).createMarshaller();
+            m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            m.marshal(l, f);
+        });
+        medir("RegistroJAXB", guardados, lista, destino, RegistroJAXB::marshal);
+    }
+
+    private static void medir(String nombre, int guardados, CuentaList lista, File destino,
+                              Escritura escritura) throws Exception {
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            escritura.escribir(lista, destino);
+        }
+        long inicio = System.nanoTime();
+        for (int i = 0; i < guardados; i++) {
+            escritura.escribir(lista, destino);
+        }
+        double msPorGuardado = (System.nanoTime() - inicio) / 1e6 / guardados;
+        System.out.printf("%-22s %.3f ms/guardado%n", nombre, msPorGuardado);
+    }
+}
@@ -0,0 +1,160 @@
+package persistencia;
+
+import modelo.Cliente;
+import modelo.Cuenta;
+import modelo.Transaccion;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Persistencia en memoria para las pruebas: no toca el directorio de trabajo,
+ * permite revisar cada lista de cuentas que se guarda y simular fallas de escritura.
+ */
+public class PersistenciaMemoria implements Persistencia {
+    private final List<Cliente> clientes = new ArrayList<>();
+    private final List<Cuenta> cuentas = new ArrayList<>();
+    private final Map<String, List<Transaccion>> transacciones = new HashMap<>();
+    private final List<RegistroIdempotencia> idempotencia = new ArrayList<>();
+    private final AtomicInteger fallasPendientes = new AtomicInteger();
+    private volatile Consumer<List<Cuenta>> revisor = l -> { };
+    private volatile long demoraMillis = 0;
+
+    /**
+     * Registra una revisión que se ejecuta con cada lista de cuentas guardada.
+     *
+     * @param revisor Revisión a ejecutar
+     */
+    public void setRevisor(Consumer<List<Cuenta>> revisor) {
+        this.revisor = revisor;
+    }
+
+    /**
+     * Simula un disco lento: cada escritura espera este tiempo.
+     *
+     * @param demoraMillis Demora por escritura
+     */
+    public void setDemoraMillis(long demoraMillis) {
+        this.demoraMillis = demoraMillis;
+    }
+
+    /**
+     * Hace fallar las siguientes escrituras con IOException.
+     *
+     * @param cantidad Cantidad de escrituras que fallan
+     */
+    public void fallarSiguientes(int cantidad) {
+        fallasPendientes.set(cantidad);
+    }
+
+    public synchronized List<Transaccion> transaccionesGuardadas(String numeroCuenta) {
+        return new ArrayList<>(transacciones.getOrDefault(numeroCuenta, List.of()));
+    }
+
+    public synchronized List<Cuenta> cuentasGuardadas() {
+        return new ArrayList<>(cuentas);
+    }
+
+    @Override
+    public synchronized List<Cliente> cargarClientes() {
+        return new ArrayList<>(clientes);
+    }
+
+    @Override
+    public synchronized List<Cuenta> cargarCuentas() {
+        List<Cuenta> copia = new ArrayList<>();
+        for (Cuenta c : cuentas) {
+            copia.add(c.copiar());
+        }
+        return copia;
+    }
+
+    @Override
+    public synchronized List<Transaccion> cargarTransacciones(String numeroCuenta) {
+        return transaccionesGuardadas(numeroCuenta);
+    }
+
+    @Override
+    public void guardarClientes(List<Cliente> lista) throws Exception {
+        escribir();
+        synchronized (this) {
+            clientes.clear();
+            clientes.addAll(lista);
+        }
+    }
+
+    @Override
+    public void guardarCuentas(List<Cuenta> lista) throws Exception {
+        escribir();
+        revisor.accept(lista);
+        synchronized (this) {
+            cuentas.clear();
+            cuentas.addAll(lista);
+        }
+    }
+
+    @Override
+    public void guardarTransacciones(String numeroCuenta, List<Transaccion> lista) throws Exception {
+        escribir();
+        synchronized (this) {
+            transacciones.put(numeroCuenta, new ArrayList<>(lista));
+        }
+    }
+
+    @Override
+    public void agregarTransacciones(String numeroCuenta, List<Transaccion> nuevas) throws Exception {
+        escribir();
+        synchronized (this) {
+            transacciones.computeIfAbsent(numeroCuenta, k -> new ArrayList<>()).addAll(nuevas);
+        }
+    }
+
+    @Override
+    public void agregarTransaccionesLote(Map<String, List<Transaccion>> nuevasPorCuenta) throws Exception {
+        escribir();
+        synchronized (this) {
+            for (Map.Entry<String, List<Transaccion>> e : nuevasPorCuenta.entrySet()) {
+                transacciones.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).addAll(e.getValue());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void eliminarArchivoTransacciones(String numeroCuenta) {
+        transacciones.remove(numeroCuenta);
+    }
+
+    @Override
+    public void guardarIdempotencia(List<RegistroIdempotencia> registros) throws Exception {
+        escribir();
+        synchronized (this) {
+            idempotencia.addAll(registros);
+        }
+    }
+
+    @Override
+    public synchronized List<RegistroIdempotencia> cargarIdempotencia() {
+        return new ArrayList<>(idempotencia);
+    }
+
+    // — Helpers privados —
+
+    private void escribir() throws IOException {
+        if (fallasPendientes.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+            throw new IOException("Falla de escritura simulada");
+        }
+        long demora = demoraMillis;
+        if (demora > 0) {
+            try {
+                Thread.sleep(demora);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
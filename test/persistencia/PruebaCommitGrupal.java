@@ -0,0 +1,74 @@
+package persistencia;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Prueba de {@link CommitGrupal} cerrándose con escritores activos: cada
+ * operación o se rechaza al encolarla o termina, ninguna queda esperando para
+ * siempre detrás del vaciado final.
+ */
+public class PruebaCommitGrupal {
+    private static final int HILOS = 8;
+    private static final int RONDAS = 20;
+
+    public static void main(String[] args) throws Exception {
+        File archivo = File.createTempFile("commit-grupal", ".log");
+        archivo.deleteOnExit();
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            CommitGrupal commit = new CommitGrupal(archivo, 1, 1000);
+            ConcurrentLinkedQueue<CompletableFuture<Void>> futuros = new ConcurrentLinkedQueue<>();
+            Thread[] hilos = new Thread[HILOS];
+            for (int i = 0; i < HILOS; i++) {
+                hilos[i] = new Thread(() -> {
+                    try {
+                        while (true) {
+                            futuros.add(commit.encolar(List.of("x")));
+                        }
+                    } catch (IllegalStateException e) {
+                        // Rechazada por el cierre
+                    }
+                });
+                hilos[i].start();
+            }
+            Thread.sleep(2);
+            commit.cerrar();
+            for (Thread h : hilos) {
+                h.join();
+            }
+            for (CompletableFuture<Void> f : futuros) {
+                try {
+                    f.get(5, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    verificar(false, "Una operación encolada durante el cierre no terminó (ronda " + ronda + ")");
+                }
+            }
+            verificar(lanza(() -> commit.encolar(List.of("x"))), "Se aceptó una operación tras el cierre");
+        }
+        System.out.println("OK");
+    }
+
+    private interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static boolean lanza(Accion accion) {
+        try {
+            accion.ejecutar();
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
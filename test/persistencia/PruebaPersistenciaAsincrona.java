@@ -0,0 +1,72 @@
+package persistencia;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.util.List;
+
+/**
+ * Prueba de {@link PersistenciaAsincrona} ante una escritura fallida: la
+ * escritura no se pierde, se reintenta hasta que el destino la acepta, la falla
+ * llega a quien vacía la cola y mientras tanto no se aceptan guardados nuevos.
+ */
+public class PruebaPersistenciaAsincrona {
+    private static final String CUENTA = "1";
+
+    public static void main(String[] args) throws Exception {
+        PersistenciaMemoria destino = new PersistenciaMemoria();
+        PersistenciaAsincrona diferida = new PersistenciaAsincrona(destino);
+        diferida.iniciar();
+        try {
+            // Cinco fallas seguidas duran varios reintentos, más que una revisión de vaciar()
+            destino.fallarSiguientes(5);
+            diferida.agregarTransacciones(CUENTA, List.of(new Transaccion(TipoTransaccion.DEPOSITO, 500, false, 0)));
+
+            boolean reportada = false;
+            try {
+                diferida.vaciar();
+            } catch (IllegalStateException e) {
+                reportada = true;
+            }
+            verificar(reportada, "vaciar() no reportó la escritura fallida");
+            verificar(diferida.isFallando(), "La falla no quedó registrada mientras se reintenta");
+
+            boolean rechazada = false;
+            try {
+                diferida.agregarTransacciones(CUENTA, List.of(new Transaccion(TipoTransaccion.DEPOSITO, 700, false, 0)));
+            } catch (IllegalStateException e) {
+                rechazada = true;
+            }
+            verificar(rechazada, "Se aceptó un guardado nuevo con una escritura fallando");
+
+            long limite = System.currentTimeMillis() + 30_000;
+            while (true) {
+                try {
+                    diferida.vaciar();
+                    break;
+                } catch (IllegalStateException e) {
+                    verificar(System.currentTimeMillis() < limite, "La escritura nunca se volvió a intentar");
+                    Thread.sleep(50);
+                }
+            }
+            verificar(!diferida.isFallando(), "La falla sigue registrada tras el reintento exitoso");
+            List<Transaccion> guardadas = destino.transaccionesGuardadas(CUENTA);
+            verificar(guardadas.size() == 1 && guardadas.get(0).getMonto() == 500,
+                      "Se esperaba solo el depósito reintentado y hay " + guardadas.size());
+
+            diferida.agregarTransacciones(CUENTA, List.of(new Transaccion(TipoTransaccion.DEPOSITO, 700, false, 0)));
+            diferida.vaciar();
+            verificar(destino.transaccionesGuardadas(CUENTA).size() == 2, "No se aceptó el guardado tras recuperarse");
+        } finally {
+            diferida.cerrar();
+        }
+        System.out.println("OK");
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package persistencia;
+
+import modelo.Cuenta;
+import modelo.EstadoCuenta;
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prueba de {@link PersistenciaJournal} ante un lote del commit grupal que no
+ * llega a disco: el reintento vuelve a escribir el estado de la cuenta aunque no
+ * haya cambiado y no repite las transacciones, ni en memoria ni al reiniciar.
+ * Escribe en un directorio temporal que se borra al terminar.
+ */
+public class PruebaPersistenciaJournal {
+    private static final String CUENTA = "J1";
+
+    public static void main(String[] args) throws Exception {
+        File directorio = Files.createTempDirectory("persistencia-journal").toFile();
+        try {
+            probar(directorio);
+        } finally {
+            File[] archivos = directorio.listFiles();
+            if (archivos != null) {
+                for (File f : archivos) {
+                    f.delete();
+                }
+            }
+            directorio.delete();
+        }
+        System.out.println("OK");
+    }
+
+    private static void probar(File directorio) throws Exception {
+        File diario = new File(directorio, "Journal.log");
+        File apartado = new File(directorio, "Journal.log.bak");
+        PersistenciaJournal journal = new PersistenciaJournal(new PersistenciaXML(directorio), 1000);
+        journal.guardarCuentas(List.of(cuenta(500, 1)));
+        journal.agregarTransacciones(CUENTA, List.of(transaccion(500)));
+
+        // Con un directorio en lugar del diario, la escritura del lote falla
+        verificar(diario.renameTo(apartado) && diario.mkdir(), "No se pudo simular la falla del diario");
+        List<Cuenta> cambiadas = List.of(cuenta(800, 2));
+        verificar(lanza(() -> journal.guardarCuentas(cambiadas)), "El estado se guardó con el diario fallando");
+        verificar(lanza(() -> journal.agregarTransacciones(CUENTA, List.of(transaccion(300)))),
+                  "Las transacciones se guardaron con el diario fallando");
+        verificar(diario.delete() && apartado.renameTo(diario), "No se pudo restaurar el diario");
+
+        // El reintento es el mismo guardado que falló
+        journal.guardarCuentas(cambiadas);
+        journal.agregarTransacciones(CUENTA, List.of(transaccion(300)));
+        verificar(montos(journal.cargarTransacciones(CUENTA)).equals(List.of(500L, 300L)),
+                  "Transacciones repetidas en memoria: " + montos(journal.cargarTransacciones(CUENTA)));
+        journal.cerrar();
+
+        PersistenciaJournal reiniciado = new PersistenciaJournal(new PersistenciaXML(directorio), 1000);
+        List<Cuenta> cuentas = reiniciado.cargarCuentas();
+        verificar(cuentas.size() == 1 && cuentas.get(0).getSaldo() == 800,
+                  "El reintento no escribió el estado de la cuenta");
+        verificar(montos(reiniciado.cargarTransacciones(CUENTA)).equals(List.of(500L, 300L)),
+                  "Transacciones incorrectas al reiniciar: " + montos(reiniciado.cargarTransacciones(CUENTA)));
+        reiniciado.cerrar();
+    }
+
+    private static Cuenta cuenta(long saldo, int transacciones) {
+        return Cuenta.restaurar(CUENTA, LocalDateTime.of(2024, 1, 1, 0, 0), EstadoCuenta.ACTIVA,
+                                saldo, null, "pin", 3, transacciones);
+    }
+
+    private static Transaccion transaccion(long monto) {
+        return Transaccion.restaurar(TipoTransaccion.DEPOSITO, monto, false, 0, LocalDateTime.now());
+    }
+
+    private static List<Long> montos(List<Transaccion> transacciones) {
+        List<Long> montos = new ArrayList<>();
+        for (Transaccion t : transacciones) {
+            montos.add(t.getMonto());
+        }
+        return montos;
+    }
+
+    private interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static boolean lanza(Accion accion) {
+        try {
+            accion.ejecutar();
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
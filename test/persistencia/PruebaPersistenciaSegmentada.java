@@ -0,0 +1,116 @@
+package persistencia;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prueba de {@link PersistenciaSegmentada} con historiales antiguos: las
+ * transacciones sin fecha van a su propio segmento y se leen antes que todas
+ * las demás, y las consultas por período que empiezan después del primer mes
+ * segmentado no leen el archivo sin segmentar. Escribe en un directorio temporal
+ * que se borra al terminar.
+ */
+public class PruebaPersistenciaSegmentada {
+
+    public static void main(String[] args) throws Exception {
+        File directorio = Files.createTempDirectory("persistencia-segmentada").toFile();
+        try {
+            probar(directorio);
+        } finally {
+            File[] archivos = directorio.listFiles();
+            if (archivos != null) {
+                for (File f : archivos) {
+                    f.delete();
+                }
+            }
+            directorio.delete();
+        }
+        System.out.println("OK");
+    }
+
+    private static void probar(File directorio) throws Exception {
+        PersistenciaXML base = new PersistenciaXML(directorio);
+        // Archivo sin segmentar de antes de la migración, con una transacción sin fecha
+        String antigua = "SEG1";
+        TransaccionesStAX.escribir(new File(directorio, "Transacciones_" + antigua + ".xml"),
+            List.of(transaccion(1, null), transaccion(2, fecha(2020, 1)), transaccion(3, fecha(2020, 2))));
+        PersistenciaSegmentada persistencia = new PersistenciaSegmentada(base);
+        persistencia.agregarTransacciones(antigua, List.of(transaccion(4, fecha(2024, 3)), transaccion(5, fecha(2024, 4))));
+
+        verificar(montos(persistencia.cargarTransacciones(antigua)).equals(List.of(1L, 2L, 3L, 4L, 5L)),
+                  "Historial completo desordenado: " + montos(persistencia.cargarTransacciones(antigua)));
+        verificar(montos(persistencia.cargarTransaccionesRecientes(antigua, null, null, 3, 10)).equals(List.of(2L, 1L)),
+                  "Página antigua incorrecta");
+
+        // Corrompe el archivo sin segmentar: solo lo pueden leer los rangos que lo abarcan
+        Files.writeString(new File(directorio, "Transacciones_" + antigua + ".xml").toPath(), "no es XML");
+        List<Transaccion> abril = new ArrayList<>();
+        persistencia.recorrerTransacciones(antigua, fecha(2024, 4), null, abril::add);
+        verificar(montos(abril).equals(List.of(5L)), "Período de abril incorrecto: " + montos(abril));
+        verificar(montos(persistencia.cargarTransaccionesRecientes(antigua, fecha(2024, 4), null, 0, 10)).equals(List.of(5L)),
+                  "Página de abril incorrecta");
+        verificar(lanza(() -> persistencia.recorrerTransacciones(antigua, fecha(2020, 1), null, t -> { })),
+                  "Un período anterior al primer segmento no leyó el archivo sin segmentar");
+
+        // Al reemplazar el historial, las sin fecha van a su segmento y no al mes en curso
+        String reemplazada = "SEG2";
+        persistencia.guardarTransacciones(reemplazada,
+            List.of(transaccion(1, null), transaccion(2, fecha(2021, 6)), transaccion(3, LocalDateTime.now())));
+        verificar(new File(directorio, "Transacciones_" + reemplazada + "_sin-fecha.xml").exists(), "No se creó el segmento sin fecha");
+        try (TransaccionesStAX.Lector enCurso = TransaccionesStAX.abrir(
+                 new File(directorio, "Transacciones_" + reemplazada + "_" + YearMonth.now() + ".xml"))) {
+            verificar(enCurso.next().getMonto() == 3, "La transacción sin fecha quedó en el mes en curso");
+        }
+        PersistenciaSegmentada reiniciada = new PersistenciaSegmentada(base);
+        verificar(montos(reiniciada.cargarTransacciones(reemplazada)).equals(List.of(1L, 2L, 3L)),
+                  "Historial incorrecto tras reiniciar: " + montos(reiniciada.cargarTransacciones(reemplazada)));
+        verificar(montos(reiniciada.cargarTransaccionesRecientes(reemplazada, null, null, 0, 10)).equals(List.of(3L, 2L, 1L)),
+                  "Página sin rango incorrecta tras reiniciar");
+        verificar(montos(reiniciada.cargarTransaccionesRecientes(reemplazada, null, fecha(2022, 1), 0, 10))
+                      .equals(List.of(2L)),
+                  "Un período acotado incluyó la transacción sin fecha");
+    }
+
+    private static Transaccion transaccion(long monto, LocalDateTime fecha) {
+        return Transaccion.restaurar(TipoTransaccion.DEPOSITO, monto, false, 0, fecha);
+    }
+
+    private static LocalDateTime fecha(int anio, int mes) {
+        return LocalDateTime.of(anio, mes, 1, 0, 0);
+    }
+
+    private static List<Long> montos(List<Transaccion> transacciones) {
+        List<Long> montos = new ArrayList<>();
+        for (Transaccion t : transacciones) {
+            montos.add(t.getMonto());
+        }
+        return montos;
+    }
+
+    private interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static boolean lanza(Accion accion) {
+        try {
+            accion.ejecutar();
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
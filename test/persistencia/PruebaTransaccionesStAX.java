@@ -0,0 +1,88 @@
+package persistencia;
+
+import modelo.TipoTransaccion;
+import modelo.Transaccion;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prueba de {@link TransaccionesStAX#agregar} cortado a mitad de la escritura:
+ * el archivo se sigue leyendo hasta la última transacción completa y el
+ * siguiente agregado lo recupera y lo vuelve a cerrar.
+ */
+public class PruebaTransaccionesStAX {
+
+    public static void main(String[] args) throws Exception {
+        File directorio = Files.createTempDirectory("transacciones").toFile();
+        File archivo = new File(directorio, "Transacciones_1.xml");
+        try {
+            TransaccionesStAX.escribir(archivo, List.of(transaccion(1), transaccion(2)));
+            long largo = archivo.length();
+            TransaccionesStAX.agregar(archivo, List.of(transaccion(3), transaccion(4)));
+
+            // Simula una caída que deja escrita la transacción 3 y parte de la 4
+            String texto = Files.readString(archivo.toPath());
+            int corte = texto.lastIndexOf("<monto>4") + "<monto>".length();
+            try (RandomAccessFile raf = new RandomAccessFile(archivo, "rw")) {
+                raf.setLength(corte);
+            }
+            verificar(archivo.length() > largo, "La prueba necesita un corte después de la transacción 3");
+            verificar(montos(archivo).equals(List.of(1L, 2L, 3L)),
+                      "Lectura del archivo cortado incorrecta: " + montos(archivo));
+
+            TransaccionesStAX.agregar(archivo, List.of(transaccion(5)));
+            verificar(Files.readString(archivo.toPath()).trim().endsWith("</transacciones>"),
+                      "El agregado no volvió a cerrar el archivo");
+            verificar(montos(archivo).equals(List.of(1L, 2L, 3L, 5L)),
+                      "Recuperación incorrecta: " + montos(archivo));
+            TransaccionesStAX.agregar(archivo, List.of(transaccion(6)));
+            verificar(montos(archivo).equals(List.of(1L, 2L, 3L, 5L, 6L)),
+                      "Agregado tras la recuperación incorrecto: " + montos(archivo));
+
+            // Un archivo que nunca fue XML no se da por cortado
+            Files.writeString(archivo.toPath(), "no es XML");
+            verificar(lanza(() -> montos(archivo)), "Se aceptó un archivo que no es XML");
+        } finally {
+            for (File f : directorio.listFiles()) {
+                f.delete();
+            }
+            directorio.delete();
+        }
+        System.out.println("OK");
+    }
+
+    private static Transaccion transaccion(long monto) {
+        return Transaccion.restaurar(TipoTransaccion.DEPOSITO, monto, false, 0, LocalDateTime.of(2024, 1, 1, 0, 0));
+    }
+
+    private static List<Long> montos(File archivo) throws Exception {
+        List<Long> montos = new ArrayList<>();
+        TransaccionesStAX.recorrer(archivo, null, null, t -> montos.add(t.getMonto()));
+        return montos;
+    }
+
+    private interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static boolean lanza(Accion accion) {
+        try {
+            accion.ejecutar();
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
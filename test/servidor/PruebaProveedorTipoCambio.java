@@ -0,0 +1,206 @@
+package servidor;
+
+import modelo.FuenteTipoCambioHttp;
+import modelo.ProveedorTipoCambio;
+import modelo.TipoCambio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Prueba de {@link ProveedorTipoCambio} con {@link FuenteTipoCambioHttp} contra
+ * {@link ServidorTipoCambioSimulado}: un valor vigente no consulta la fuente, uno
+ * vencido dentro de la ventana de obsolescencia se entrega sin esperar la demora
+ * mientras se refresca, varias consultas simultáneas sin valor hacen una sola
+ * llamada, y una fuente caída o lenta conserva el último valor en segundo plano y
+ * solo falla cuando hay que esperarla.
+ */
+public class PruebaProveedorTipoCambio {
+    private static final long TIMEOUT_MS = 2000;
+    private static final long DEMORA_MS = 300;
+    private static final int CONSULTAS_SIMULTANEAS = 8;
+
+    private static ServidorTipoCambioSimulado servidor;
+
+    public static void main(String[] args) throws Exception {
+        try {
+            vigenciaEvitaConsultas();
+            obsoletoSeEntregaMientrasSeRefresca();
+            consultasSimultaneasHacenUnaLlamada();
+            fallaConservaElUltimoValor();
+        } finally {
+            if (servidor != null) {
+                servidor.detener();
+            }
+        }
+        System.out.println("OK");
+    }
+
+    private static void vigenciaEvitaConsultas() throws Exception {
+        reiniciarServidor(610, 600);
+        ProveedorTipoCambio proveedor = proveedor(300, 0, TIMEOUT_MS);
+        try {
+            verificar(proveedor.actual().getCompra() == 610, "Primer valor incorrecto");
+            servidor.setTipos(620, 610);
+            verificar(proveedor.actual().getCompra() == 610 && servidor.getConsultas() == 1,
+                      "Un valor vigente volvió a consultar la fuente: " + servidor.getConsultas());
+            Thread.sleep(350);
+            verificar(proveedor.actual().getCompra() == 620 && servidor.getConsultas() == 2,
+                      "Un valor vencido no se volvió a consultar");
+        } finally {
+            proveedor.cerrar();
+        }
+    }
+
+    private static void obsoletoSeEntregaMientrasSeRefresca() throws Exception {
+        reiniciarServidor(610, 600);
+        ProveedorTipoCambio proveedor = proveedor(200, 5_000, TIMEOUT_MS);
+        try {
+            proveedor.actual();
+            servidor.setTipos(620, 610);
+            servidor.setDemoraMillis(DEMORA_MS);
+            Thread.sleep(250);
+
+            long inicio = System.nanoTime();
+            TipoCambio obsoleto = proveedor.actual();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+            verificar(obsoleto.getCompra() == 610 && proveedor.getServidosObsoletos() == 1,
+                      "No se entregó el valor obsoleto");
+            verificar(millis < DEMORA_MS / 2, "El valor obsoleto esperó a la fuente: " + millis + " ms");
+            esperar(() -> proveedor.getConsultasFuente() == 2, "El refresco en segundo plano no terminó");
+            verificar(proveedor.actual().getCompra() == 620, "El refresco no reemplazó el valor obsoleto");
+        } finally {
+            proveedor.cerrar();
+        }
+    }
+
+    private static void consultasSimultaneasHacenUnaLlamada() throws Exception {
+        reiniciarServidor(610, 600);
+        servidor.setDemoraMillis(DEMORA_MS);
+        ProveedorTipoCambio proveedor = proveedor(5_000, 0, TIMEOUT_MS);
+        ExecutorService hilos = Executors.newFixedThreadPool(CONSULTAS_SIMULTANEAS);
+        try {
+            CountDownLatch salida = new CountDownLatch(1);
+            List<CompletableFuture<TipoCambio>> consultas = new ArrayList<>();
+            for (int i = 0; i < CONSULTAS_SIMULTANEAS; i++) {
+                consultas.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        salida.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return actual(proveedor, "Una consulta simultánea falló");
+                }, hilos));
+            }
+            salida.countDown();
+            for (CompletableFuture<TipoCambio> c : consultas) {
+                verificar(c.get(5, TimeUnit.SECONDS).getCompra() == 610, "Consulta simultánea incorrecta");
+            }
+            verificar(servidor.getConsultas() == 1,
+                      "Las consultas simultáneas llamaron " + servidor.getConsultas() + " veces a la fuente");
+        } finally {
+            hilos.shutdown();
+            proveedor.cerrar();
+        }
+    }
+
+    private static void fallaConservaElUltimoValor() throws Exception {
+        reiniciarServidor(610, 600);
+        // El refresco periódico corre cada 100 ms
+        ProveedorTipoCambio proveedor = proveedor(200, 5_000, TIMEOUT_MS);
+        proveedor.iniciar();
+        try {
+            esperar(() -> proveedor.getConsultasFuente() >= 1, "El refresco periódico no consultó la fuente");
+            servidor.setFallando(true);
+            long fallos = proveedor.getFallosFuente();
+            esperar(() -> proveedor.getFallosFuente() >= fallos + 3, "El refresco periódico no registró las fallas");
+            verificar(actual(proveedor, "Una falla en segundo plano perdió el último valor").getCompra() == 610,
+                      "Una falla en segundo plano cambió el último valor");
+            servidor.setFallando(false);
+            servidor.setTipos(620, 610);
+            esperar(() -> proveedor.actual().getCompra() == 620, "El refresco no se recuperó de la falla");
+        } finally {
+            proveedor.cerrar();
+        }
+
+        // Sin ventana de obsolescencia, la consulta que debe esperar a la fuente sí falla
+        reiniciarServidor(610, 600);
+        ProveedorTipoCambio directo = proveedor(200, 0, 100);
+        try {
+            directo.actual();
+            Thread.sleep(250);
+            servidor.setFallando(true);
+            verificar(lanza(directo::actual) instanceof WebServiceException, "Una fuente caída no falló la consulta");
+            servidor.setFallando(false);
+            servidor.setDemoraMillis(DEMORA_MS);
+            verificar(lanza(directo::actual) instanceof WebServiceException, "Una fuente lenta no venció el tiempo máximo");
+            // El servidor atiende de a una solicitud: se espera a que termine la lenta
+            servidor.setDemoraMillis(0);
+            Thread.sleep(DEMORA_MS);
+            verificar(directo.actual().getCompra() == 610, "La consulta no se recuperó de la falla");
+        } finally {
+            directo.cerrar();
+        }
+    }
+
+    private static ProveedorTipoCambio proveedor(long ttlMillis, long obsoletoMillis, long timeoutMillis) {
+        return new ProveedorTipoCambio(new FuenteTipoCambioHttp(servidor.getUri(), timeoutMillis),
+                                       ttlMillis, obsoletoMillis);
+    }
+
+    private static TipoCambio actual(ProveedorTipoCambio proveedor, String mensaje) {
+        try {
+            return proveedor.actual();
+        } catch (WebServiceException e) {
+            verificar(false, mensaje + ": " + e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Reemplaza el servidor por uno nuevo, con el contador de consultas en cero.
+     */
+    private static void reiniciarServidor(double compra, double venta) throws Exception {
+        if (servidor != null) {
+            servidor.detener();
+        }
+        servidor = new ServidorTipoCambioSimulado(0);
+        servidor.setTipos(compra, venta);
+        servidor.iniciar();
+    }
+
+    private static void esperar(BooleanSupplier condicion, String mensaje) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condicion.getAsBoolean()) {
+            verificar(System.nanoTime() < limite, mensaje);
+            Thread.sleep(10);
+        }
+    }
+
+    private interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static Exception lanza(Accion accion) {
+        try {
+            accion.ejecutar();
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package servidor;
+
+import controlador.ControladorCajero;
+import modelo.ServicioSMS;
+import persistencia.PersistenciaMemoria;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Prueba de {@link ServidorCajero} por HTTP: las operaciones responden con los
+ * códigos documentados, los parámetros solo se leen del cuerpo, el cambio de PIN
+ * exige el PIN actual, las sesiones (también en páginas del historial y retiros en
+ * dólares) y las transferencias con código SMS funcionan, y varias terminales
+ * concurrentes no pierden depósitos.
+ */
+public class PruebaServidorCajero {
+    private static final String PIN = "123456";
+    private static final int TERMINALES = 32;
+    private static final int DEPOSITOS_POR_TERMINAL = 20;
+
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+    private static String base;
+
+    public static void main(String[] args) throws Exception {
+        // El canal de SMS de la prueba hace de teléfono: guarda el último código por número
+        Map<String, String> codigos = new ConcurrentHashMap<>();
+        ServicioSMS.configurar((telefono, mensaje) ->
+            codigos.put(telefono, mensaje.substring(mensaje.lastIndexOf(' ') + 1)));
+
+        ControladorCajero ctrl = new ControladorCajero(new PersistenciaMemoria());
+        ServidorCajero servidor = new ServidorCajero(ctrl, 0);
+        servidor.iniciar();
+        base = "http://127.0.0.1:" + servidor.getPuerto();
+        try {
+            esperar(200, post("/clientes", "nombre=Ana&identificacion=1&telefono=88888888&email=ana%40correo.com"));
+            String origen = esperar(200, post("/cuentas", "id=1&pin=" + PIN + "&monto=100000"));
+            String destino = esperar(200, post("/cuentas", "id=1&pin=" + PIN + "&monto=1000"));
+
+            esperar(200, post("/depositos", "numero=" + origen + "&monto=500"));
+            verificar(esperar(200, post("/saldo", "numero=" + origen + "&pin=" + PIN)).equals("100500"),
+                      "Saldo incorrecto tras el depósito");
+            esperar(401, post("/saldo", "numero=" + origen + "&pin=000000"));
+            esperar(400, post("/saldo?numero=" + origen + "&pin=" + PIN, ""));
+            esperar(400, post("/depositos", "numero=" + origen + "&monto=abc"));
+            esperar(404, post("/saldo/otra", "numero=" + origen + "&pin=" + PIN));
+            esperar(405, HTTP.send(HttpRequest.newBuilder(URI.create(base + "/saldo")).GET().build(),
+                                   HttpResponse.BodyHandlers.ofString()));
+
+            esperar(401, post("/pin", "numero=" + destino + "&pin=999999&pinNuevo=654321"));
+            esperar(200, post("/saldo", "numero=" + destino + "&pin=" + PIN));
+
+            String sesion = esperar(200, post("/sesiones", "numero=" + origen + "&pin=" + PIN));
+            verificar(esperar(200, post("/saldo", "sesion=" + sesion)).equals("100500"), "Saldo incorrecto con sesión");
+            String pagina = esperar(200, post("/transacciones", "sesion=" + sesion + "&limite=1"));
+            verificar(pagina.lines().count() == 1 && pagina.contains("500"), "Página incorrecta con sesión: " + pagina);
+            esperar(401, post("/transacciones", "sesion=otra&limite=1"));
+            // El código SMS se valida con la cuenta de la sesión, después de aceptar el token
+            esperar(400, post("/retiros-usd", "sesion=" + sesion + "&sms=000000&monto=10"));
+            esperar(401, post("/retiros-usd", "sesion=otra&sms=000000&monto=10"));
+            esperar(200, post("/cerrar-sesion", "sesion=" + sesion));
+            esperar(401, post("/saldo", "sesion=" + sesion));
+
+            esperar(200, post("/sms", "numero=" + origen));
+            String codigo = codigos.get("88888888");
+            esperar(200, post("/transferencias", "origen=" + origen + "&pin=" + PIN + "&sms=" + codigo
+                                                 + "&destino=" + destino + "&monto=1000"));
+            verificar(esperar(200, post("/saldo", "numero=" + destino + "&pin=" + PIN)).equals("2000"),
+                      "La transferencia no llegó al destino");
+
+            // Reintento con clave: el código ya se consumió, pero la clave devuelve el resultado guardado
+            esperar(200, post("/sms", "numero=" + origen));
+            String transferencia = "origen=" + origen + "&pin=" + PIN + "&sms=" + codigos.get("88888888")
+                                   + "&destino=" + destino + "&monto=1000&clave=t1";
+            esperar(200, post("/transferencias", transferencia));
+            esperar(200, post("/transferencias", transferencia));
+            verificar(esperar(200, post("/saldo", "numero=" + destino + "&pin=" + PIN)).equals("3000"),
+                      "El reintento con clave volvió a transferir");
+
+            long antes = Long.parseLong(esperar(200, post("/saldo", "numero=" + destino + "&pin=" + PIN)));
+            ExecutorService terminales = Executors.newVirtualThreadPerTaskExecutor();
+            List<Future<?>> tareas = new ArrayList<>();
+            try {
+                for (int t = 0; t < TERMINALES; t++) {
+                    tareas.add(terminales.submit(() -> {
+                        for (int i = 0; i < DEPOSITOS_POR_TERMINAL; i++) {
+                            esperar(200, post("/depositos", "numero=" + destino + "&monto=100"));
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> f : tareas) {
+                    f.get();
+                }
+            } finally {
+                terminales.shutdown();
+            }
+            long despues = Long.parseLong(esperar(200, post("/saldo", "numero=" + destino + "&pin=" + PIN)));
+            // Depósitos de 100 sin comisión: cada uno suma exactamente su monto
+            verificar(despues - antes == 100L * TERMINALES * DEPOSITOS_POR_TERMINAL,
+                      "Se perdieron depósitos concurrentes: " + (despues - antes));
+        } finally {
+            servidor.detener();
+        }
+        System.out.println("OK");
+    }
+
+    private static HttpResponse<String> post(String ruta, String cuerpo) throws Exception {
+        HttpRequest solicitud = HttpRequest.newBuilder(URI.create(base + ruta))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+            .build();
+        return HTTP.send(solicitud, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String esperar(int estado, HttpResponse<String> respuesta) {
+        verificar(respuesta.statusCode() == estado,
+                  respuesta.request().uri().getPath() + " respondió " + respuesta.statusCode()
+                  + " en lugar de " + estado + ": " + respuesta.body());
+        return respuesta.body();
+    }
+
+    private static void verificar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            System.err.println("FALLA: " + mensaje);
+            System.exit(1);
+        }
+    }
+}
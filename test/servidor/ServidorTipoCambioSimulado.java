@@ -0,0 +1,131 @@
+package servidor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor HTTP local de pruebas que simula el servicio de tipo de cambio del
+ * BCCR, para probar {@link modelo.ProveedorTipoCambio} con
+ * {@link modelo.FuenteTipoCambioHttp} sin depender del servicio real.
+ * GET /tipo-cambio responde
+ * "compra=&lt;valor&gt;\nventa=&lt;valor&gt;".
+ *
+ * Los tipos, una demora artificial y un modo de falla (respuesta 503) se pueden
+ * cambiar mientras corre, para observar el cache vigente, obsoleto y vencido.
+ *
+ * Uso: ServidorTipoCambioSimulado [puerto] [demoraMs]
+ * (por defecto puerto 8090 y sin demora).
+ */
+public class ServidorTipoCambioSimulado {
+    private static final int PUERTO_POR_DEFECTO = 8090;
+    private static final String RUTA = "/tipo-cambio";
+
+    private final HttpServer http;
+    private volatile double compra = 610.50;
+    private volatile double venta = 600.75;
+    private volatile long demoraMillis = 0;
+    private volatile boolean fallando = false;
+    private final AtomicLong consultas = new AtomicLong();
+
+    /**
+     * Crea el servidor; no atiende solicitudes hasta llamar a {@link #iniciar()}.
+     *
+     * @param puerto Puerto local donde escuchar (0 para uno libre)
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public ServidorTipoCambioSimulado(int puerto) throws IOException {
+        this.http = HttpServer.create(new InetSocketAddress("localhost", puerto), 0);
+        this.http.createContext(RUTA, this::atender);
+    }
+
+    public void iniciar() {
+        http.start();
+    }
+
+    public void detener() {
+        http.stop(0);
+    }
+
+    /**
+     * Obtiene la dirección completa de la ruta de tipo de cambio.
+     *
+     * @return URI para {@link modelo.FuenteTipoCambioHttp}
+     */
+    public URI getUri() {
+        return URI.create("http://localhost:" + http.getAddress().getPort() + RUTA);
+    }
+
+    /**
+     * Cambia los tipos que se responden a partir de la siguiente consulta.
+     *
+     * @param compra Tipo de compra
+     * @param venta  Tipo de venta
+     */
+    public void setTipos(double compra, double venta) {
+        this.compra = compra;
+        this.venta = venta;
+    }
+
+    public void setDemoraMillis(long demoraMillis) {
+        this.demoraMillis = demoraMillis;
+    }
+
+    /**
+     * Activa o desactiva el modo de falla, en el que toda consulta responde 503.
+     *
+     * @param fallando true para simular el servicio caído
+     */
+    public void setFallando(boolean fallando) {
+        this.fallando = fallando;
+    }
+
+    /**
+     * Obtiene la cantidad de consultas recibidas, incluidas las que fallaron.
+     *
+     * @return Consultas recibidas
+     */
+    public long getConsultas() {
+        return consultas.get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : PUERTO_POR_DEFECTO;
+        ServidorTipoCambioSimulado servidor = new ServidorTipoCambioSimulado(puerto);
+        if (args.length > 1) {
+            servidor.setDemoraMillis(Long.parseLong(args[1]));
+        }
+        servidor.iniciar();
+        System.out.println("Tipo de cambio simulado en " + servidor.getUri());
+    }
+
+    // — Helpers privados —
+
+    private void atender(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            consultas.incrementAndGet();
+            long demora = demoraMillis;
+            if (demora > 0) {
+                try {
+                    Thread.sleep(demora);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int estado = fallando ? 503 : 200;
+            String cuerpo = fallando ? "Servicio no disponible" : "compra=" + compra + "\nventa=" + venta;
+            byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            intercambio.sendResponseHeaders(estado, bytes.length);
+            try (OutputStream os = intercambio.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+}